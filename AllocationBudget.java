@@ -0,0 +1,73 @@
+package org.headroyce.lross2024;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+/**
+ * Checks that a game tick stays inside its allocation budget. It plays a normal game and worlds of 1k and 10k
+ * enemies without a display, measures the bytes the thread allocates per tick once everything is warmed up,
+ * and exits with status 1 if any of them goes over the budget:
+ *
+ *   java -cp out org.headroyce.lross2024.AllocationBudget
+ *
+ * -Dbudget.bytesPerTick sets the budget (default 0, a steady state tick allocates nothing).
+ */
+public class AllocationBudget {
+
+    private static final long BUDGET = Long.getLong("budget.bytesPerTick", 0);
+
+    // Ticks run first so the JIT, the pools and the reusable buffers have settled
+    private static final int WARMUP_TICKS = 20000;
+    private static final int MEASURED_TICKS = 200;
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    /**
+     * runs every check and exits with status 1 if any of them is over budget
+     * @param args not used
+     */
+    public static void main(String[] args) {
+        boolean passed = true;
+
+        // A normal game: spawning, pooling and removal all run
+        GameEngine game = new GameEngine(500, 500, 1);
+        game.getPlayer().addHP(1e9);
+        passed &= check("game", game, game);
+
+        for (int n : new int[]{1000, 10000}) {
+            Random rand = new Random(n);
+            GameEngine warmup = Benchmarks.world(n, rand);
+            passed &= check("n=" + n, warmup, Benchmarks.world(n, rand));
+        }
+
+        System.out.println(passed ? "PASSED" : "FAILED");
+        if (!passed) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * warms up on one engine, then measures ticks on another (which may be the same engine)
+     * @return true if the measured ticks stayed within the budget
+     */
+    private static boolean check(String name, GameEngine warmup, GameEngine measured) {
+        for (int i = 0; i < WARMUP_TICKS; i++) {
+            warmup.tick();
+        }
+        // The first tick of a fresh world grows its buffers, that is not steady state
+        measured.tick();
+
+        long thread = Thread.currentThread().getId();
+        long before = THREADS.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < MEASURED_TICKS; i++) {
+            measured.tick();
+        }
+        long bytes = THREADS.getThreadAllocatedBytes(thread) - before;
+
+        double perTick = (double) bytes / MEASURED_TICKS;
+        boolean passed = perTick <= BUDGET;
+        System.out.printf("%-10s %10.1f bytes/tick (budget %d) %s%n", name, perTick, BUDGET, passed ? "ok" : "OVER");
+        return passed;
+    }
+}
@@ -0,0 +1,123 @@
+package org.headroyce.lross2024;
+
+/**
+ * plays the game to stay alive as long as it can, for soak tests (see Soak). every tick it works out where the
+ * player should be heading: away from every enemy that will come close in the next few ticks (from where it is
+ * and how it is moving), towards lifesavers and coins, and away from the walls it would hit before it could stop.
+ * it then holds the keys that turn the player's velocity towards that, like a player holding arrow keys.
+ *
+ * it only reads the game and presses keys through applyForce/removeForce, so a game it plays records and replays
+ * like any other.
+ */
+public class Autopilot implements InputSource {
+
+    // How many ticks ahead it looks for enemies coming close
+    private static final double LOOKAHEAD = 30;
+    // Enemies closer than this (pixels between edges, at their closest) are run from, harder the closer they are
+    private static final double DANGER = 60;
+    // Lifesavers and coins closer than this are gone after
+    private static final double ATTRACT = 150;
+    // Keep at least this far from a wall, after stopping
+    private static final double WALL_MARGIN = 40;
+
+    private static final double FLEE = 3;
+    private static final double SEEK = 0.5;
+    private static final double WALL = 2;
+    private static final double CENTER = 0.002;
+
+    // Fastest it lets the player go, in pixels a tick
+    private static final double MAX_SPEED = 6;
+
+    private final double[] push = new double[2];
+
+    @Override
+    public void poll(GameEngine engine, long tick) {
+        Ball player = engine.getPlayer();
+        EntityStore enemies = engine.getEnemies();
+        double r = player.getRadius();
+        double px = player.x, py = player.y;
+        double pvx = player.velX, pvy = player.velY;
+        double ax = 0, ay = 0;
+
+        double[] x = enemies.x, y = enemies.y, prevX = enemies.prevX, prevY = enemies.prevY;
+        double[] w = enemies.width, h = enemies.height;
+        for (int i = 0; i < enemies.size(); i++) {
+            MobType type = enemies.typeAt(i);
+            // Where the enemy's middle is, and how big it is either way from there
+            double hw = w[i] / 2, hh = h[i] / 2;
+            double ex = type.isBall() ? x[i] : x[i] + hw;
+            double ey = type.isBall() ? y[i] : y[i] + hh;
+            double evx = x[i] - prevX[i], evy = y[i] - prevY[i];
+
+            if (type == MobType.LIFESAVER || type == MobType.COIN) {
+                double dx = ex - px, dy = ey - py;
+                double distance = Math.hypot(dx, dy);
+                if (distance < ATTRACT && distance > 0) {
+                    ax += dx / distance * SEEK;
+                    ay += dy / distance * SEEK;
+                }
+                continue;
+            }
+
+            closest(ex - px, ey - py, evx - pvx, evy - pvy, hw, hh);
+            double gap = Math.hypot(push[0], push[1]) - r;
+            if (gap < DANGER) {
+                double distance = Math.max(1e-6, Math.hypot(push[0], push[1]));
+                double weight = (DANGER - gap) / DANGER;
+                ax -= push[0] / distance * weight * weight * FLEE;
+                ay -= push[1] / distance * weight * weight * FLEE;
+            }
+        }
+
+        // Where the player would stop if it braked now (velocity changes by one a tick)
+        double stopX = px + pvx * Math.abs(pvx) / 2;
+        double stopY = py + pvy * Math.abs(pvy) / 2;
+        ax += wall(stopX - r) - wall(engine.getWidth() - stopX - r);
+        ay += wall(stopY - r) - wall(engine.getHeight() - stopY - r);
+        ax += (engine.getWidth() / 2 - px) * CENTER;
+        ay += (engine.getHeight() / 2 - py) * CENTER;
+
+        double length = Math.hypot(ax, ay);
+        double scale = length > 1 ? MAX_SPEED / length : MAX_SPEED;
+        steer(engine, ax * scale - pvx, GameEngine.DIRECTION.LEFT, GameEngine.DIRECTION.RIGHT);
+        steer(engine, ay * scale - pvy, GameEngine.DIRECTION.UP, GameEngine.DIRECTION.DOWN);
+    }
+
+    /**
+     * finds where an enemy is closest to the player over the next LOOKAHEAD ticks, going by how both move now, and
+     * puts the gap from the player to the nearest point of the enemy then in push
+     */
+    private void closest(double dx, double dy, double dvx, double dvy, double hw, double hh) {
+        double speed = dvx * dvx + dvy * dvy;
+        double t = speed == 0 ? 0 : Math.max(0, Math.min(LOOKAHEAD, -(dx * dvx + dy * dvy) / speed));
+        double cx = dx + dvx * t, cy = dy + dvy * t;
+        // From the player to the nearest point of the enemy's box
+        push[0] = Math.max(cx - hw, Math.min(cx + hw, 0));
+        push[1] = Math.max(cy - hh, Math.min(cy + hh, 0));
+    }
+
+    /**
+     * how hard a wall some distance away pushes back
+     */
+    private static double wall(double distance) {
+        return distance >= WALL_MARGIN ? 0 : (WALL_MARGIN - Math.max(0, distance)) / WALL_MARGIN * WALL;
+    }
+
+    /**
+     * holds the key that turns the velocity towards what it should be on one axis, and lets go of the other
+     */
+    private static void steer(GameEngine engine, double change, GameEngine.DIRECTION less, GameEngine.DIRECTION more) {
+        GameEngine.DIRECTION want = change > 0.5 ? more : change < -0.5 ? less : null;
+        hold(engine, less, want == less);
+        hold(engine, more, want == more);
+    }
+
+    private static void hold(GameEngine engine, GameEngine.DIRECTION direction, boolean down) {
+        boolean held = (engine.getForces() & direction.bit) != 0;
+        if (down && !held) {
+            engine.applyForce(direction);
+        } else if (!down && held) {
+            engine.removeForce(direction);
+        }
+    }
+}
@@ -1,10 +1,5 @@
 package org.headroyce.lross2024;
 
-import javafx.geometry.Point2D;
-import javafx.scene.canvas.Canvas;
-import javafx.scene.canvas.GraphicsContext;
-import javafx.scene.paint.Color;
-
 /**
  * Represents an oval ball
  */
@@ -24,13 +19,20 @@ public class Ball extends Mob{
      * @param radius the radius (in pixels) to set of the ball; Non-positives are reset to one
      */
     public Ball( double radius ){
-        setColor(Color.BLACK);
         if( radius <= 0 ){
             radius = 1;
         }
         this.radius = radius;
     }
 
+    /**
+     * puts every field back to how a new ball starts (radius of one)
+     */
+    public void reset(){
+        super.reset();
+        this.radius = 1;
+    }
+
     /**
      * Set the radius of this object.  A ball's radius must be positive.
      * @param radius the new, positive, radius of this object
@@ -90,6 +92,14 @@ public class Ball extends Mob{
     public double getRadius(){
         return this.radius;
     }
+    /**
+     * Get the type of this mob
+     * @return the ball type
+     */
+    public MobType getType(){
+        return MobType.BALL;
+    }
+
     /**
      * Add to the current score of the ball.
      * @return points scored if this goes off screen
@@ -116,16 +126,4 @@ public class Ball extends Mob{
         double distance = xd + yd;  // x^2+y^2
         return (distance < rad);
     }
-
-    /**
-     * renders ball on canvas.
-     * @param canvas where to render the mob.
-     */
-    public void render( Canvas canvas ){
-        GraphicsContext gc = canvas.getGraphicsContext2D();
-
-        gc.setFill(this.getColor());
-        gc.fillOval(x-radius,y-radius, 2*radius, 2*radius);
-
-    }
 }
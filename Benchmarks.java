@@ -0,0 +1,268 @@
+package org.headroyce.lross2024;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+/**
+ * Micro benchmarks for the hot paths of the game: Mob.move, the intersects tests, the broadphases, the serial and
+ * parallel enemy update (to find the parallel threshold) and a whole engine tick at 10, 1k, 10k and 100k enemies. Nothing here touches JavaFX, so it runs without a display:
+ *
+ *   java -cp out org.headroyce.lross2024.Benchmarks [name filter]
+ *
+ * Every benchmark is warmed up and then timed; it prints throughput (ops/s), time per op and bytes allocated
+ * per op (from the thread allocation counters, so allocation regressions show up as well as slowdowns).
+ * -Dbench.warmup and -Dbench.time set how long (ms) each benchmark warms up and is measured.
+ *
+ * This is a quick first look; the JMH benchmarks in jmh/ (mvn -Pjmh, see the README) time the same things in forked
+ * JVMs with JMH's guards against dead code, and are the numbers to compare for regressions.
+ */
+public class Benchmarks {
+
+    private static final long WARMUP_MILLIS = Long.getLong("bench.warmup", 1000);
+    private static final long MEASURE_MILLIS = Long.getLong("bench.time", 2000);
+
+    // Ticks timed against one freshly built world before it is rebuilt (mobs fall off the bottom over time)
+    private static final int TICKS_PER_WORLD = 20;
+
+    // Play field area per enemy, so big worlds are as crowded as a busy screen and not a solid block of mobs
+    private static final double AREA_PER_ENEMY = 5000;
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    // Results are added here so the JIT cannot throw the benchmarked work away
+    private static long sink;
+
+    // Time and bytes spent setting up inside a timed run, taken back out of the result
+    private static long setupNanos, setupBytes;
+
+    /**
+     * something to benchmark
+     */
+    public interface Benchmark {
+        /**
+         * does the work being measured
+         * @return how many operations were done
+         */
+        long run();
+    }
+
+    /**
+     * runs every benchmark (or the ones whose name contains the first argument)
+     * @param args optional filter on benchmark names
+     */
+    public static void main(String[] args) {
+        String filter = args.length > 0 ? args[0] : "";
+
+        System.out.printf("%-32s %16s %12s %12s%n", "benchmark", "ops/s", "ns/op", "B/op");
+
+        Mob[] mobs = Scenarios.mixedMobs(1024, new Random(1));
+        Ball[] balls = new Ball[mobs.length];
+        for (int i = 0; i < balls.length; i++) {
+            balls[i] = new Ball(10);
+            balls[i].setRadius(10);
+            balls[i].x = mobs[i].x;
+            balls[i].y = mobs[i].y;
+        }
+        Obstacle obstacle = new Obstacle();
+        obstacle.x = 250;
+        obstacle.y = 250;
+
+        run(filter, "Mob.move", () -> {
+            for (Mob mob : mobs) {
+                mob.move();
+            }
+            return mobs.length;
+        });
+        run(filter, "Mob.intersects(Mob)", () -> {
+            int hits = 0;
+            for (int i = 1; i < mobs.length; i++) {
+                if (mobs[i - 1].intersects(mobs[i])) {
+                    hits++;
+                }
+            }
+            sink += hits;
+            return mobs.length - 1;
+        });
+        run(filter, "Ball.intersects(Ball)", () -> {
+            int hits = 0;
+            for (int i = 1; i < balls.length; i++) {
+                if (balls[i - 1].intersects(balls[i])) {
+                    hits++;
+                }
+            }
+            sink += hits;
+            return balls.length - 1;
+        });
+        run(filter, "Obstacle.intersects(Ball)", () -> {
+            int hits = 0;
+            for (Ball ball : balls) {
+                if (obstacle.intersects(ball)) {
+                    hits++;
+                }
+            }
+            sink += hits;
+            return balls.length;
+        });
+
+        for (String name : new String[]{"brute", "grid", "sap"}) {
+            for (int n : new int[]{1000, 10000}) {
+                if (name.equals("brute") && n > 1000) {
+                    continue;
+                }
+                broadphase(filter, name, n);
+            }
+        }
+
+        // Serial against parallel enemy update, to find where the parallel threshold should be
+        for (int n : new int[]{1000, 10000, 100000, 1000000}) {
+            update(filter, "serial", n, new EnemyUpdater(Integer.MAX_VALUE));
+            update(filter, "parallel", n, new EnemyUpdater(0));
+        }
+
+        for (int n : new int[]{10, 1000, 10000, 100000}) {
+            tick(filter, n);
+        }
+
+        for (int n : new int[]{1000, 100000}) {
+            timers(filter, n);
+        }
+
+        if (sink == 42) {
+            System.out.println();
+        }
+    }
+
+    /**
+     * benchmarks one broadphase finding the pairs of n mixed enemies
+     */
+    private static void broadphase(String filter, String name, int n) {
+        GameEngine engine = world(n, new Random(n));
+        EntityStore enemies = engine.getEnemies();
+        Broadphase broadphase = Broadphase.create(name);
+        PairBuffer pairs = new PairBuffer();
+
+        run(filter, "broadphase " + name + " n=" + n, () -> {
+            broadphase.findPairs(enemies.x, enemies.y, enemies.width, enemies.height, enemies.size(), pairs);
+            sink += pairs.size();
+            return 1;
+        });
+    }
+
+    /**
+     * benchmarks one enemy update (move, move, walls) of n enemies
+     */
+    private static void update(String filter, String name, int n, EnemyUpdater updater) {
+        GameEngine engine = world(n, new Random(n));
+        EntityStore enemies = engine.getEnemies();
+        double width = fieldSize(n);
+
+        run(filter, "update " + name + " n=" + n, () -> {
+            updater.update(enemies, width);
+            return 1;
+        });
+    }
+
+    /**
+     * benchmarks a whole engine tick with n enemies (one op is one tick)
+     */
+    private static void tick(String filter, int n) {
+        Random rand = new Random(n);
+        GameEngine[] world = new GameEngine[1];
+
+        run(filter, "tick n=" + n, () -> {
+            // Rebuilding the world is not part of the tick, its time and allocations are taken back out
+            if (world[0] == null || world[0].getTick() % TICKS_PER_WORLD == 0) {
+                long bytes = THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+                long start = System.nanoTime();
+                world[0] = world(n, rand);
+                setupNanos += System.nanoTime() - start;
+                setupBytes += THREADS.getThreadAllocatedBytes(Thread.currentThread().getId()) - bytes;
+            }
+            world[0].tick();
+            return 1;
+        });
+    }
+
+    /**
+     * benchmarks a timing wheel holding n repeating timers: one tick of it, and scheduling and cancelling one more
+     */
+    private static void timers(String filter, int n) {
+        Random rand = new Random(n);
+        TimingWheel wheel = new TimingWheel(TimingWheel.DEFAULT_SLOTS);
+        for (int i = 0; i < n; i++) {
+            int period = rand.nextInt(1000) + 1;
+            wheel.schedule(rand.nextInt(period) + 1, period, 0, i);
+        }
+        TimingWheel.Listener listener = (timer, kind, arg) -> sink += arg;
+
+        run(filter, "timers advance n=" + n, () -> {
+            wheel.advance(listener);
+            return 1;
+        });
+        run(filter, "timers schedule+cancel n=" + n, () -> {
+            wheel.cancel(wheel.schedule(rand.nextInt(1000) + 1, 0, 0, 0));
+            return 1;
+        });
+    }
+
+    /**
+     * builds an engine with n enemies of every kind spread over a field sized for n
+     * @param n how many enemies
+     * @param rand where the positions and speeds come from
+     * @return a new engine that will not end (the player has plenty of lives)
+     */
+    public static GameEngine world(int n, Random rand) {
+        double size = fieldSize(n);
+        GameEngine engine = new GameEngine(size, size, rand.nextLong());
+        engine.getPlayer().addHP(1e9);
+
+        for (Mob mob : Scenarios.mixedMobs(n, rand)) {
+            mob.x *= size / 500;
+            mob.y = rand.nextDouble() * size * 1.5 - size * 0.5;
+            engine.getEnemies().add(mob);
+        }
+        return engine;
+    }
+
+    /**
+     * Get the width (and height) of the field world makes for n enemies
+     * @param n how many enemies
+     * @return the size of the field
+     */
+    public static double fieldSize(int n) {
+        return Math.max(500, Math.sqrt(n * AREA_PER_ENEMY));
+    }
+
+    /**
+     * warms up and measures one benchmark, then prints its results
+     */
+    private static void run(String filter, String name, Benchmark benchmark) {
+        if (!name.contains(filter)) {
+            return;
+        }
+        long thread = Thread.currentThread().getId();
+
+        long end = System.nanoTime() + WARMUP_MILLIS * 1000000;
+        while (System.nanoTime() < end) {
+            benchmark.run();
+        }
+
+        setupNanos = 0;
+        setupBytes = 0;
+        long ops = 0;
+        long bytes = THREADS.getThreadAllocatedBytes(thread);
+        long start = System.nanoTime();
+        end = start + MEASURE_MILLIS * 1000000;
+        long now = start;
+        while (now < end) {
+            ops += benchmark.run();
+            now = System.nanoTime();
+        }
+        bytes = THREADS.getThreadAllocatedBytes(thread) - bytes - setupBytes;
+        long nanos = now - start - setupNanos;
+
+        System.out.printf("%-32s %16.1f %12.1f %12.1f%n", name, ops * 1e9 / nanos, (double) nanos / ops,
+                (double) bytes / ops);
+    }
+}
@@ -0,0 +1,45 @@
+package org.headroyce.lross2024;
+
+/**
+ * plays a game on its own: holds a random direction (or nothing) for a random number of ticks, then picks again.
+ * it has its own generator, so a bot with the same seed in a game with the same seed plays the same game.
+ */
+public class BotInput implements InputSource {
+
+    private static final GameEngine.DIRECTION[] MOVES = {
+            GameEngine.DIRECTION.LEFT, GameEngine.DIRECTION.UP, GameEngine.DIRECTION.RIGHT, GameEngine.DIRECTION.DOWN
+    };
+
+    // Ticks a choice is held for, at least and at most
+    private static final int MIN_HOLD = 10;
+    private static final int MAX_HOLD = 60;
+
+    private GameRandom rand;
+    private GameEngine.DIRECTION held;
+    private long nextChoice;
+
+    /**
+     * makes a bot
+     * @param seed where its choices come from
+     */
+    public BotInput(long seed) {
+        rand = new GameRandom(seed);
+    }
+
+    @Override
+    public void poll(GameEngine engine, long tick) {
+        if (tick < nextChoice) {
+            return;
+        }
+        if (held != null) {
+            engine.removeForce(held);
+        }
+        // One choice in five is to let go
+        int choice = rand.nextInt(MOVES.length + 1);
+        held = choice < MOVES.length ? MOVES[choice] : null;
+        if (held != null) {
+            engine.applyForce(held);
+        }
+        nextChoice = tick + MIN_HOLD + rand.nextInt(MAX_HOLD - MIN_HOLD + 1);
+    }
+}
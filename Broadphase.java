@@ -0,0 +1,57 @@
+package org.headroyce.lross2024;
+
+/**
+ * finds the pairs of mobs that might be touching so the narrowphase only has to check those.
+ * mobs are handed over as their axis aligned bounding boxes: x, y is the top left corner and w, h the size.
+ */
+public interface Broadphase {
+
+    /**
+     * fills pairs with every (a, b), a < b, whose boxes overlap (touching edges count as overlapping).
+     * pairs are left sorted by a and then b so they come out in the same order as a brute force scan.
+     * @param x left edge of each box
+     * @param y top edge of each box
+     * @param w width of each box
+     * @param h height of each box
+     * @param count how many boxes are in the arrays
+     * @param pairs where to put the candidate pairs (cleared first)
+     */
+    void findPairs(double[] x, double[] y, double[] w, double[] h, int count, PairBuffer pairs);
+
+    /**
+     * makes a broadphase from its name: "brute", "grid" or "sap". anything else falls back to the grid.
+     * @param name the name of the broadphase to use
+     * @return a new broadphase
+     */
+    static Broadphase create(String name) {
+        Broadphase rtn;
+        if ("brute".equalsIgnoreCase(name)) {
+            rtn = new BruteForceBroadphase();
+        } else if ("sap".equalsIgnoreCase(name)) {
+            rtn = new SweepAndPruneBroadphase();
+        } else {
+            rtn = new SpatialHashBroadphase(SpatialHashBroadphase.DEFAULT_CELL_SIZE);
+        }
+        return rtn;
+    }
+
+    /**
+     * checks if two boxes overlap, the test every broadphase must agree with.
+     * @return true if box a and box b overlap or touch
+     */
+    static boolean overlaps(double[] x, double[] y, double[] w, double[] h, int a, int b) {
+        if (x[a] + w[a] < x[b]) {
+            return false;
+        }
+        if (x[a] > x[b] + w[b]) {
+            return false;
+        }
+        if (y[a] + h[a] < y[b]) {
+            return false;
+        }
+        if (y[a] > y[b] + h[b]) {
+            return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,113 @@
+package org.headroyce.lross2024;
+
+import java.util.Random;
+
+/**
+ * Checks that the grid and sweep and prune broadphases find exactly the pairs brute force finds. It builds random
+ * worlds of mixed boxes without a display: small balls, walls 40% of the field wide, boxes reaching into negative
+ * coordinates and past the field, boxes lined up on grid cell edges, boxes that only touch, empty boxes and
+ * copies of the same box. It exits with status 1 at the first world where either of them differs:
+ *
+ *   java -cp out org.headroyce.lross2024.BroadphaseCheck
+ *
+ * -Dbroadphase.worlds sets how many worlds are checked (default 3000) and -Dbroadphase.seed where they come from.
+ */
+public class BroadphaseCheck {
+
+    private static final int WORLDS = Integer.getInteger("broadphase.worlds", 3000);
+    private static final long SEED = Long.getLong("broadphase.seed", 1);
+
+    private static final double FIELD = 500;
+    private static final double CELL = SpatialHashBroadphase.DEFAULT_CELL_SIZE;
+    private static final int MAX_BOXES = 400;
+
+    /**
+     * checks every world and exits with status 1 if a broadphase ever disagrees with brute force
+     * @param args not used
+     */
+    public static void main(String[] args) {
+        String[] names = {"grid", "sap"};
+        Broadphase[] broadphases = new Broadphase[names.length];
+        for (int i = 0; i < names.length; i++) {
+            broadphases[i] = Broadphase.create(names[i]);
+        }
+        Broadphase reference = new BruteForceBroadphase();
+        PairBuffer expected = new PairBuffer();
+        PairBuffer found = new PairBuffer();
+
+        double[] x = new double[MAX_BOXES], y = new double[MAX_BOXES];
+        double[] w = new double[MAX_BOXES], h = new double[MAX_BOXES];
+        Random rand = new Random(SEED);
+        long pairs = 0;
+        for (int world = 0; world < WORLDS; world++) {
+            int count = rand.nextInt(MAX_BOXES + 1);
+            fill(rand, x, y, w, h, count);
+            reference.findPairs(x, y, w, h, count, expected);
+            pairs += expected.size();
+
+            for (int i = 0; i < broadphases.length; i++) {
+                broadphases[i].findPairs(x, y, w, h, count, found);
+                if (!found.sameAs(expected)) {
+                    System.out.printf("world %d (%d boxes): %s found %d pairs but brute force found %d%n", world,
+                            count, names[i], found.size(), expected.size());
+                    System.out.println("FAILED");
+                    System.exit(1);
+                }
+            }
+        }
+        System.out.printf("%d worlds, %d pairs, grid and sap agree with brute force%n", WORLDS, pairs);
+        System.out.println("PASSED");
+    }
+
+    /**
+     * fills a world with boxes of every kind
+     */
+    private static void fill(Random rand, double[] x, double[] y, double[] w, double[] h, int count) {
+        for (int i = 0; i < count; i++) {
+            int kind = rand.nextInt(7);
+            if (kind == 0) {
+                // A wall across 40% of the field
+                w[i] = FIELD * 0.4;
+                h[i] = 50;
+                x[i] = rand.nextBoolean() ? 0 : FIELD - w[i];
+                y[i] = rand.nextDouble() * (FIELD + 100) - 100;
+            } else if (kind == 1 && i > 0) {
+                // Touching an earlier box edge to edge, or the same box again
+                int other = rand.nextInt(i);
+                w[i] = 1 + rand.nextInt(40);
+                h[i] = 1 + rand.nextInt(40);
+                x[i] = rand.nextBoolean() ? x[other] + w[other] : x[other] - w[i];
+                y[i] = y[other];
+                if (rand.nextInt(4) == 0) {
+                    x[i] = x[other];
+                    w[i] = w[other];
+                    h[i] = h[other];
+                }
+            } else if (kind == 2) {
+                // Lined up on cell edges
+                x[i] = (rand.nextInt(12) - 3) * CELL;
+                y[i] = (rand.nextInt(12) - 3) * CELL;
+                w[i] = rand.nextInt(3) * CELL;
+                h[i] = rand.nextInt(3) * CELL;
+            } else if (kind == 3) {
+                // Empty, or a line
+                x[i] = rand.nextDouble() * FIELD;
+                y[i] = rand.nextDouble() * FIELD;
+                w[i] = rand.nextBoolean() ? 0 : rand.nextDouble() * 30;
+                h[i] = 0;
+            } else if (kind == 4) {
+                // Big, reaching off the field on either side
+                w[i] = rand.nextDouble() * FIELD;
+                h[i] = rand.nextDouble() * FIELD;
+                x[i] = rand.nextDouble() * 2 * FIELD - FIELD;
+                y[i] = rand.nextDouble() * 2 * FIELD - FIELD;
+            } else {
+                // A small ball, anywhere from a little above and left of the field to a little past it
+                double r = 3 + rand.nextInt(13);
+                w[i] = h[i] = 2 * r;
+                x[i] = rand.nextDouble() * (FIELD + 200) - 100 - r;
+                y[i] = rand.nextDouble() * (FIELD + 200) - 100 - r;
+            }
+        }
+    }
+}
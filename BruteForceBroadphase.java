@@ -0,0 +1,19 @@
+package org.headroyce.lross2024;
+
+/**
+ * checks every pair of mobs against each other. O(n^2), kept as the reference the other broadphases must match.
+ */
+public class BruteForceBroadphase implements Broadphase {
+
+    @Override
+    public void findPairs(double[] x, double[] y, double[] w, double[] h, int count, PairBuffer pairs) {
+        pairs.clear();
+        for (int i = 0; i < count; i++) {
+            for (int j = i + 1; j < count; j++) {
+                if (Broadphase.overlaps(x, y, w, h, i, j)) {
+                    pairs.add(i, j);
+                }
+            }
+        }
+    }
+}
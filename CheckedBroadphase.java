@@ -0,0 +1,35 @@
+package org.headroyce.lross2024;
+
+/**
+ * wraps another broadphase and checks every tick that it found exactly the same pairs as brute force.
+ * this is slow (it runs brute force too), it is only meant for checking a broadphase while playing.
+ */
+public class CheckedBroadphase implements Broadphase {
+    private Broadphase broadphase;
+    private BruteForceBroadphase reference;
+    private PairBuffer expected;
+
+    /**
+     * makes a broadphase that checks another one
+     * @param broadphase the broadphase to check (cannot be null)
+     */
+    public CheckedBroadphase(Broadphase broadphase) {
+        if (broadphase == null) {
+            throw new IllegalArgumentException("broadphase cannot be null");
+        }
+        this.broadphase = broadphase;
+        reference = new BruteForceBroadphase();
+        expected = new PairBuffer();
+    }
+
+    @Override
+    public void findPairs(double[] x, double[] y, double[] w, double[] h, int count, PairBuffer pairs) {
+        broadphase.findPairs(x, y, w, h, count, pairs);
+        reference.findPairs(x, y, w, h, count, expected);
+
+        if (!pairs.sameAs(expected)) {
+            throw new IllegalStateException(broadphase.getClass().getSimpleName() + " found " + pairs.size()
+                    + " pairs but brute force found " + expected.size() + " (" + count + " mobs)");
+        }
+    }
+}
@@ -1,7 +1,5 @@
 package org.headroyce.lross2024;
 
-import javafx.scene.paint.Color;
-
 /**
  * represents coin inherited from ball.
  */
@@ -20,7 +18,14 @@ public class Coin extends Ball{
      */
     public Coin(double radius) {
         super(radius);
-        setColor(Color.DARKGOLDENROD);
+    }
+
+    /**
+     * Get the type of this mob
+     * @return the coin type
+     */
+    public MobType getType(){
+        return MobType.COIN;
     }
 
     /**
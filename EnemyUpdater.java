@@ -0,0 +1,168 @@
+package org.headroyce.lross2024;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * moves every enemy (twice, like the game always has) and bounces it off the sides of the window. above a
+ * threshold number of enemies the store is split into chunks that are updated in parallel on a ForkJoinPool;
+ * each enemy only touches its own fields, so the parallel result is exactly the same as the serial one.
+ * the tasks are made once and reused, so a parallel update does not allocate either.
+ */
+public class EnemyUpdater {
+
+    // Enemies needed before updating in parallel (-Dgame.parallel.threshold=...)
+    public static final int DEFAULT_THRESHOLD = Integer.getInteger("game.parallel.threshold", 50000);
+
+    // Chunks per worker thread, a few so a slow thread does not hold everyone up
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private int threshold;
+    private ForkJoinPool pool;
+
+    private Root root;
+    private Chunk[] chunks;
+
+    // What the running parallel update works on
+    private EntityStore store;
+    private double width;
+
+    /**
+     * makes an updater that uses the common ForkJoinPool
+     * @param threshold update in parallel from this many enemies (Integer.MAX_VALUE never does)
+     */
+    public EnemyUpdater(int threshold) {
+        this(threshold, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * makes an updater
+     * @param threshold update in parallel from this many enemies (Integer.MAX_VALUE never does)
+     * @param pool the pool to run parallel updates on (cannot be null)
+     */
+    public EnemyUpdater(int threshold, ForkJoinPool pool) {
+        if (pool == null) {
+            throw new IllegalArgumentException("pool cannot be null");
+        }
+        this.threshold = threshold;
+        this.pool = pool;
+
+        root = new Root();
+        chunks = new Chunk[pool.getParallelism() * CHUNKS_PER_THREAD];
+        for (int i = 0; i < chunks.length; i++) {
+            chunks[i] = new Chunk();
+        }
+    }
+
+    /**
+     * moves every enemy and keeps it within the sides of the window, in parallel if there are enough of them.
+     * returns once every enemy is done.
+     * @param store the enemies
+     * @param width width of the window
+     */
+    public void update(EntityStore store, double width) {
+        int count = store.size();
+        if (count < threshold || pool.getParallelism() < 2) {
+            update(store, 0, count, width);
+            return;
+        }
+
+        this.store = store;
+        this.width = width;
+        root.reinitialize();
+        pool.invoke(root);
+        this.store = null;
+    }
+
+    /**
+     * moves enemies from..to-1 twice and then keeps them within the sides of the window
+     * @param store the enemies
+     * @param from first enemy (inclusive)
+     * @param to last enemy (exclusive)
+     * @param width width of the window
+     */
+    public static void update(EntityStore store, int from, int to, double width) {
+        move(store, from, to);
+        move(store, from, to);
+        collideWalls(store, from, to, width);
+    }
+
+    /**
+     * moves enemies along their velocity, clamped to their velocity bounds (same as Mob.move)
+     */
+    private static void move(EntityStore store, int from, int to) {
+        double[] x = store.x, y = store.y, velX = store.velX, velY = store.velY;
+        double[] minVelX = store.minVelX, maxVelX = store.maxVelX;
+        double[] minVelY = store.minVelY, maxVelY = store.maxVelY;
+        for (int i = from; i < to; i++) {
+            double moveVelX = velX[i];
+            double moveVelY = velY[i];
+
+            if (moveVelX < minVelX[i]) {
+                moveVelX = minVelX[i];
+            } else if (moveVelX > maxVelX[i]) {
+                moveVelX = maxVelX[i];
+            }
+
+            if (moveVelY < minVelY[i]) {
+                moveVelY = minVelY[i];
+            } else if (moveVelY > maxVelY[i]) {
+                moveVelY = maxVelY[i];
+            }
+
+            x[i] += moveVelX;
+            y[i] += moveVelY;
+        }
+    }
+
+    /**
+     * keeps enemies within the sides of the window (they are allowed to leave through the top and bottom). the
+     * part of the step that went past a side is reflected back, as if the enemy bounced the moment it hit.
+     */
+    private static void collideWalls(EntityStore store, int from, int to, double width) {
+        double[] x = store.x, velX = store.velX, w = store.width;
+        for (int i = from; i < to; i++) {
+            if (x[i] + w[i] > width) {
+                x[i] = GameEngine.reflect(x[i], width - w[i], 0);
+                velX[i] *= -1;
+            }
+            if (x[i] < 0) {
+                x[i] = GameEngine.reflect(x[i], 0, width - w[i]);
+                velX[i] *= -1;
+            }
+        }
+    }
+
+    /**
+     * splits the store between the chunks and runs them all
+     */
+    private class Root extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected void compute() {
+            int count = store.size();
+            int per = (count + chunks.length - 1) / chunks.length;
+            for (int i = 0; i < chunks.length; i++) {
+                chunks[i].reinitialize();
+                chunks[i].from = Math.min(count, i * per);
+                chunks[i].to = Math.min(count, (i + 1) * per);
+            }
+            invokeAll(chunks);
+        }
+    }
+
+    /**
+     * updates one range of the store
+     */
+    private class Chunk extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private int from, to;
+
+        @Override
+        protected void compute() {
+            update(store, from, to, width);
+        }
+    }
+}
@@ -0,0 +1,462 @@
+package org.headroyce.lross2024;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.util.Arrays;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * holds the hot fields of every enemy mob in parallel arrays so the per tick loops walk memory in order instead of
+ * jumping between mob objects. entity i lives at index i of every array; indexes move when entities are removed,
+ * handles (from add) stay the same for the whole life of the entity.
+ *
+ * the arrays are public so the game loops can run over them directly. they are replaced when the store grows, so
+ * read them again after calling add.
+ */
+public class EntityStore {
+
+    // Returned by add/indexOf when there is no entity
+    public static final int NO_HANDLE = -1;
+
+    // Handles are (generation << SLOT_BITS) | slot so a reused slot gets a new handle
+    private static final int SLOT_BITS = 24;
+    private static final int SLOT_MASK = (1 << SLOT_BITS) - 1;
+    private static final int GENERATION_MASK = 0x7F;
+
+    // Double columns written by writeTo (see columns())
+    private static final int COLUMNS = 13;
+
+    public double[] x, y;
+    // Positions before the last game step, for drawing in between steps
+    public double[] prevX, prevY;
+    public double[] velX, velY;
+    // Velocity bounds, [min, max] in each direction
+    public double[] minVelX, maxVelX, minVelY, maxVelY;
+    public double[] width, height;
+    public double[] hp;
+    public byte[] type;
+
+    // The mob objects, only used as views for rendering and scoring
+    private Mob[] views;
+
+    // index -> handle and slot -> index
+    private int[] handles;
+    private int[] slotIndex;
+    private int[] slotGeneration;
+
+    private int[] freeSlots;
+    private int freeCount;
+    private int slotCount;
+
+    private int size;
+
+    /**
+     * makes an empty store
+     * @param capacity how many entities to make room for up front; non-positives are reset to 64
+     */
+    public EntityStore(int capacity) {
+        if (capacity <= 0) {
+            capacity = 64;
+        }
+        x = new double[capacity];
+        y = new double[capacity];
+        prevX = new double[capacity];
+        prevY = new double[capacity];
+        velX = new double[capacity];
+        velY = new double[capacity];
+        minVelX = new double[capacity];
+        maxVelX = new double[capacity];
+        minVelY = new double[capacity];
+        maxVelY = new double[capacity];
+        width = new double[capacity];
+        height = new double[capacity];
+        hp = new double[capacity];
+        type = new byte[capacity];
+        views = new Mob[capacity];
+        handles = new int[capacity];
+
+        slotIndex = new int[capacity];
+        slotGeneration = new int[capacity];
+        freeSlots = new int[capacity];
+    }
+
+    /**
+     * Get the number of entities in the store
+     * @return how many entities there are
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get the number of slots handles have been given out from
+     * @return one more than the highest slot in use so far
+     */
+    public int getSlotCount() {
+        return slotCount;
+    }
+
+    /**
+     * Get the slot of a handle. no two living entities share a slot, so it can index arrays kept next to the store
+     * @param handle a handle from add
+     * @return the slot, below getSlotCount()
+     */
+    public static int slotOf(int handle) {
+        return handle & SLOT_MASK;
+    }
+
+    /**
+     * copies a mob into the store
+     * @param mob the mob to add (cannot be null); it becomes the view of the new entity
+     * @return the handle of the new entity
+     */
+    public int add(Mob mob) {
+        if (mob == null) {
+            throw new IllegalArgumentException("mob cannot be null");
+        }
+        if (size == x.length) {
+            grow(size * 2);
+        }
+
+        int i = size++;
+        views[i] = mob;
+        type[i] = (byte) mob.getType().ordinal();
+        width[i] = mob.getWidth();
+        height[i] = mob.getHeight();
+
+        minVelX[i] = mob.getMinVelocityX();
+        maxVelX[i] = mob.getMaxVelocityX();
+        minVelY[i] = mob.getMinVelocityY();
+        maxVelY[i] = mob.getMaxVelocityY();
+        commit(i);
+        prevX[i] = x[i];
+        prevY[i] = y[i];
+
+        int slot = newSlot();
+        slotIndex[slot] = i;
+        handles[i] = (slotGeneration[slot] << SLOT_BITS) | slot;
+        return handles[i];
+    }
+
+    /**
+     * Get the current index of an entity
+     * @param handle the handle returned by add
+     * @return the index of the entity, or NO_HANDLE if it has been removed
+     */
+    public int indexOf(int handle) {
+        if (handle < 0) {
+            return NO_HANDLE;
+        }
+        int slot = handle & SLOT_MASK;
+        if (slot >= slotCount || slotGeneration[slot] != (handle >>> SLOT_BITS)) {
+            return NO_HANDLE;
+        }
+        return slotIndex[slot];
+    }
+
+    /**
+     * Get the handle of the entity at an index
+     * @param i index of the entity
+     * @return the handle of the entity
+     */
+    public int handleAt(int i) {
+        return handles[i];
+    }
+
+    /**
+     * Get the type of the entity at an index
+     * @param i index of the entity
+     * @return the type of the entity
+     */
+    public MobType typeAt(int i) {
+        return MobType.of(type[i]);
+    }
+
+    /**
+     * Get the mob object of an entity with its fields brought up to date from the store.
+     * changes made to the view only reach the store after commit(i).
+     * @param i index of the entity
+     * @return the mob at index i
+     */
+    public Mob view(int i) {
+        Mob mob = views[i];
+        mob.x = x[i];
+        mob.y = y[i];
+        mob.velX = velX[i];
+        mob.velY = velY[i];
+        mob.hp = hp[i];
+        return mob;
+    }
+
+    /**
+     * copies the position, velocity and hit points of a view back into the store
+     * @param i index of the entity
+     */
+    public void commit(int i) {
+        Mob mob = views[i];
+        x[i] = mob.x;
+        y[i] = mob.y;
+        velX[i] = mob.velX;
+        velY[i] = mob.velY;
+        hp[i] = mob.hp;
+    }
+
+    /**
+     * remembers the current position of every entity as its previous position
+     */
+    public void savePositions() {
+        System.arraycopy(x, 0, prevX, 0, size);
+        System.arraycopy(y, 0, prevY, 0, size);
+    }
+
+    /**
+     * removes the entity at an index by moving the last entity into its place
+     * @param i index of the entity to remove
+     * @return the view of the removed entity (no longer used by the store)
+     */
+    public Mob remove(int i) {
+        Mob removed = views[i];
+        release(i);
+
+        int last = --size;
+        if (i != last) {
+            move(last, i);
+        }
+        views[last] = null;
+        return removed;
+    }
+
+    /**
+     * decides which entities compact removes, and hears about each one it removed
+     */
+    public interface RemovalFilter {
+        /**
+         * called once for every entity during compact
+         * @param i the index of the entity (its index before compact started when keeping order)
+         * @return true to remove the entity
+         */
+        boolean shouldRemove(int i);
+
+        /**
+         * called for every entity compact removed
+         * @param mob the view of the removed entity (no longer used by the store)
+         */
+        void removed(Mob mob);
+    }
+
+    /**
+     * removes every entity the filter asks for in a single pass over the store, O(n) however many are removed.
+     * @param filter picks the entities to remove
+     * @param keepOrder true to keep the other entities in the same order (everything after the first removed
+     *                  entity moves down), false to fill each hole with the last entity (fewer moves)
+     * @return how many entities were removed
+     */
+    public int compact(RemovalFilter filter, boolean keepOrder) {
+        int before = size;
+        if (keepOrder) {
+            int kept = 0;
+            for (int i = 0; i < before; i++) {
+                if (filter.shouldRemove(i)) {
+                    release(i);
+                    filter.removed(views[i]);
+                } else {
+                    if (kept != i) {
+                        move(i, kept);
+                    }
+                    kept++;
+                }
+            }
+            Arrays.fill(views, kept, before, null);
+            size = kept;
+        } else {
+            int i = 0;
+            while (i < size) {
+                if (filter.shouldRemove(i)) {
+                    Mob removed = views[i];
+                    release(i);
+                    int last = --size;
+                    if (i != last) {
+                        move(last, i);
+                    }
+                    views[last] = null;
+                    filter.removed(removed);
+                } else {
+                    i++;
+                }
+            }
+        }
+        return before - size;
+    }
+
+    /**
+     * Get the number of bytes writeTo takes for some number of entities
+     * @param count the number of entities
+     * @return the size of the entities in a save state
+     */
+    public static long bytesFor(int count) {
+        return (long) count * (COLUMNS * Double.BYTES + 1);
+    }
+
+    /**
+     * writes every entity at the buffer's position, a column at a time (x of every entity, then y, ...) so each
+     * column is one bulk copy. handles are not kept.
+     * @param out where to write, with at least bytesFor(size()) bytes left
+     */
+    public void writeTo(ByteBuffer out) {
+        for (double[] column : columns()) {
+            out.asDoubleBuffer().put(column, 0, size);
+            out.position(out.position() + size * Double.BYTES);
+        }
+        out.put(type, 0, size);
+    }
+
+    /**
+     * replaces every entity with ones read from a buffer written by writeTo. each entity gets a new handle and a new
+     * view from the factory.
+     * @param in where to read from, at the start of the entities
+     * @param count how many entities were written
+     * @param factory gives a mob of a type, to be the view of an entity (its fields are set from the store)
+     * @param removed is given the views of the entities being replaced (can be null)
+     */
+    public void readFrom(ByteBuffer in, int count, Function<MobType, Mob> factory,
+                         Consumer<Mob> removed) {
+        for (int i = size - 1; i >= 0; i--) {
+            Mob mob = remove(i);
+            if (removed != null) {
+                removed.accept(mob);
+            }
+        }
+        if (x.length < count) {
+            grow(Math.max(count, x.length * 2));
+        }
+
+        for (double[] column : columns()) {
+            DoubleBuffer doubles = in.asDoubleBuffer();
+            doubles.get(column, 0, count);
+            in.position(in.position() + count * Double.BYTES);
+        }
+        in.get(type, 0, count);
+
+        for (int i = 0; i < count; i++) {
+            Mob mob = factory.apply(MobType.of(type[i]));
+            mob.setWidth(width[i]);
+            mob.setHeight(height[i]);
+            mob.setVelocityBoundX(minVelX[i], maxVelX[i]);
+            mob.setVelocityBoundY(minVelY[i], maxVelY[i]);
+            views[i] = mob;
+
+            int slot = newSlot();
+            slotIndex[slot] = i;
+            handles[i] = (slotGeneration[slot] << SLOT_BITS) | slot;
+        }
+        size = count;
+        for (int i = 0; i < count; i++) {
+            view(i);
+        }
+    }
+
+    /**
+     * checks that a buffer holds entities as writeTo writes them, and moves past them
+     * @param in where to read from, at the start of the entities
+     * @param count how many entities were written
+     * @throws IOException if they run past the end of the buffer or one is not of any type
+     */
+    public static void skipState(ByteBuffer in, int count) throws IOException {
+        if (count < 0 || bytesFor(count) > in.remaining()) {
+            throw new IOException("bad enemy count " + count);
+        }
+        int types = in.position() + count * COLUMNS * Double.BYTES;
+        for (int i = 0; i < count; i++) {
+            int type = in.get(types + i);
+            if (type < 0 || type >= MobType.values().length) {
+                throw new IOException("bad enemy type " + type);
+            }
+        }
+        in.position(types + count);
+    }
+
+    /**
+     * the double columns in the order writeTo writes them
+     */
+    private double[][] columns() {
+        return new double[][]{x, y, prevX, prevY, velX, velY, minVelX, maxVelX, minVelY, maxVelY, width, height, hp};
+    }
+
+    /**
+     * removes every entity
+     */
+    public void clear() {
+        for (int i = size - 1; i >= 0; i--) {
+            remove(i);
+        }
+    }
+
+    /**
+     * takes a free slot, or makes a new one
+     */
+    private int newSlot() {
+        if (freeCount > 0) {
+            return freeSlots[--freeCount];
+        }
+        if (slotCount == slotIndex.length) {
+            int capacity = slotCount * 2;
+            slotIndex = Arrays.copyOf(slotIndex, capacity);
+            slotGeneration = Arrays.copyOf(slotGeneration, capacity);
+            freeSlots = Arrays.copyOf(freeSlots, capacity);
+        }
+        return slotCount++;
+    }
+
+    /**
+     * frees the handle of the entity at index i so it no longer finds anything
+     */
+    private void release(int i) {
+        int slot = handles[i] & SLOT_MASK;
+        slotGeneration[slot] = (slotGeneration[slot] + 1) & GENERATION_MASK;
+        freeSlots[freeCount++] = slot;
+    }
+
+    /**
+     * copies entity from into index to (overwriting it) and points its handle at the new index
+     */
+    private void move(int from, int to) {
+        x[to] = x[from];
+        y[to] = y[from];
+        prevX[to] = prevX[from];
+        prevY[to] = prevY[from];
+        velX[to] = velX[from];
+        velY[to] = velY[from];
+        minVelX[to] = minVelX[from];
+        maxVelX[to] = maxVelX[from];
+        minVelY[to] = minVelY[from];
+        maxVelY[to] = maxVelY[from];
+        width[to] = width[from];
+        height[to] = height[from];
+        hp[to] = hp[from];
+        type[to] = type[from];
+        views[to] = views[from];
+        handles[to] = handles[from];
+        slotIndex[handles[to] & SLOT_MASK] = to;
+    }
+
+    private void grow(int capacity) {
+        x = Arrays.copyOf(x, capacity);
+        y = Arrays.copyOf(y, capacity);
+        prevX = Arrays.copyOf(prevX, capacity);
+        prevY = Arrays.copyOf(prevY, capacity);
+        velX = Arrays.copyOf(velX, capacity);
+        velY = Arrays.copyOf(velY, capacity);
+        minVelX = Arrays.copyOf(minVelX, capacity);
+        maxVelX = Arrays.copyOf(maxVelX, capacity);
+        minVelY = Arrays.copyOf(minVelY, capacity);
+        maxVelY = Arrays.copyOf(maxVelY, capacity);
+        width = Arrays.copyOf(width, capacity);
+        height = Arrays.copyOf(height, capacity);
+        hp = Arrays.copyOf(hp, capacity);
+        type = Arrays.copyOf(type, capacity);
+        views = Arrays.copyOf(views, capacity);
+        handles = Arrays.copyOf(handles, capacity);
+    }
+}
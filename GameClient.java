@@ -0,0 +1,246 @@
+package org.headroyce.lross2024;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Plays a game that runs on a GameServer: sends input to it and turns the snapshots it sends back into
+ * RenderSnapshots, published through a TripleBuffer just as a SimulationThread publishes them, so the game is drawn
+ * the same way. This thread does all the talking to the server: press, release and the rest only queue their message
+ * and wake it, so the JavaFX thread never waits on the socket.
+ */
+public class GameClient extends Thread {
+
+    // Room a message needs in out before it is taken off the queue
+    private static final int MESSAGE_ROOM = 32;
+
+    private final SocketChannel channel;
+    private final Selector selector;
+    private final SelectionKey key;
+    private final TripleBuffer<RenderSnapshot> snapshots;
+    private final SnapshotDecoder decoder;
+
+    // Messages waiting for this thread (type, a and b, as send takes them), and what it has not written yet
+    private final ConcurrentLinkedQueue<long[]> queued;
+    private final ByteBuffer out;
+    private volatile boolean running;
+    private volatile long bytesReceived;
+    private double width, height;
+
+    /**
+     * connects to a server
+     * @param address the server's address
+     * @param snapshots where to publish what the game looks like after each snapshot
+     * @throws IOException if the server cannot be reached
+     */
+    public GameClient(InetSocketAddress address, TripleBuffer<RenderSnapshot> snapshots) throws IOException {
+        super("client");
+        setDaemon(true);
+        channel = SocketChannel.open(address);
+        channel.socket().setTcpNoDelay(true);
+        channel.configureBlocking(false);
+        selector = Selector.open();
+        key = channel.register(selector, SelectionKey.OP_READ);
+        this.snapshots = snapshots;
+        decoder = new SnapshotDecoder();
+        queued = new ConcurrentLinkedQueue<>();
+        out = ByteBuffer.allocate(4096).order(ByteOrder.LITTLE_ENDIAN);
+        running = true;
+    }
+
+    /**
+     * reads host:port (or just host, on NetProtocol.DEFAULT_PORT)
+     * @param text the address
+     * @return the address
+     */
+    public static InetSocketAddress parseAddress(String text) {
+        int colon = text.lastIndexOf(':');
+        if (colon < 0) {
+            return new InetSocketAddress(text, NetProtocol.DEFAULT_PORT);
+        }
+        return new InetSocketAddress(text.substring(0, colon), Integer.parseInt(text.substring(colon + 1)));
+    }
+
+    /**
+     * Get the number of bytes the server has sent so far
+     * @return the bytes received
+     */
+    public long getBytesReceived() {
+        return bytesReceived;
+    }
+
+    /**
+     * Get the number of the last snapshot received
+     * @return the snapshot's sequence number
+     */
+    public long getSnapshots() {
+        return decoder.getSequence();
+    }
+
+    /**
+     * sends a force being applied
+     * @param direction the direction of the force
+     */
+    public void press(GameEngine.DIRECTION direction) {
+        send(NetProtocol.PRESS, direction.ordinal(), -1);
+    }
+
+    /**
+     * sends a force being removed
+     * @param direction the direction of the force
+     */
+    public void release(GameEngine.DIRECTION direction) {
+        send(NetProtocol.RELEASE, direction.ordinal(), -1);
+    }
+
+    /**
+     * sends every force being removed
+     */
+    public void releaseAll() {
+        send(NetProtocol.RELEASE_ALL, -1, -1);
+    }
+
+    /**
+     * Pause or unpause the game on the server
+     * @param paused true to pause, false otherwise
+     */
+    public void pause(boolean paused) {
+        send(NetProtocol.PAUSE, paused ? 1 : 0, -1);
+    }
+
+    /**
+     * asks the server to reset the game
+     */
+    public void requestReset() {
+        send(NetProtocol.RESET, -1, -1);
+    }
+
+    /**
+     * Changes the size of the play field on the server, if it is different
+     * @param width the new width
+     * @param height the new height
+     */
+    public synchronized void setSize(double width, double height) {
+        if (width == this.width && height == this.height) {
+            return;
+        }
+        this.width = width;
+        this.height = height;
+        send(NetProtocol.SIZE, Math.max(1, Math.round(width)), Math.max(1, Math.round(height)));
+    }
+
+    /**
+     * closes the connection, which stops the thread
+     */
+    public void shutdown() {
+        running = false;
+        selector.wakeup();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // Closing anyway
+        }
+    }
+
+    @Override
+    public void run() {
+        ByteBuffer in = ByteBuffer.allocateDirect(256 * 1024).order(ByteOrder.LITTLE_ENDIAN);
+        try {
+            while (running) {
+                selector.select();
+                selector.selectedKeys().clear();
+                int read = channel.read(in);
+                if (read < 0) {
+                    break;
+                }
+                bytesReceived += read;
+                in.flip();
+                boolean applied = false;
+                for (int length = NetProtocol.frameLength(in); length >= 0; length = NetProtocol.frameLength(in)) {
+                    int end = in.position() + NetProtocol.FRAME_HEADER + length;
+                    int limit = in.limit();
+                    in.position(in.position() + NetProtocol.FRAME_HEADER);
+                    in.limit(end);
+                    byte type = in.get();
+                    if (type != NetProtocol.SNAPSHOT) {
+                        throw new IOException("unknown message " + type);
+                    }
+                    decoder.apply(in);
+                    applied = true;
+                    in.limit(limit);
+                    in.position(end);
+                }
+                in.compact();
+                if (!in.hasRemaining()) {
+                    throw new IOException("message too big");
+                }
+
+                // Everything that came in at once is drawn as one snapshot
+                if (applied) {
+                    RenderSnapshot snapshot = snapshots.back();
+                    decoder.fill(snapshot, System.nanoTime());
+                    snapshots.publish();
+                    put(NetProtocol.ACK, decoder.getSequence(), -1);
+                }
+
+                long[] message;
+                while (out.remaining() >= MESSAGE_ROOM && (message = queued.poll()) != null) {
+                    put((byte) message[0], message[1], message[2]);
+                }
+                flush();
+            }
+        } catch (IOException e) {
+            if (running) {
+                System.err.println("Lost the server: " + e.getMessage());
+            }
+        }
+        running = false;
+        try {
+            selector.close();
+        } catch (IOException e) {
+            // Closing anyway
+        }
+    }
+
+    /**
+     * queues one message for this thread to write to the server (a or b of -1 are left out)
+     */
+    private void send(byte type, long a, long b) {
+        if (!running) {
+            return;
+        }
+        queued.offer(new long[]{type, a, b});
+        selector.wakeup();
+    }
+
+    /**
+     * adds one message to what is waiting to be written (only from this thread)
+     */
+    private void put(byte type, long a, long b) {
+        int frame = NetProtocol.beginFrame(out, type);
+        if (a >= 0) {
+            NetProtocol.putVarint(out, a);
+        }
+        if (b >= 0) {
+            NetProtocol.putVarint(out, b);
+        }
+        NetProtocol.endFrame(out, frame);
+    }
+
+    /**
+     * writes as much as the socket takes, and waits to be writable if there is more
+     */
+    private void flush() throws IOException {
+        out.flip();
+        channel.write(out);
+        boolean left = out.hasRemaining() || !queued.isEmpty();
+        out.compact();
+        key.interestOps(left ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+    }
+}
@@ -0,0 +1,1054 @@
+package org.headroyce.lross2024;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * The simulation of our game: spawning, movement, walls, collisions and scoring. It has nothing to do with
+ * JavaFX, so it can run without a window and as fast as it is stepped. GameLogic runs it on a SimulationThread
+ * and draws it.
+ */
+public class GameEngine {
+
+    //enum which contains all directional elements
+    public enum DIRECTION {
+        LEFT,
+        UP,
+        RIGHT,
+        DOWN,
+        STOP,
+        NONE;
+
+        // This direction's bit in a force mask
+        public final int bit = 1 << ordinal();
+    }
+
+    // The game step in milliseconds
+    public static final int GAME_STEP_TIMER = 17;
+
+    // No limit on the number of enemies (see setSpawnThrottle)
+    public static final int NO_CAP = Integer.MAX_VALUE;
+
+    // Most steps run by one call to step, and the longest time step will catch up at all
+    private static final int MAX_CATCH_UP_STEPS = 5;
+    private static final double MAX_STEP_TIME = 250;
+
+    // Keep enemies in spawn order when removing (so newer ones keep drawing on top), or fill holes from the end
+    // (-Dgame.compaction=swap)
+    private static final boolean KEEP_ORDER = !"swap".equalsIgnoreCase(System.getProperty("game.compaction"));
+
+    private static final byte SPIKED_WALL_TAG = (byte) MobType.SPIKED_WALL.ordinal();
+
+    // Which broadphase finds the mobs to check for collisions: brute, grid or sap (-Dgame.broadphase=sap)
+    private static final String BROADPHASE = System.getProperty("game.broadphase", "grid");
+    // Check the broadphase against brute force every tick (-Dgame.broadphase.verify=true)
+    private static final boolean VERIFY_BROADPHASE = Boolean.getBoolean("game.broadphase.verify");
+
+    private boolean gameOver;
+
+    private GameRandom rand;
+    private long seed;
+
+    // Game time (milliseconds) that has passed but has not been simulated yet
+    private double accumulator;
+    private long tick;
+
+    // Where input comes from, asked once at the start of every tick (can be null)
+    private InputSource input;
+    private boolean polling;
+
+    // Gets every input and size change so the game can be replayed (can be null)
+    private InputRecorder recorder;
+    // Gets every finished game (can be null)
+    private Leaderboard leaderboard;
+
+    // The player
+    private Ball player;
+    private double prevPlayerX, prevPlayerY;
+    // Forces held down, one DIRECTION.bit each
+    private int forcesOnPlayer;
+
+    private int TIME_ELAPSED = 0;
+
+    private static final int PLAYER_FLASH_TIME = 500;
+    private static final int PLAYER_SCORING_TIME = 1000;
+    private static final int ENEMY_DIRECTION_PROBABILITY = 5;
+
+    // Every game timer: the scoring clock, the player's flash and the spawn sources
+    private TimingWheel timers;
+    private TimerListener timerListener;
+    private static final int SCORING_TIMER = 0;
+    private static final int FLASH_TIMER = 1;
+    private static final int SPAWN_TIMER = 2;
+    private int flashTimer = TimingWheel.NO_TIMER;
+
+    // What spawns and when, the sources due this tick, and the last enemy each unique entry spawned
+    private SpawnTable spawns;
+    private int[] dueSources;
+    private int dueCount;
+    private int[] uniqueSpawns;
+    // Percent of the table's chances spawns happen at, and no spawns while there are this many enemies
+    private int spawnPercent = 100;
+    private int enemyCap = NO_CAP;
+
+    // Enemy Elements
+    private EntityStore enemies;
+    private MobPools pools;
+    private EnemyCuller culler;
+    private EnemyUpdater updater;
+
+    // Where each tick's time goes, and how long the last tick took
+    private TickProfiler profiler;
+    private long tickNanos;
+
+    // Collision candidates
+    private Broadphase broadphase;
+    private PairBuffer pairs;
+    // Top left corner of every enemy's bounding box, for the broadphase
+    private double[] boxLeft, boxTop, boxWidth, boxHeight;
+    // Where everything ends the step and when it first hit something, while the pairs respond
+    private Narrowphase.Pass narrowphase;
+
+    // Width and height of the play field
+    private double width, height;
+
+    // Bytes saveState writes before the timers, for the player, and besides the timers and the enemies in all
+    private static final int GAME_BYTES = 3 * Long.BYTES + 3 * Double.BYTES + 6 * Integer.BYTES;
+    private static final int PLAYER_BYTES = 12 * Double.BYTES + Integer.BYTES;
+    private static final int STATE_BYTES = GAME_BYTES + PLAYER_BYTES + 2 * Integer.BYTES;
+
+    /**
+     * new engine with a random seed
+     * @param width width of the play field
+     * @param height height of the play field
+     */
+    public GameEngine(double width, double height){
+        this(width, height, new Random().nextLong());
+    }
+
+    /**
+     * new engine spawning from the game.spawns table (see SpawnTable.configured)
+     * @param width width of the play field
+     * @param height height of the play field
+     * @param seed seed of the random numbers used for spawning and steering
+     */
+    public GameEngine(double width, double height, long seed){
+        this(width, height, seed, SpawnTable.configured());
+    }
+
+    /**
+     * new engine which makes player and enemies and resets them. two engines with the same seed, size, spawn
+     * table and input (at the same ticks) play the same game.
+     * @param width width of the play field
+     * @param height height of the play field
+     * @param seed seed of the random numbers used for spawning and steering
+     * @param spawns what spawns and when (cannot be null)
+     */
+    public GameEngine(double width, double height, long seed, SpawnTable spawns){
+        if( spawns == null ){
+            throw new IllegalArgumentException("spawns cannot be null");
+        }
+        rand = new GameRandom(seed);
+        this.spawns = spawns;
+        dueSources = new int[spawns.getSources().length];
+        uniqueSpawns = new int[spawns.getUniqueCount()];
+        timers = new TimingWheel(TimingWheel.DEFAULT_SLOTS);
+        timerListener = new TimerListener();
+
+        setSize(width, height);
+
+        player = new Ball();
+        enemies = new EntityStore(256);
+        pools = new MobPools(MobPools.DEFAULT_CAP);
+        pools.fill(MobPools.DEFAULT_FILL);
+        culler = new EnemyCuller();
+        updater = new EnemyUpdater(EnemyUpdater.DEFAULT_THRESHOLD);
+        profiler = new TickProfiler();
+
+        broadphase = Broadphase.create(BROADPHASE);
+        if (VERIFY_BROADPHASE) {
+            broadphase = new CheckedBroadphase(broadphase);
+        }
+        pairs = new PairBuffer();
+        narrowphase = new Narrowphase.Pass();
+        boxLeft = new double[256];
+        boxTop = new double[256];
+        boxWidth = new double[256];
+        boxHeight = new double[256];
+
+        reset(seed);
+    }
+
+    /**
+     * Changes the size of the play field
+     * @param width the new width
+     * @param height the new height
+     */
+    public void setSize(double width, double height){
+        width = Math.abs(width);
+        height = Math.abs(height);
+        if( recorder != null && (width != this.width || height != this.height) ){
+            recorder.resize(inputTick(), width, height);
+        }
+        this.width = width;
+        this.height = height;
+    }
+
+    /**
+     * Get the width of the play field
+     * @return the width
+     */
+    public double getWidth(){
+        return width;
+    }
+
+    /**
+     * Get the height of the play field
+     * @return the height
+     */
+    public double getHeight(){
+        return height;
+    }
+
+    /**
+     * Set where input comes from. the source is asked once at the start of every tick, before forces are applied.
+     * @param input the input source, or null for none (applyForce/removeForce still work)
+     */
+    public void setInputSource(InputSource input){
+        this.input = input;
+    }
+
+    /**
+     * Set what records the game. recording starts at the next reset, and each game is finished (and saved) when
+     * it ends, at the next reset or by finishRecording.
+     * @param recorder the recorder, or null to stop recording
+     */
+    public void setRecorder(InputRecorder recorder){
+        this.recorder = recorder;
+    }
+
+    /**
+     * Set where finished games go. each game is added as it ends, and adding never waits on the disk
+     * @param leaderboard the leaderboard, or null for none
+     */
+    public void setLeaderboard(Leaderboard leaderboard){
+        this.leaderboard = leaderboard;
+    }
+
+    /**
+     * finishes the game being recorded, if there is one
+     */
+    public void finishRecording(){
+        if( recorder != null ){
+            recorder.finish(tick);
+        }
+    }
+
+    /**
+     * Get the seed the current game was started with
+     * @return the seed passed to the last reset
+     */
+    public long getSeed(){
+        return seed;
+    }
+
+    /**
+     * the tick input given right now takes effect on: this one while the input source is being polled, otherwise
+     * the next one
+     */
+    private long inputTick(){
+        return polling ? tick : tick + 1;
+    }
+
+    /**
+     * reset's player attributes, clears player forces and enemies array, sets gameover boolean false. runs at beginning
+     * of program or when reset button used. the new game's seed comes from the old game's random numbers.
+     */
+    public void reset(){
+        reset(rand.nextLong());
+    }
+
+    /**
+     * starts a new game (see reset()) with its own seed, so it plays the same as any other game reset with that seed
+     * at the same size and given the same input
+     * @param seed seed of the random numbers used for spawning and steering
+     */
+    public void reset(long seed){
+        finishRecording();
+        this.seed = seed;
+        rand.setSeed(seed);
+
+        player.x = 200;
+        player.y = 400;
+        player.setRadius(10);
+
+        prevPlayerX = player.x;
+        prevPlayerY = player.y;
+
+        player.velX = player.velY = 0;
+        player.setVelocityBoundX(-7, 7);
+        player.setVelocityBoundY(-7,7);
+
+
+        player.hp = 3;
+        while( enemies.size() > 0 ){
+            pools.release(enemies.remove(enemies.size() - 1));
+        }
+        forcesOnPlayer = 0;
+
+        Arrays.fill(uniqueSpawns, EntityStore.NO_HANDLE);
+
+        gameOver = false;
+        player.score = 0;
+        accumulator = 0;
+
+        tick = 0;
+        TIME_ELAPSED = 0;
+        timers.clear();
+        flashTimer = TimingWheel.NO_TIMER;
+        int scoring = ticksFor(PLAYER_SCORING_TIME);
+        timers.schedule(scoring, scoring, SCORING_TIMER, 0);
+        SpawnTable.Source[] sources = spawns.getSources();
+        for( int i = 0; i < sources.length; i++ ){
+            timers.schedule(ticksFor(sources[i].first), ticksFor(sources[i].every), SPAWN_TIMER, i);
+        }
+
+        if( recorder != null ){
+            recorder.start(seed, width, height);
+            if( spawnPercent != 100 || enemyCap != NO_CAP ){
+                recorder.throttle(0, spawnPercent, enemyCap);
+            }
+        }
+    }
+
+    /**
+     * Set how much the game spawns, to take load off a machine that cannot keep up. the game keeps it through
+     * resets, and it is recorded like input.
+     * @param percent the percent of the spawn table's chances spawns happen at (0 to 100)
+     * @param cap no enemies spawn while there are this many, or NO_CAP
+     */
+    public void setSpawnThrottle(int percent, int cap){
+        percent = Math.max(0, Math.min(100, percent));
+        cap = Math.max(0, cap);
+        if( recorder != null && (percent != spawnPercent || cap != enemyCap) ){
+            recorder.throttle(inputTick(), percent, cap);
+        }
+        spawnPercent = percent;
+        enemyCap = cap;
+    }
+
+    /**
+     * Get the percent of the spawn table's chances spawns happen at
+     * @return 100 unless spawns are throttled
+     */
+    public int getSpawnPercent(){
+        return spawnPercent;
+    }
+
+    /**
+     * Get the number of enemies spawning stops at
+     * @return the cap, or NO_CAP
+     */
+    public int getEnemyCap(){
+        return enemyCap;
+    }
+
+    /**
+     * if the player lives is <= 0, returns boolean true.
+     * @return gameOver boolean if game ends.
+     */
+    public boolean isGameOver(){
+        return gameOver;
+    }
+
+    /**
+     * advances the game by some amount of time in fixed ticks of GAME_STEP_TIMER. time that does not fill a whole
+     * tick is kept for the next call. at most MAX_CATCH_UP_STEPS ticks run per call; anything more is dropped
+     * so a slow machine falls behind instead of spiralling. nothing happens once the game is over.
+     * @param dtMillis how much time (milliseconds) has passed since the last call
+     * @return how many ticks were run
+     */
+    public int step(double dtMillis){
+        if( dtMillis > MAX_STEP_TIME ){
+            dtMillis = MAX_STEP_TIME;
+        }
+        if( dtMillis > 0 ){
+            accumulator += dtMillis;
+        }
+
+        int steps = 0;
+        while( accumulator >= GAME_STEP_TIMER && steps < MAX_CATCH_UP_STEPS && !gameOver ){
+            tick();
+            accumulator -= GAME_STEP_TIMER;
+            steps++;
+        }
+
+        // Still behind after catching up as much as allowed: drop the backlog
+        if( accumulator >= GAME_STEP_TIMER ){
+            accumulator %= GAME_STEP_TIMER;
+        }
+        return steps;
+    }
+
+    /**
+     * Get how far the time given to step is between the last tick and the next one
+     * @return a value from 0 (last tick) to just under 1 (next tick)
+     */
+    public double getInterpolation(){
+        return accumulator / GAME_STEP_TIMER;
+    }
+
+    /**
+     * Get how many ticks have been run since the last reset
+     * @return the number of ticks
+     */
+    public long getTick(){
+        return tick;
+    }
+
+    /**
+     * Get the player
+     * @return the player's ball
+     */
+    public Ball getPlayer(){
+        return player;
+    }
+
+    /**
+     * Get the x position of the player before the last tick
+     * @return the previous x position of the player
+     */
+    public double getPrevPlayerX(){
+        return prevPlayerX;
+    }
+
+    /**
+     * Get the y position of the player before the last tick
+     * @return the previous y position of the player
+     */
+    public double getPrevPlayerY(){
+        return prevPlayerY;
+    }
+
+    /**
+     * Check if the player was hit recently (and should be drawn flashing)
+     * @return true for a short time after the player is hit
+     */
+    public boolean isPlayerFlashing(){
+        return timers.isScheduled(flashTimer);
+    }
+
+    /**
+     * Get the enemies
+     * @return the store holding every enemy
+     */
+    public EntityStore getEnemies(){
+        return enemies;
+    }
+
+    /**
+     * Get the profiler timing every tick
+     * @return the tick profiler
+     */
+    public TickProfiler getProfiler(){
+        return profiler;
+    }
+
+    /**
+     * Get how long the last tick took (0 when profiling is off, see TickProfiler)
+     * @return the time of the last tick in nanoseconds
+     */
+    public long getTickNanos(){
+        return tickNanos;
+    }
+
+    /**
+     * Get the wheel holding every game timer
+     * @return the timers
+     */
+    public TimingWheel getTimers(){
+        return timers;
+    }
+
+    /**
+     * Get the table the game spawns from
+     * @return the spawn table
+     */
+    public SpawnTable getSpawns(){
+        return spawns;
+    }
+
+    /**
+     * Get the pools new enemies come from
+     * @return the enemy pools
+     */
+    public MobPools getPools(){
+        return pools;
+    }
+
+    /**
+     * runs one game step (GAME_STEP_TIMER milliseconds of game time): updates the timers and entities,
+     * checks for events and runs event handlers. does nothing once the game is over.
+     */
+    public void tick(){
+        if( gameOver ){
+            return;
+        }
+        tick++;
+        long tickStart = profiler.start();
+
+        if( input != null ){
+            polling = true;
+            input.poll(this, tick);
+            polling = false;
+        }
+        long time = profiler.mark(TickProfiler.Phase.INPUT, tickStart);
+
+        // Remember where everything was so frames between ticks can be drawn in between
+        prevPlayerX = player.x;
+        prevPlayerY = player.y;
+        enemies.savePositions();
+
+        // Fire the timers due this tick; spawn sources due together spawn in table order
+        dueCount = 0;
+        timers.advance(timerListener);
+        Arrays.sort(dueSources, 0, dueCount);
+        SpawnTable.Source[] sources = spawns.getSources();
+        for( int i = 0; i < dueCount; i++ ){
+            spawn(sources[dueSources[i]]);
+        }
+        time = profiler.mark(TickProfiler.Phase.SPAWN, time);
+
+        if( (forcesOnPlayer & DIRECTION.LEFT.bit) != 0 ){
+            player.velX--;
+        }
+        if( (forcesOnPlayer & DIRECTION.RIGHT.bit) != 0 ){
+            player.velX++;
+        }
+        if( (forcesOnPlayer & DIRECTION.UP.bit) != 0 ){
+            player.velY--;
+        }
+        if( (forcesOnPlayer & DIRECTION.DOWN.bit) != 0 ){
+            player.velY++;
+        }
+
+        if( (forcesOnPlayer & DIRECTION.STOP.bit) != 0 ){
+            player.velX -= Math.signum(player.velX);
+            player.velY -= Math.signum(player.velY);
+        }
+        time = profiler.mark(TickProfiler.Phase.FORCES, time);
+
+        // MOVE EVERYTHING
+        player.move();
+        steerBalls();
+
+        // Enemies move and bounce off the sides in one pass (in parallel when there are lots of them)
+        updater.update(enemies, width);
+        time = profiler.mark(TickProfiler.Phase.MOVE, time);
+
+        // CHECK WALLS ON EVERYTHING
+        boolean playerCollided = collideWalls(player);
+        if (playerCollided){
+            player.addHP(-1);
+        }
+        time = profiler.mark(TickProfiler.Phase.WALLS, time);
+
+        // CHECK BALL COLLISIONS ON EVERYTHING
+        findCollisionPairs();
+        narrowphase.begin(enemies, player, prevPlayerX, prevPlayerY);
+        int p = 0;
+        for( int i = 0; i < enemies.size(); i++ ) {
+            for( ; p < pairs.size() && pairs.first(p) == i; p++ ) {
+                Narrowphase.collide(enemies, narrowphase, i, pairs.second(p));
+            }
+            boolean enemyRemove = Narrowphase.hitPlayer(enemies, narrowphase, i, player);
+            playerCollided =  enemyRemove || playerCollided;
+        }
+        narrowphase.finish(enemies, player);
+
+        if( playerCollided ){
+            // if player collides then lose life
+            player.addScore(-100);
+            if( player.getHP() <= 0 ) {
+                gameOver = true;
+                finishRecording();
+            }
+            timers.cancel(flashTimer);
+            flashTimer = timers.schedule(ticksFor(PLAYER_FLASH_TIME), 0, FLASH_TIMER, 0);
+        }
+
+        time = profiler.mark(TickProfiler.Phase.COLLISIONS, time);
+
+        // Score and remove enemies that went past the end of the window, and remove the dead ones
+        enemies.compact(culler, KEEP_ORDER);
+        profiler.mark(TickProfiler.Phase.REMOVAL, time);
+
+        // The score is final once the enemies that went off the end this tick are scored
+        if( gameOver && leaderboard != null ){
+            leaderboard.add(player.score, TIME_ELAPSED, tick, seed);
+        }
+        tickNanos = profiler.mark(TickProfiler.Phase.TICK, tickStart) - tickStart;
+    }
+
+    /**
+     * the number of ticks until a timer of some milliseconds runs out, counting it down by GAME_STEP_TIMER every
+     * tick until it is below zero
+     * @param millis the length of the timer
+     * @return how many ticks it lasts
+     */
+    static int ticksFor(int millis){
+        return Math.max(0, millis) / GAME_STEP_TIMER + 1;
+    }
+
+    /**
+     * rolls a source's number and spawns the first of its entries the roll is under (if any)
+     * @param source the source that fired
+     */
+    private void spawn(SpawnTable.Source source){
+        int chance = rand.nextInt(source.roll);
+        for( SpawnTable.Spawn spawn : source.spawns ){
+            if( chance < spawn.below * spawnPercent / 100 ){
+                for( int i = 0; i < spawn.burst; i++ ){
+                    spawn(spawn);
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * takes one enemy from its pool and starts it just above the top of the field as an entry says
+     * @param spawn the entry
+     */
+    private void spawn(SpawnTable.Spawn spawn){
+        if( enemies.size() >= enemyCap ){
+            return;
+        }
+        if( spawn.unique && enemies.indexOf(uniqueSpawns[spawn.uniqueSlot]) != EntityStore.NO_HANDLE ){
+            return;
+        }
+
+        Mob enemy = pools.acquire(spawn.type);
+        enemy.hp = spawn.hp;
+        boolean right = spawn.side && rand.nextBoolean();
+
+        if( spawn.radius > 0 ){
+            ((Ball)enemy).setRadius(spawn.radius);
+        }
+        if( spawn.widthPercent > 0 ){
+            enemy.setWidth((int)(rand.nextDouble() * (width * spawn.widthPercent / 100)));
+        }
+        else if( spawn.width > 0 ){
+            enemy.setWidth(spawn.width);
+        }
+        if( spawn.height > 0 ){
+            enemy.setHeight(spawn.height);
+        }
+
+        if( spawn.boundX != null ){
+            enemy.setVelocityBoundX(spawn.boundX[0], spawn.boundX[1]);
+        }
+        if( spawn.boundY != null ){
+            enemy.setVelocityBoundY(spawn.boundY[0], spawn.boundY[1]);
+        }
+        enemy.velX = between(spawn.minVelX, spawn.maxVelX);
+        enemy.velY = between(spawn.minVelY, spawn.maxVelY);
+
+        // Balls are drawn around their center, so they are kept a whole diameter in from the sides
+        boolean circle = spawn.type.isBall();
+        if( spawn.side ){
+            enemy.x = right ? width - enemy.getWidth() : 0;
+        }
+        else if( circle ){
+            int min = (int)enemy.getWidth();
+            int maxW = (int)(width-min+1);
+            enemy.x = rand.nextInt(Math.max(1, maxW-min+1))+min;
+        }
+        else {
+            enemy.x = rand.nextInt(Math.max(1, (int)width));
+        }
+        enemy.y = circle ? -enemy.getHeight() / 2 : -enemy.getHeight();  // off screen
+
+        int handle = enemies.add(enemy);
+        if( spawn.unique ){
+            uniqueSpawns[spawn.uniqueSlot] = handle;
+        }
+    }
+
+    /**
+     * a random whole number from min to max (no random number is used when they are the same)
+     */
+    private int between(int min, int max){
+        return min == max ? min : rand.nextInt(max - min + 1) + min;
+    }
+
+    private boolean collideWalls(Mob player){
+
+        boolean collided = false;
+
+        // Keep player with the window. Whatever part of the step went past a wall is reflected back off it, so the
+        // player ends up where it would be if it had bounced at the moment it hit, however far it moved
+
+        if( player == this.player ) {
+            if (player.y + player.getHeight() > height) {
+                player.y = reflect(player.y, height - player.getHeight(), 0);
+                player.bounceY();
+                collided = true;
+            }
+
+            if (player.y < 0) {
+                player.y = reflect(player.y, 0, height - player.getHeight());
+                player.bounceY();
+                collided = true;
+            }
+        }
+
+
+        if( player.x + player.getWidth() > width ){
+            player.x = reflect(player.x, width - player.getWidth(), 0);
+            player.bounceX();
+            collided = true;
+        }
+        if( player.x < 0 ){
+            player.x = reflect(player.x, 0, width - player.getWidth());
+            player.bounceX();
+            collided = true;
+        }
+
+        return collided;
+    }
+
+    /**
+     * reflects a position that went past a wall back off it
+     * @param position where the step left it
+     * @param wall the furthest it can go on that side
+     * @param other the furthest it can go on the other side; the reflection never goes past it
+     * @return where it is after bouncing
+     */
+    static double reflect(double position, double wall, double other){
+        double reflected = 2 * wall - position;
+        return wall < other ? Math.min(reflected, other) : Math.max(reflected, other);
+    }
+
+    /**
+     * every now and then turns a ball towards the player
+     */
+    private void steerBalls(){
+        double[] x = enemies.x, velX = enemies.velX;
+        byte[] type = enemies.type;
+        int count = enemies.size();
+        for( int i = 0; i < count; i++ ){
+            if( MobType.of(type[i]).isBall() ){
+                if( rand.nextInt(100) < ENEMY_DIRECTION_PROBABILITY) {
+                    double changeX = Math.signum(player.x - x[i]);
+                    velX[i] = changeX * Math.abs(velX[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * what the game timers do. spawn sources are only noted here and spawned after every timer has fired, so
+     * sources due on the same tick always spawn in the same order.
+     */
+    private class TimerListener implements TimingWheel.Listener {
+        @Override
+        public void fire(int timer, int kind, int arg){
+            if( kind == SCORING_TIMER ){
+                player.addScore(10);
+                TIME_ELAPSED++;
+            }
+            else if( kind == FLASH_TIMER ){
+                flashTimer = TimingWheel.NO_TIMER;
+            }
+            else if( kind == SPAWN_TIMER && arg < dueSources.length ){
+                dueSources[dueCount++] = arg;
+            }
+        }
+    }
+
+    /**
+     * the removal pass at the end of a tick. enemies past the bottom of the window give the player points and are
+     * damaged so they get removed (spiked walls cannot die, so they are removed directly). dead enemies go back
+     * to their pool.
+     */
+    private class EnemyCuller implements EntityStore.RemovalFilter {
+        @Override
+        public boolean shouldRemove(int i){
+            if( enemies.y[i] > height ){
+                Mob enemy = enemies.view(i);
+                player.addScore(enemy.scored());
+                enemy.damage();
+                enemy.damage();
+                enemies.commit(i);
+
+                if( enemies.type[i] == SPIKED_WALL_TAG ){
+                    return true;
+                }
+            }
+            return enemies.hp[i] <= 0;
+        }
+
+        @Override
+        public void removed(Mob mob){
+            pools.release(mob);
+        }
+    }
+
+    /**
+     * fills pairs with the enemies whose swept boxes (everywhere they were during the tick) overlap.
+     */
+    private void findCollisionPairs(){
+        int count = enemies.size();
+        if( boxLeft.length < count ){
+            boxLeft = new double[Math.max(count, boxLeft.length * 2)];
+            boxTop = new double[boxLeft.length];
+            boxWidth = new double[boxLeft.length];
+            boxHeight = new double[boxLeft.length];
+        }
+        Narrowphase.sweptBoxes(enemies, boxLeft, boxTop, boxWidth, boxHeight);
+        broadphase.findPairs(boxLeft, boxTop, boxWidth, boxHeight, count, pairs);
+    }
+
+    /**
+     * Get the number of bytes saveState will write for the game as it is now
+     * @return the size of the game in a save state
+     */
+    public long stateBytes(){
+        return STATE_BYTES + timers.stateBytes() + EntityStore.bytesFor(enemies.size())
+                + (long)Integer.BYTES * uniqueSpawns.length;
+    }
+
+    /**
+     * writes the whole game at the buffer's position: seed and random numbers, timers, the player, forces and every
+     * enemy. loadState puts it back exactly, so the loaded game carries on the same way this one will.
+     * @param out where to write, with at least stateBytes() bytes left
+     */
+    public void saveState(ByteBuffer out){
+        out.putLong(seed);
+        out.putLong(rand.getState());
+        out.putLong(tick);
+
+        out.putDouble(accumulator);
+        out.putDouble(width);
+        out.putDouble(height);
+
+        out.putInt(gameOver ? 1 : 0);
+        out.putInt(TIME_ELAPSED);
+        out.putInt(flashTimer);
+        out.putInt(forcesOnPlayer);
+        out.putInt(spawnPercent);
+        out.putInt(enemyCap);
+        timers.writeTo(out);
+
+        out.putDouble(player.x);
+        out.putDouble(player.y);
+        out.putDouble(prevPlayerX);
+        out.putDouble(prevPlayerY);
+        out.putDouble(player.velX);
+        out.putDouble(player.velY);
+        out.putDouble(player.getMinVelocityX());
+        out.putDouble(player.getMaxVelocityX());
+        out.putDouble(player.getMinVelocityY());
+        out.putDouble(player.getMaxVelocityY());
+        out.putDouble(player.getRadius());
+        out.putDouble(player.hp);
+        out.putInt(player.score);
+
+        out.putInt(enemies.size());
+        enemies.writeTo(out);
+
+        // The last enemy each unique entry spawned, by where it is in the store (or -1 if it is gone)
+        out.putInt(uniqueSpawns.length);
+        for( int handle : uniqueSpawns ){
+            out.putInt(enemies.indexOf(handle));
+        }
+    }
+
+    /**
+     * replaces the whole game with one written by saveState. the game being recorded (if any) is finished, since
+     * input recorded after a load could not be replayed. the whole state is checked first, so if it is not a game
+     * nothing changes.
+     * @param in where to read from, at the start of the game
+     * @throws IOException if the buffer does not hold a whole game
+     */
+    public void loadState(ByteBuffer in) throws IOException {
+        checkState(in);
+        finishRecording();
+
+        seed = in.getLong();
+        rand.setState(in.getLong());
+        tick = in.getLong();
+
+        accumulator = in.getDouble();
+        width = in.getDouble();
+        height = in.getDouble();
+
+        gameOver = in.getInt() != 0;
+        TIME_ELAPSED = in.getInt();
+        flashTimer = in.getInt();
+        forcesOnPlayer = in.getInt();
+        spawnPercent = in.getInt();
+        enemyCap = in.getInt();
+        timers.readFrom(in);
+
+        player.x = in.getDouble();
+        player.y = in.getDouble();
+        prevPlayerX = in.getDouble();
+        prevPlayerY = in.getDouble();
+        player.velX = in.getDouble();
+        player.velY = in.getDouble();
+        double minX = in.getDouble();
+        player.setVelocityBoundX(minX, in.getDouble());
+        double minY = in.getDouble();
+        player.setVelocityBoundY(minY, in.getDouble());
+        player.setRadius(in.getDouble());
+        player.hp = in.getDouble();
+        player.score = in.getInt();
+
+        int count = in.getInt();
+        enemies.readFrom(in, count, pools::acquire, pools::release);
+
+        // A game saved with a different spawn table may have more or fewer unique entries than this one
+        Arrays.fill(uniqueSpawns, EntityStore.NO_HANDLE);
+        int saved = in.getInt();
+        for( int i = 0; i < saved; i++ ){
+            int index = in.getInt();
+            if( i < uniqueSpawns.length && index >= 0 && index < count ){
+                uniqueSpawns[i] = enemies.handleAt(index);
+            }
+        }
+    }
+
+    /**
+     * checks every count in a state written by saveState against what is left of the buffer, without moving it
+     * @throws IOException if the counts run past the end of the buffer or an enemy is not of any type
+     */
+    private static void checkState(ByteBuffer in) throws IOException {
+        ByteBuffer state = in.duplicate().order(in.order());
+        skip(state, GAME_BYTES, "the game");
+        TimingWheel.skipState(state);
+        skip(state, PLAYER_BYTES, "the player");
+        EntityStore.skipState(state, count(state, "enemy"));
+        int unique = count(state, "unique spawn");
+        if( (long)unique * Integer.BYTES > state.remaining() ){
+            throw new IOException("bad unique spawn count " + unique);
+        }
+    }
+
+    private static int count(ByteBuffer in, String what) throws IOException {
+        if( in.remaining() < Integer.BYTES ){
+            throw new IOException("the " + what + " count is cut short");
+        }
+        int count = in.getInt();
+        if( count < 0 ){
+            throw new IOException("bad " + what + " count " + count);
+        }
+        return count;
+    }
+
+    private static void skip(ByteBuffer in, int bytes, String what) throws IOException {
+        if( in.remaining() < bytes ){
+            throw new IOException(what + " is cut short");
+        }
+        in.position(in.position() + bytes);
+    }
+
+    /**
+     * applies more force if button is held.
+     * @param direction direction that the force is applied to.
+     */
+    public void applyForce( DIRECTION direction ) {
+        if( recorder != null ){
+            recorder.force(inputTick(), direction, true);
+        }
+        forcesOnPlayer |= direction.bit;
+    }
+
+    /**
+     * applies less force if button is released.
+     * @param direction direction that the force is released from.
+     */
+    public void removeForce(DIRECTION direction){
+        if( recorder != null ){
+            recorder.force(inputTick(), direction, false);
+        }
+        forcesOnPlayer &= ~direction.bit;
+    }
+
+    /**
+     * Get the forces being applied
+     * @return a mask with the DIRECTION.bit of every force held down
+     */
+    public int getForces(){
+        return forcesOnPlayer;
+    }
+
+    /**
+     * gets the total time elapsed (in seconds).
+     * @return int seconds that the game has lasted for.
+     */
+    public int getTimeElapsed(){
+        return TIME_ELAPSED;
+    }
+
+    /**
+     * gets final score of player (run when gameOver is true).
+     * @return player's score (int)
+     */
+    public int getFinalScore(){
+        return player.score;
+    }
+
+    /**
+     * not required, but a snarky death message depending on how much your final score was.
+     * @return string message of the snarky comment.
+     */
+    public String deathMessage(){
+        return deathMessage(player.score);
+    }
+
+    /**
+     * the snarky death message for a final score.
+     * @param score the final score
+     * @return string message of the snarky comment.
+     */
+    public static String deathMessage(int score){
+        if (score < 0){
+            return "Were you even trying???";
+        }
+        if (score > 0 && score <= 1000){
+            return "Have you ever played a video game before?";
+        }
+        if (score > 1000 && score <= 5000){
+            return "You call THAT an attempt? Wow.";
+        }
+        if (score > 5000 && score <= 10000){
+            return "That was painful to watch.";
+        }
+        if (score > 10000 && score <= 15000){
+            return "You're getting there... not for a while though.";
+        }
+        if (score > 15000 && score <= 20000){
+            return "Ok that was decent. You're not horrible at this.";
+        }
+        if (score > 20000 && score <= 30000){
+            return "That was a good run, but it was all luck.";
+        }
+        if (score > 30000 && score <= 50000){
+            return "Dang that was pretty good. You'll probably fail next time though.";
+        }
+        if (score > 50000 && score <= 75000){
+            return "Are you cheating? There's no way you did that well...";
+        }
+        if (score > 75000 && score <= 100000){
+            return "You're godlike!!! Too bad that was a one-time thing.";
+        }
+        if (score < 100000){
+            return "WOW YOU ARE AMAZING!!! YOUR SKILL GOES UNMATCHED!";
+        }
+        return "rtn";
+    }
+}
@@ -1,6 +1,7 @@
 package org.headroyce.lross2024;
 
 import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
 import javafx.event.ActionEvent;
 import javafx.event.EventHandler;
 import javafx.geometry.Insets;
@@ -25,14 +26,26 @@ public class GameGUI extends StackPane {
 
     private GameLogic logic;
 
+    // The play field only carries moving entities, the score and lives are on their own layer above it
     private Canvas gameArea;
+    private Canvas hudArea;
+    // Where the tick profile goes when it is shown (F3)
+    private Canvas profilerArea;
+    private boolean showProfiler;
+    // The resolution the play field is drawn at (see GameLogic.getResolution)
+    private double resolution = 1;
     private AnimationTimer animTimer;
+    // When the first frame was drawn, for game.quit
+    private long firstFrame;
 
+    // The game over screen is only made the first time a game ends (see showGameover)
+    private VBox gameoverScreen;
     private Button reset;
 
     private Label message;
     private Label score;
     private Label time;
+    private Label rank;
     private Label gameover;
 
 
@@ -45,10 +58,21 @@ public class GameGUI extends StackPane {
         gameArea.heightProperty().bind(this.heightProperty());
         gameArea.widthProperty().bind(this.widthProperty());
 
+        hudArea = new Canvas();
+        hudArea.heightProperty().bind(this.heightProperty());
+        hudArea.widthProperty().bind(this.widthProperty());
+        hudArea.setMouseTransparent(true);
+
+        profilerArea = new Canvas();
+        profilerArea.heightProperty().bind(this.heightProperty());
+        profilerArea.widthProperty().bind(this.widthProperty());
+        profilerArea.setMouseTransparent(true);
+
         animTimer = new AnimTimer();
         logic = new GameLogic(gameArea.getWidth(), gameArea.getHeight());
+        Startup.mark("logic");
 
-        this.getChildren().addAll(gameArea, gameoverScreen());
+        this.getChildren().addAll(gameArea, hudArea, profilerArea);
     }
 
     /**
@@ -63,6 +87,14 @@ public class GameGUI extends StackPane {
         }
     }
 
+    /**
+     * stops the animation and the game for good (when the window closes)
+     */
+    public void shutdown(){
+        animTimer.stop();
+        logic.shutdown();
+    }
+
     /**
      * Pause/unpause teh animation and game timer
      * @param setAnimPause true to pause the animation timer
@@ -79,20 +111,32 @@ public class GameGUI extends StackPane {
      */
     public void handleKeyPress(KeyEvent event){
         if( event.getCode() == KeyCode.A){
-            logic.applyForce(GameLogic.DIRECTION.LEFT);
+            logic.applyForce(GameEngine.DIRECTION.LEFT);
         }
         if( event.getCode() == KeyCode.D ) {
-            logic.applyForce(GameLogic.DIRECTION.RIGHT);
+            logic.applyForce(GameEngine.DIRECTION.RIGHT);
         }
         if( event.getCode() == KeyCode.W ) {
-            logic.applyForce(GameLogic.DIRECTION.UP);
+            logic.applyForce(GameEngine.DIRECTION.UP);
         }
         if( event.getCode() == KeyCode.S ) {
-            logic.applyForce(GameLogic.DIRECTION.DOWN);
+            logic.applyForce(GameEngine.DIRECTION.DOWN);
         }
 
         if( event.getCode() == KeyCode.SPACE ){
-            logic.applyForce(GameLogic.DIRECTION.STOP);
+            logic.applyForce(GameEngine.DIRECTION.STOP);
+        }
+
+        if( event.getCode() == KeyCode.F3 ){
+            showProfiler = !showProfiler;
+        }
+
+        // Quick save and load
+        if( event.getCode() == KeyCode.F5 ){
+            logic.saveState();
+        }
+        if( event.getCode() == KeyCode.F9 ){
+            logic.loadState();
         }
     }
 
@@ -102,21 +146,52 @@ public class GameGUI extends StackPane {
      */
     public void handleKeyRelease(KeyEvent event){
         if( event.getCode() == KeyCode.A){
-            logic.removeForce(GameLogic.DIRECTION.LEFT);
+            logic.removeForce(GameEngine.DIRECTION.LEFT);
         }
         if( event.getCode() == KeyCode.D ) {
-            logic.removeForce(GameLogic.DIRECTION.RIGHT);
+            logic.removeForce(GameEngine.DIRECTION.RIGHT);
         }
         if( event.getCode() == KeyCode.W ) {
-            logic.removeForce(GameLogic.DIRECTION.UP);
+            logic.removeForce(GameEngine.DIRECTION.UP);
         }
         if( event.getCode() == KeyCode.S ) {
-            logic.removeForce(GameLogic.DIRECTION.DOWN);
+            logic.removeForce(GameEngine.DIRECTION.DOWN);
         }
 
         if( event.getCode() == KeyCode.SPACE ){
-            logic.removeForce(GameLogic.DIRECTION.STOP);
+            logic.removeForce(GameEngine.DIRECTION.STOP);
+        }
+    }
+
+    /**
+     * draws the play field on a canvas smaller than the window by some scale, stretched back up to fill it
+     * @param resolution the scale (1 is full resolution)
+     */
+    private void setResolution(double resolution){
+        this.resolution = resolution;
+        gameArea.widthProperty().bind(this.widthProperty().multiply(resolution));
+        gameArea.heightProperty().bind(this.heightProperty().multiply(resolution));
+        gameArea.setScaleX(1 / resolution);
+        gameArea.setScaleY(1 / resolution);
+    }
+
+    /**
+     * shows or hides the game over screen, making it the first time it is shown so starting up does not wait on it
+     * @param show true to show it
+     */
+    private void showGameover(boolean show){
+        if( gameoverScreen == null ){
+            if( !show ){
+                return;
+            }
+            gameoverScreen = gameoverScreen();
+            this.getChildren().add(gameoverScreen);
         }
+        if( show ){
+            updateGraphics();
+            reset.toFront();
+        }
+        gameoverScreen.setVisible(show);
     }
 
     /**
@@ -126,6 +201,7 @@ public class GameGUI extends StackPane {
         GameGUI.this.score.setText("Final Score: " + logic.getFinalScore() + " points");
         GameGUI.this.time.setText("Time Elapsed: " + logic.getTimeElapsed() + " seconds");
         GameGUI.this.message.setText(logic.deathMessage());
+        GameGUI.this.rank.setText(logic.leaderboardMessage());
     }
     /**
      * makes new VBox with gameover screen child nodes.
@@ -147,13 +223,15 @@ public class GameGUI extends StackPane {
         reset.setOnAction(new ResetButton());
         score = new Label("Final Score: ");
         time = new Label("Time Elapsed: ");
+        rank = new Label("");
         rtn.setAlignment(Pos.CENTER);
 
-        rtn.getChildren().addAll(gameover, message, score, time, reset);
+        rtn.getChildren().addAll(gameover, message, score, time, rank, reset);
 
         rtn.setPadding(new Insets(20, 20, 20, 20));
         rtn.setMargin(score, new Insets(0, 20, 10, 20));
         rtn.setMargin(time, new Insets(0, 20, 10, 20));
+        VBox.setMargin(rank, new Insets(0, 20, 10, 20));
         rtn.setMargin(reset, new Insets(0, 20, 20, 20));
 
         return rtn;
@@ -170,28 +248,36 @@ public class GameGUI extends StackPane {
          */
         public void handle(long now) {
             GraphicsContext gc = gameArea.getGraphicsContext2D();
-
+            if( logic.getResolution() != resolution ){
+                setResolution(logic.getResolution());
+            }
 
             gc.clearRect(0,0, gameArea.getWidth(), gameArea.getHeight());
 
             if(logic.isGameOver()){
-                updateGraphics();
-                gameover.setVisible(true);
-                reset.setVisible(true);
-                message.setVisible(true);
-                score.setVisible(true);
-                time.setVisible(true);
-                reset.toFront();
+                logic.clearHud(hudArea);
+                showGameover(true);
             }
             else {
-                logic.render(gameArea);
-                gameover.setVisible(false);
-                reset.setVisible(false);
-                score.setVisible(false);
-                time.setVisible(false);
-                message.setVisible(false);
+                logic.render(gameArea, logic.getInterpolation(now));
+                logic.renderHud(hudArea);
+                showGameover(false);
             }
 
+            if( showProfiler ){
+                logic.renderProfiler(profilerArea, now);
+            }
+            else {
+                logic.clearProfiler(profilerArea);
+            }
+
+            if( firstFrame == 0 ){
+                firstFrame = now;
+                Startup.firstFrame();
+            }
+            else if( Startup.QUIT > 0 && now - firstFrame >= Startup.QUIT * 1e9 ){
+                Platform.exit();
+            }
         }
     }
 
@@ -208,11 +294,7 @@ public class GameGUI extends StackPane {
             pause(false);
             logic.pause(false);
             logic.reset();
-            reset.setVisible(false);
-            message.setVisible(false);
-            gameover.setVisible(false);
-            time.setVisible(false);
-            score.setVisible(false);
+            showGameover(false);
         }
     }
 
@@ -1,124 +1,335 @@
 package org.headroyce.lross2024;
 
-import javafx.animation.AnimationTimer;
 import javafx.scene.canvas.Canvas;
 import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.paint.Color;
-import javafx.scene.text.Text;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Random;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 
 /**
- * Represents the logic of our game
+ * Connects the game engine to JavaFX: the engine runs on its own SimulationThread, input is queued for it, and
+ * render draws the latest snapshot it published. all of the game rules live in GameEngine. with game.server set the
+ * game runs on a GameServer instead and a GameClient publishes the snapshots it sends.
  */
 public class GameLogic {
 
-    //enum which contains all directional elements
-    public enum DIRECTION {
-        LEFT,
-        UP,
-        RIGHT,
-        DOWN,
-        STOP,
-        NONE
-    }
-
     // The game step in milliseconds
-    public static final int GAME_STEP_TIMER = 17;
-    private GameTimer gameTimer;
-
-    private boolean gameOver;
-
-    private Random rand;
-    private double width40;
-
-    // The player
-    private Ball player;
-    private HashMap<DIRECTION, Boolean> forcesOnPlayer;
-
-    private SpikedWall enemy = null;
+    public static final int GAME_STEP_TIMER = GameEngine.GAME_STEP_TIMER;
+
+    private static final long STEP_NANOS = GAME_STEP_TIMER * 1000000L;
+
+    // Save every game into this directory (-Dgame.record=recordings) so it can be replayed
+    private static final String RECORD = System.getProperty("game.record");
+    // Play a recorded game instead (-Dgame.replay=recordings/game-1f3a.rec), as fast as it runs with
+    // -Dgame.replay.fast=true
+    private static final String REPLAY = System.getProperty("game.replay");
+    private static final boolean REPLAY_FAST = Boolean.getBoolean("game.replay.fast");
+    // Start from a save state or scenario (-Dgame.load=heavy.sav)
+    private static final String LOAD = System.getProperty("game.load");
+    // Where saveState and loadState save and load (-Dgame.save=quick.sav)
+    private static final Path SAVE = Paths.get(System.getProperty("game.save", "game.sav"));
+    // Play on a GameServer (-Dgame.server=localhost:7777)
+    private static final String SERVER = System.getProperty("game.server");
+    // Where finished games are kept for the leaderboard (-Dgame.scores=scores)
+    private static final Path SCORES = Paths.get(System.getProperty("game.scores", "scores"));
+
+    private GameEngine engine;
+    private SimulationThread simulation;
+    // Set when the game runs on a server, in which case there is no simulation thread
+    private GameClient client;
+    private TripleBuffer<RenderSnapshot> snapshots;
+    private QueuedInput input;
+    private GameRenderer renderer;
+    private Hud hud;
+    private ProfilerOverlay overlay;
+    // Lowers quality when the game cannot keep up; it only changes the engine when the engine is not replaying
+    private Governor governor;
+    private boolean replaying;
+    // Null when the game is replayed, played on a server or the scores cannot be opened, and until it is open
+    private volatile Leaderboard leaderboard;
+
+    // The snapshot this frame is drawn from, and how many resets have been asked for
+    private RenderSnapshot current;
+    private int resetsRequested;
 
-    private int TIME_ELAPSED = 0;
-
-    private static final int PLAYER_FLASH_TIME = 500;
-    private int flashTimer = 0;
-
-    private static final int PLAYER_SCORING_TIME = 1000;
-    private int PLAYER_SCORING_TIMER = 1000;
+    /**
+     * new logic object which makes a new engine (random seed) and starts a paused simulation thread to run it.
+     * if game.replay is set it plays that recording instead.
+     * @param width width of the canvas
+     * @param height height of the canvas
+     */
+    public GameLogic(double width, double height){
+        engine = new GameEngine(width, height);
+        input = new QueuedInput();
+        engine.setInputSource(input);
+        snapshots = new TripleBuffer<>(RenderSnapshot::new);
+        renderer = new GameRenderer();
+        hud = new Hud();
+        overlay = new ProfilerOverlay();
+        governor = new Governor();
+        if( SERVER != null ){
+            try {
+                client = new GameClient(GameClient.parseAddress(SERVER), snapshots);
+                client.setSize(width, height);
+                client.start();
+                latest();
+                return;
+            } catch (IOException e) {
+                System.err.println("Could not reach " + SERVER + ", playing here instead: " + e.getMessage());
+            }
+        }
+        simulation = new SimulationThread(engine, snapshots);
+        simulation.setSize(width, height);
+        if( REPLAY != null ){
+            try {
+                simulation.setReplay(new InputReplay(Paths.get(REPLAY)), REPLAY_FAST);
+                replaying = true;
+            } catch (IOException e) {
+                System.err.println("Could not play " + REPLAY + ": " + e.getMessage());
+            }
+        }
+        else if( RECORD != null ){
+            engine.setRecorder(new InputRecorder(Paths.get(RECORD)));
+            engine.reset();
+        }
+        if( !replaying ){
+            // Opened by the simulation thread so the window does not wait on the disk to show
+            simulation.submit(engine -> {
+                try {
+                    leaderboard = Leaderboard.open(SCORES);
+                    engine.setLeaderboard(leaderboard);
+                } catch (IOException e) {
+                    System.err.println("Could not open the scores in " + SCORES + ": " + e.getMessage());
+                }
+            });
+        }
+        if( LOAD != null ){
+            load(Paths.get(LOAD));
+        }
+        simulation.start();
+        latest();
+    }
 
-    private static final int ENEMY_SPAWN_TIME = 150;
-    private static final int ENEMY_DIRECTION_PROBABILITY = 5;
-    private static final int ENEMY_SPAWN_PROBABILITY = 8;
-    private static final int OBSTACLE_SPAWN_PROBABILITY = 10;
-    private int ENEMY_SPAWN_TIMER = 200;
+    /**
+     * Get the engine running the game. it belongs to the simulation thread, so only read it from there (or after
+     * shutdown)
+     * @return the engine
+     */
+    public GameEngine getEngine(){
+        return engine;
+    }
 
-    private static final int OBS_SPAWN_TIME = 150;
-    private static final int OBS_SPAWN_PROBABILITY = 5;
-    private int OBS_SPAWN_TIMER = 200;
+    /**
+     * saves the game to the game.save file (game.sav by default), between two ticks
+     */
+    public void saveState(){
+        if( client != null ){
+            System.err.println("The game is on " + SERVER + ", it cannot be saved here");
+            return;
+        }
+        simulation.submit(engine -> {
+            try {
+                long start = System.nanoTime();
+                long bytes = SaveState.save(engine, SAVE);
+                System.out.printf("Saved %s (%d bytes) in %.3f ms%n", SAVE, bytes, (System.nanoTime() - start) / 1e6);
+            } catch (IOException e) {
+                System.err.println("Could not save " + SAVE + ": " + e.getMessage());
+            }
+        });
+    }
 
-    private static final int COIN_SPAWN_TIME = 600;
-    private static final int COIN_SPAWN_PROBABILITY = 2;
-    private int COIN_SPAWN_TIMER = 700;
+    /**
+     * loads the game.save file, replacing the game being played
+     */
+    public void loadState(){
+        load(SAVE);
+    }
 
-    // Enemy Elements
-    private ArrayList<Mob> enemies;
+    private void load(Path file){
+        if( client != null ){
+            System.err.println("The game is on " + SERVER + ", " + file + " cannot be loaded into it");
+            return;
+        }
+        simulation.submit(engine -> {
+            try {
+                long start = System.nanoTime();
+                SaveState.load(file, engine);
+                System.out.printf("Loaded %s in %.3f ms%n", file, (System.nanoTime() - start) / 1e6);
+            } catch (IOException e) {
+                System.err.println("Could not load " + file + ": " + e.getMessage());
+            }
+        });
+    }
 
-    // Width and height of the canvas
-    private double width, height;
+    /**
+     * stops the simulation thread (and saves the game being recorded and the scores)
+     */
+    public void shutdown(){
+        if( client != null ){
+            client.shutdown();
+            return;
+        }
+        simulation.shutdown();
+        try {
+            simulation.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if( leaderboard != null ){
+            leaderboard.close();
+        }
+        if( input.getLatency().getCount() > 0 ){
+            System.out.println("Input latency: " + input.getLatency());
+        }
+    }
 
     /**
-     * new logic object which makes player and enemies, resets objects and runs methods, starts new game timer, and randomizer.
-     * @param width width of the canvas
-     * @param height height of the canvas
+     * Renders the game elements (not the score and lives, see renderHud) onto a canvas where they were at the
+     * last game step
+     * @param canvas the canvas to render onto
      */
-    public GameLogic(double width, double height){
-        rand = new Random();
+    public void render(Canvas canvas){
+        render(canvas, 1);
+    }
 
-        gameTimer = new GameTimer();
+    /**
+     * Get how far between two game steps a frame drawn now is, for render(canvas, alpha)
+     * @param now the time of the frame (nanoseconds, as given to an AnimationTimer)
+     * @return a value from 0 (previous step) to 1 (last step)
+     */
+    public double getInterpolation(long now){
+        latest();
+        double alpha = (double) (now - current.time) / STEP_NANOS;
+        return Math.max(0, Math.min(1, alpha));
+    }
 
-        this.width = Math.abs(width);
-        this.height = Math.abs(height);
+    /**
+     * Draws the score and lives onto the hud layer, only if they changed since it was last drawn
+     * @param canvas the hud layer (on top of the play field)
+     */
+    public void renderHud(Canvas canvas){
+        hud.render(canvas, current.score, current.lives);
+    }
 
-        player = new Ball();
-        enemies = new ArrayList<>();
+    /**
+     * Draws the tick profile and enemy counts onto the overlay layer, a few times a second
+     * @param canvas the overlay layer (on top of everything)
+     * @param now the time of the frame (nanoseconds, as given to an AnimationTimer)
+     */
+    public void renderProfiler(Canvas canvas, long now){
+        overlay.render(canvas, engine.getProfiler(), governor, current, now);
+    }
 
-        forcesOnPlayer = new HashMap<>();
+    /**
+     * Clears the overlay layer
+     * @param canvas the overlay layer
+     */
+    public void clearProfiler(Canvas canvas){
+        overlay.clear(canvas);
+    }
 
-        reset();
+    /**
+     * Clears the hud layer (the game over screen has no hud)
+     * @param canvas the hud layer
+     */
+    public void clearHud(Canvas canvas){
+        hud.clear(canvas);
     }
 
     /**
-     * Renders the game elements onto a canvas
+     * Renders the game elements (not the score and lives, see renderHud) onto a canvas, in between their
+     * previous and current positions in the snapshot picked by the last getInterpolation
      * @param canvas the canvas to render onto
+     * @param alpha 0 draws everything where it was before the last step, 1 where it is now
      */
-    public void render(Canvas canvas){
-
-        // Update width and height
-        width = canvas.getWidth();
-        height = canvas.getHeight();
+    public void render(Canvas canvas, double alpha){
+
+        // Update width and height. at a lower resolution the canvas is smaller than the play field (see getResolution)
+        double resolution = governor.getResolution();
+        double width = canvas.getWidth() / resolution;
+        double height = canvas.getHeight() / resolution;
+        if( client != null ){
+            client.setSize(width, height);
+        }
+        else {
+            simulation.setSize(width, height);
+        }
 
         GraphicsContext gc = canvas.getGraphicsContext2D();
 
-        player.render(canvas);
-        for( int i = 0; i < enemies.size(); i++ ){
-            Mob enemy = enemies.get(i);
-
-            int min = (int)enemy.getWidth();
-            if( enemy.x < 0 ){
-                int maxW = (int)(width-min+1);
-                enemy.x = rand.nextInt(maxW-min+1)+min;
+        long start = System.nanoTime();
+        gc.save();
+        gc.scale(resolution, resolution);
+        renderer.render(gc, current, alpha, width, height, governor.getMinDrawnSize());
+        gc.restore();
+        engine.getProfiler().mark(TickProfiler.Phase.RENDER, start);
+
+        if( Governor.ENABLED ){
+            long now = System.nanoTime();
+            // Only the drawing steps apply to a game being replayed or played on a server
+            if( governor.update(now, current.tickNanos, now - start, current.count) && !replaying && client == null ){
+                int percent = governor.getSpawnPercent();
+                int cap = governor.getEnemyCap();
+                simulation.submit(engine -> engine.setSpawnThrottle(percent, cap));
             }
-
-            enemy.render(canvas);
         }
+    }
+
+    /**
+     * Get the resolution the play field is drawn at. the canvas render draws on has to be this size compared to
+     * the play field (and scaled back up to fill it), and only changes between frames.
+     * @return 1 for full resolution, less when the governor has lowered it
+     */
+    public double getResolution(){
+        return governor.getResolution();
+    }
 
-        // Draw lives and score last so that the balls go under them
-        Text lives = new Text("Lives: " + Math.round(player.getHP()));
+    /**
+     * Get the number of enemies drawn by the last render
+     * @return how many enemies were drawn
+     */
+    public int getDrawnCount(){
+        return renderer.getDrawn();
+    }
 
-        gc.strokeText("Score: " + player.score, 10, 30);
-        gc.strokeText(lives.getText(),width - 10 - lives.getLayoutBounds().getWidth(), 20);
+    /**
+     * Get the time key presses and releases wait before the engine applies them
+     * @return the input latency histogram
+     */
+    public LatencyHistogram getInputLatency(){
+        return input.getLatency();
+    }
+
+    /**
+     * Get the number of enemies the last render skipped because they were off screen
+     * @return how many enemies were culled
+     */
+    public int getCulledCount(){
+        return renderer.getCulled();
+    }
+
+    /**
+     * Get the color a type of enemy is drawn in
+     * @param type the type of enemy
+     * @return the color of that type
+     */
+    public static Color colorOf(MobType type){
+        switch( type ){
+            case BALL:
+                return Color.RED;
+            case LIFESAVER:
+                return Color.GREEN;
+            case COIN:
+                return Color.DARKGOLDENROD;
+            case OBSTACLE:
+                return Color.PURPLE;
+            case SPIKED_WALL:
+                return Color.DODGERBLUE;
+            default:
+                return Color.BLACK;
+        }
     }
 
     /**
@@ -126,12 +337,18 @@ public class GameLogic {
      * @param setPaused true to pause, false otherwise
      */
     public void pause(boolean setPaused ){
-        if( setPaused ){
-            gameTimer.stop();
+        if( client != null ){
+            if( setPaused ){
+                client.releaseAll();
+            }
+            client.pause(setPaused);
+            return;
         }
-        else {
-            gameTimer.start();
+        if( setPaused ){
+            // Let go of every key, the release events may never come
+            input.releaseAll();
         }
+        simulation.pause(setPaused);
     }
 
     /**
@@ -139,23 +356,14 @@ public class GameLogic {
      * of program or when reset button used.
      */
     public void reset(){
-        player.x = 200;
-        player.y = 400;
-        player.setRadius(10);
-
-        player.velX = player.velY = 0;
-        player.setVelocityBoundX(-7, 7);
-        player.setVelocityBoundY(-7,7);
-
-
-        player.addHP(3);
-        enemies.clear();
-        forcesOnPlayer.clear();
-
-        enemy = null;
-
-        gameOver = false;
-        player.score = 0;
+        resetsRequested++;
+        if( client != null ){
+            client.releaseAll();
+            client.requestReset();
+            return;
+        }
+        input.releaseAll();
+        simulation.requestReset();
     }
 
     /**
@@ -163,58 +371,33 @@ public class GameLogic {
      * @return gameOver boolean if game ends.
      */
     public boolean isGameOver(){
-        return gameOver;
-    }
-
-    private boolean collideWalls(Mob player){
-
-        boolean collided = false;
-
-        // Keep player with the window
-
-        if( player == this.player ) {
-            if (player.y + player.getHeight() > height) {
-                player.y = height - player.getHeight();
-                player.bounceY();
-                collided = true;
-            }
-
-            if (player.y < 0) {
-                player.y = 0;
-                player.bounceY();
-                collided = true;
-            }
-        }
-
-
-        if( player.x + player.getWidth() > width ){
-            player.x = width - player.getWidth();
-            player.bounceX();
-            collided = true;
-        }
-        if( player.x < 0 ){
-            player.x = 0;
-            player.bounceX();
-            collided = true;
-        }
-
-        return collided;
+        RenderSnapshot latest = latest();
+        // Until the simulation has done the reset, the last snapshot is still of the game that ended
+        return latest.gameOver && latest.resets == resetsRequested;
     }
 
     /**
      * applies more force if button is held.
      * @param direction direction that the force is applied to.
      */
-    public void applyForce( DIRECTION direction ) {
-        forcesOnPlayer.put(direction, true);
+    public void applyForce( GameEngine.DIRECTION direction ) {
+        if( client != null ){
+            client.press(direction);
+            return;
+        }
+        input.press(direction);
     }
 
     /**
      * applies less force if button is released.
      * @param direction direction that the force is released from.
      */
-    public void removeForce(DIRECTION direction){
-        forcesOnPlayer.remove(direction);
+    public void removeForce(GameEngine.DIRECTION direction){
+        if( client != null ){
+            client.release(direction);
+            return;
+        }
+        input.release(direction);
     }
 
     /**
@@ -222,7 +405,7 @@ public class GameLogic {
      * @return int seconds that the game has lasted for.
      */
     public int getTimeElapsed(){
-        return TIME_ELAPSED;
+        return latest().timeElapsed;
     }
 
     /**
@@ -230,7 +413,7 @@ public class GameLogic {
      * @return player's score (int)
      */
     public int getFinalScore(){
-        return player.score;
+        return latest().score;
     }
 
     /**
@@ -238,303 +421,30 @@ public class GameLogic {
      * @return string message of the snarky comment.
      */
     public String deathMessage(){
-        if (player.score < 0){
-            return "Were you even trying???";
-        }
-        if (player.score > 0 && player.score <= 1000){
-            return "Have you ever played a video game before?";
-        }
-        if (player.score > 1000 && player.score <= 5000){
-            return "You call THAT an attempt? Wow.";
-        }
-        if (player.score > 5000 && player.score <= 10000){
-            return "That was painful to watch.";
-        }
-        if (player.score > 10000 && player.score <= 15000){
-            return "You're getting there... not for a while though.";
-        }
-        if (player.score > 15000 && player.score <= 20000){
-            return "Ok that was decent. You're not horrible at this.";
-        }
-        if (player.score > 20000 && player.score <= 30000){
-            return "That was a good run, but it was all luck.";
-        }
-        if (player.score > 30000 && player.score <= 50000){
-            return "Dang that was pretty good. You'll probably fail next time though.";
-        }
-        if (player.score > 50000 && player.score <= 75000){
-            return "Are you cheating? There's no way you did that well...";
-        }
-        if (player.score > 75000 && player.score <= 100000){
-            return "You're godlike!!! Too bad that was a one-time thing.";
-        }
-        if (player.score < 100000){
-            return "WOW YOU ARE AMAZING!!! YOUR SKILL GOES UNMATCHED!";
-        }
-        return "rtn";
+        return GameEngine.deathMessage(latest().score);
     }
 
     /**
-     * Runs once per game tick which is set dynamically by the GAME_STEP_TIMER
+     * where the final score places on the leaderboard (run when gameOver is true).
+     * @return the place and the best score so far, or an empty string without a leaderboard
      */
-    private class GameTimer extends AnimationTimer {
-        // The last nanosecond
-        private long lastUpdate;
-
-        /**
-         * resets last update timer to zero.
-         */
-        public GameTimer() {
-            lastUpdate = 0;
+    public String leaderboardMessage(){
+        Leaderboard leaderboard = this.leaderboard;
+        if( leaderboard == null ){
+            return "";
         }
+        int score = latest().score;
+        int rank = leaderboard.getRank(score);
+        String best = "Best: " + leaderboard.getBest() + " points in " + leaderboard.getRuns() + " games";
+        return rank < 0 ? best : "#" + rank + " on the leaderboard. " + best;
+    }
 
-        @Override
-
-        /**
-         * runs every frame of game timer (17ms) and updates entities, checks for events, and runs event handlers.
-         */
-        public void handle(long now) {
-
-            // Covert the time_elapsed from nanoseconds to milliseconds
-            long time_elapsed = (now - lastUpdate)/1000000;
-
-
-            flashTimer -= time_elapsed;
-            if( flashTimer < 0 ){
-                player.setColor(Color.BLACK);
-            }
-
-            PLAYER_SCORING_TIMER -= time_elapsed;
-            if( PLAYER_SCORING_TIMER < 0 ){
-                PLAYER_SCORING_TIMER = PLAYER_SCORING_TIME;
-                player.addScore(10);
-                TIME_ELAPSED++;
-            }
-
-            ENEMY_SPAWN_TIMER -= time_elapsed;
-            if( ENEMY_SPAWN_TIMER < 0 ){
-                int chance = rand.nextInt(100);
-                if( chance < OBSTACLE_SPAWN_PROBABILITY ){
-
-                    if( chance < ENEMY_SPAWN_PROBABILITY ) {
-                        Ball enemy = new Ball();
-                        enemy.setRadius(10);
-                        enemy.hp = 1;
-
-                        enemy.x = -1;
-                        enemy.y = -enemy.getRadius();  // off screen
-                        enemy.setVelocityBoundX(-5,5);
-                        enemy.setVelocityBoundY(0,5);
-
-                        enemy.setColor(Color.RED);
-
-                        enemy.velX = rand.nextInt(5) + 2;
-                        enemy.velY = rand.nextInt(5) + 2;
-                        enemies.add(enemy);
-                    }
-                    else{
-                        Lifesaver lifesaver = new Lifesaver();
-                        lifesaver.setRadius(10);
-                        lifesaver.hp = 1;
-
-                        lifesaver.x = -1;
-                        lifesaver.y = -lifesaver.getRadius();  // off screen
-                        lifesaver.setVelocityBoundX(-5,5);
-                        lifesaver.setVelocityBoundY(0,5);
-
-                        lifesaver.velX = rand.nextInt(5) + 2;
-                        lifesaver.velY = rand.nextInt(5) + 2;
-                        enemies.add(lifesaver);
-                    }
-
-                }
-
-                ENEMY_SPAWN_TIMER = ENEMY_SPAWN_TIME;
-            }
-
-            OBS_SPAWN_TIMER -= time_elapsed;
-            if( OBS_SPAWN_TIMER < 0 ){
-                int chance = rand.nextInt(120);
-                if( chance < OBSTACLE_SPAWN_PROBABILITY ){
-
-                    if( chance < OBS_SPAWN_PROBABILITY) {
-                        Obstacle enemy = new Obstacle();
-                        enemy.hp = 1;
-                        enemy.x = rand.nextInt((int)width);
-                        enemy.y = -enemy.getHeight();  // off screen
-                        enemy.setVelocityBoundX(-5,5);
-                        enemy.setVelocityBoundY(0,5);
-
-                        enemy.velY = 5;
-                        enemies.add(enemy);
-                    } else {
-                        if (enemy == null){
-                            boolean adjWall = rand.nextBoolean();
-                            int randWidth = (int)(Math.random() * ((width40-5)+5));
-                            enemy = new SpikedWall(randWidth, 50);
-                            if (adjWall){
-                                enemy.x = width - enemy.getWidth();
-                                //right
-                            } else{
-                                enemy.x = 0;
-                                //left
-                            }
-                            enemy.hp = 100000;
-                            enemy.y = -enemy.getHeight();  // off screen
-                            enemy.setVelocityBoundX(-3,3);
-                            enemy.setVelocityBoundY(0,5);
-
-                            enemy.velY = 3;
-                            enemy.velX = 0;
-                            enemies.add(enemy);
-                        }
-                    }
-
-                }
-
-                OBS_SPAWN_TIMER = OBS_SPAWN_TIME;
-            }
-
-            COIN_SPAWN_TIMER -= time_elapsed;
-            if( COIN_SPAWN_TIMER < 0 ){
-                int chance = rand.nextInt(100);
-                if( chance < COIN_SPAWN_PROBABILITY ){
-                    Coin enemy = new Coin();
-                    enemy.setRadius(25);
-                    enemy.hp = 1;
-
-                    enemy.x = -1;
-                    enemy.y = -enemy.getRadius();  // off screen
-                    enemy.setVelocityBoundX(-8,8);
-                    enemy.setVelocityBoundY(0,8);
-
-                    enemy.velX = rand.nextInt(6) + 2;
-                    enemy.velY = rand.nextInt(6) + 2;
-                    enemies.add(enemy);
-
-                }
-
-                COIN_SPAWN_TIMER = COIN_SPAWN_TIME;
-            }
-
-            if( time_elapsed > GameLogic.GAME_STEP_TIMER) {
-                // Game steps go here
-
-                if( forcesOnPlayer.containsKey(DIRECTION.LEFT) ){
-                    player.velX--;
-                }
-                if( forcesOnPlayer.containsKey(DIRECTION.RIGHT) ){
-                    player.velX++;
-                }
-                if( forcesOnPlayer.containsKey(DIRECTION.UP) ){
-                    player.velY--;
-                }
-                if( forcesOnPlayer.containsKey(DIRECTION.DOWN) ){
-                    player.velY++;
-                }
-
-                if( forcesOnPlayer.containsKey(DIRECTION.STOP) ){
-                    player.velX -= Math.signum(player.velX);
-                    player.velY -= Math.signum(player.velY);
-                }
-
-                // MOVE EVERYTHING
-                player.move();
-                for( int i = 0; i < enemies.size(); i++ ){
-                    Mob enemy = enemies.get(i);
-
-                    if(enemy instanceof Ball){
-                        if( rand.nextInt(100) < ENEMY_DIRECTION_PROBABILITY) {
-                            double changeX = Math.signum(player.x - enemy.x);
-                            enemy.velX = changeX * Math.abs(enemy.velX);
-                        }
-                    }
-
-                    enemy.move();
-                }
-                for( int i = 0; i < enemies.size(); i++ ){
-                    Mob enemy = enemies.get(i);
-                    enemy.move();
-                }
-
-                // CHECK WALLS ON EVERYTHING
-                boolean playerCollided = collideWalls(player);
-                if (playerCollided){
-                    player.addHP(-1);
-                }
-                for( int i = 0; i < enemies.size(); i++ ){
-                    Mob enemy = enemies.get(i);
-                    collideWalls(enemy);
-
-                    if( enemy.y > height ){
-                        player.addScore(enemy.scored());
-                        enemy.damage();
-                    }
-                }
-
-                // Remove obstacles if they go past the end of the window
-                for( int i = 0; i < enemies.size(); i++ ) {
-                    Mob enemy = enemies.get(i);
-                    if( enemy.y > height ){
-                        enemy.damage();
-                    }
-                }
-
-                // CHECK BALL COLLISIONS ON EVERYTHING
-                    for( int i = 0; i < enemies.size(); i++ ) {
-                        Mob enemy = enemies.get(i);
-                        for( int j = i + 1; j < enemies.size(); j++ ) {
-                            Mob enemy2 = enemies.get(j);
-                            if(enemy.intersects(enemies.get(j))) {
-                                if (enemy instanceof SpikedWall){
-                                    enemy.bounceOff(enemy2);
-                                } else if (enemy2 instanceof SpikedWall){
-                                    enemy2.bounceOff(enemy);
-                                } else {
-                                    enemy.bounceOff(enemy2);
-                                }
-                                enemy.damage();
-                                enemy2.damage();
-                            }
-                        }
-                        boolean enemyRemove = enemy.intersects(player);
-                        if( enemyRemove ){
-                            enemy.damage();
-                            enemy.bounceOff(player);
-                            player.addHP(enemy.damage());
-                        }
-                        playerCollided =  enemyRemove || playerCollided;
-                }
-
-                if (enemy != null && enemy.y > height){
-                    enemies.remove(enemy);
-                    enemy = null;
-                }
-
-                if( playerCollided ){
-                    // if player collides then lose life
-                    player.addScore(-100);
-                    if( player.getHP() <= 0 ) {
-                        gameOver = true;
-                        pause(true);
-                    }
-                    flashTimer = PLAYER_FLASH_TIME;
-                    player.setColor(Color.GREEN);
-                }
-
-
-                width40 = (width/10)*4;
-
-                for( int i = 0; i < enemies.size(); i++ ) {
-                    Mob enemy = enemies.get(i);
-                    if (enemy.hp <= 0){
-                        enemies.remove(enemy);
-                        i--;
-                    }
-                }
-
-                lastUpdate = now;
-            }
-        }
+    /**
+     * Get the newest snapshot. once a newer one is taken the older one goes back to the simulation thread, so
+     * current always has to be the one last returned
+     */
+    private RenderSnapshot latest(){
+        current = snapshots.latest();
+        return current;
     }
 }
@@ -0,0 +1,53 @@
+package org.headroyce.lross2024;
+
+import java.util.Random;
+
+/**
+ * java.util.Random with its state out in the open so a save state can store it and carry on with exactly the same
+ * numbers. it uses Random's own generator, so a seed gives the same numbers as a plain Random would.
+ */
+public class GameRandom extends Random {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final long MULTIPLIER = 0x5DEECE66DL;
+    private static final long ADDEND = 0xBL;
+    private static final long MASK = (1L << 48) - 1;
+
+    private long state;
+
+    /**
+     * makes a generator
+     * @param seed the seed, as for Random
+     */
+    public GameRandom(long seed) {
+        super(seed);
+    }
+
+    @Override
+    public synchronized void setSeed(long seed) {
+        state = (seed ^ MULTIPLIER) & MASK;
+    }
+
+    @Override
+    protected int next(int bits) {
+        state = (state * MULTIPLIER + ADDEND) & MASK;
+        return (int) (state >>> (48 - bits));
+    }
+
+    /**
+     * Get the state of the generator
+     * @return the state, for setState
+     */
+    public long getState() {
+        return state;
+    }
+
+    /**
+     * puts the generator back into a state from getState
+     * @param state the state
+     */
+    public void setState(long state) {
+        this.state = state & MASK;
+    }
+}
@@ -0,0 +1,150 @@
+package org.headroyce.lross2024;
+
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.paint.Color;
+
+import java.util.Arrays;
+
+/**
+ * Draws a snapshot of the engine's mobs onto a canvas. Mobs outside the canvas (or too small to matter, when the
+ * Governor asks for it) are skipped, and the rest are grouped by type so each type sets its fill once and then
+ * draws all of its shapes in one run.
+ */
+public class GameRenderer {
+
+    // Types are drawn in this order: walls and obstacles first so balls pass over them
+    private static final MobType[] DRAW_ORDER = {
+            MobType.OBSTACLE, MobType.SPIKED_WALL, MobType.BALL, MobType.LIFESAVER, MobType.COIN, MobType.MOB
+    };
+
+    // Visible enemies, grouped by type tag
+    private int[] visible;
+    private int[] typeCount;
+    private int[] typeStart;
+
+    private int drawn, culled;
+
+    /**
+     * makes a renderer
+     */
+    public GameRenderer() {
+        visible = new int[256];
+        typeCount = new int[MobType.values().length];
+        typeStart = new int[typeCount.length];
+    }
+
+    /**
+     * draws the player and every enemy on screen, in between their previous and current positions
+     * @param gc where to draw
+     * @param snapshot the game step to draw
+     * @param alpha 0 draws everything where it was before the last step, 1 where it is now
+     * @param width width of the area being drawn
+     * @param height height of the area being drawn
+     * @param minSize enemies smaller than this both ways are skipped (0 draws everything)
+     */
+    public void render(GraphicsContext gc, RenderSnapshot snapshot, double alpha, double width, double height,
+                       double minSize) {
+        int count = snapshot.count;
+        if (visible.length < count) {
+            visible = new int[Math.max(count, visible.length * 2)];
+        }
+
+        double[] x = snapshot.x, y = snapshot.y, prevX = snapshot.prevX, prevY = snapshot.prevY;
+        double[] w = snapshot.width, h = snapshot.height;
+        byte[] type = snapshot.type;
+
+        // Count the visible enemies of each type, then put them in their type's run
+        Arrays.fill(typeCount, 0);
+        for (int i = 0; i < count; i++) {
+            if (shouldDraw(i, type[i], x, y, prevX, prevY, w, h, width, height, minSize)) {
+                typeCount[type[i]]++;
+            }
+        }
+        int start = 0;
+        for (int t = 0; t < typeCount.length; t++) {
+            typeStart[t] = start;
+            start += typeCount[t];
+        }
+        drawn = start;
+        culled = count - drawn;
+
+        for (int i = 0; i < count; i++) {
+            if (shouldDraw(i, type[i], x, y, prevX, prevY, w, h, width, height, minSize)) {
+                visible[typeStart[type[i]]++] = i;
+            }
+        }
+
+        // The player goes first, under the enemies, as it always has
+        double radius = snapshot.playerRadius;
+        gc.setFill(snapshot.playerFlashing ? Color.GREEN : Color.BLACK);
+        gc.fillOval(lerp(snapshot.prevPlayerX, snapshot.playerX, alpha) - radius,
+                lerp(snapshot.prevPlayerY, snapshot.playerY, alpha) - radius, 2 * radius, 2 * radius);
+
+        for (MobType t : DRAW_ORDER) {
+            int tag = t.ordinal();
+            int end = typeStart[tag];
+            int first = end - typeCount[tag];
+            if (first == end) {
+                continue;
+            }
+
+            gc.setFill(GameLogic.colorOf(t));
+            if (t.isBall()) {
+                for (int k = first; k < end; k++) {
+                    int i = visible[k];
+                    // Balls are drawn around their x, y
+                    gc.fillOval(lerp(prevX[i], x[i], alpha) - w[i] / 2, lerp(prevY[i], y[i], alpha) - h[i] / 2,
+                            w[i], h[i]);
+                }
+            } else {
+                for (int k = first; k < end; k++) {
+                    int i = visible[k];
+                    gc.fillRect(lerp(prevX[i], x[i], alpha), lerp(prevY[i], y[i], alpha), w[i], h[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the number of enemies drawn by the last render
+     * @return how many enemies were drawn
+     */
+    public int getDrawn() {
+        return drawn;
+    }
+
+    /**
+     * Get the number of enemies skipped by the last render because they were off screen (or tiny)
+     * @return how many enemies were culled
+     */
+    public int getCulled() {
+        return culled;
+    }
+
+    /**
+     * checks if an enemy is big enough and any part of it is on screen anywhere between its previous and current
+     * position
+     */
+    private static boolean shouldDraw(int i, byte type, double[] x, double[] y, double[] prevX, double[] prevY,
+                                      double[] w, double[] h, double width, double height, double minSize) {
+        if (w[i] < minSize && h[i] < minSize) {
+            return false;
+        }
+        double left = Math.min(x[i], prevX[i]);
+        double right = Math.max(x[i], prevX[i]) + w[i];
+        double top = Math.min(y[i], prevY[i]);
+        double bottom = Math.max(y[i], prevY[i]) + h[i];
+        if (MobType.of(type).isBall()) {
+            // Balls are drawn around their x, y
+            left -= w[i] / 2;
+            right -= w[i] / 2;
+            top -= h[i] / 2;
+            bottom -= h[i] / 2;
+        }
+        return right >= 0 && left <= width && bottom >= 0 && top <= height;
+    }
+
+    private static double lerp(double from, double to, double alpha) {
+        return from + (to - from) * alpha;
+    }
+}
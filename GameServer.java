@@ -0,0 +1,352 @@
+package org.headroyce.lross2024;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Runs games for GameClients over TCP: every client that connects gets its own game, which only the server
+ * ticks, so the client can only send input (see NetProtocol). One thread does everything with a non-blocking
+ * Selector: reads input, ticks every game in real time, and writes each client a snapshot of its game per tick
+ * (see SnapshotEncoder), delta encoded and held to a byte budget so a client's bandwidth stays the same however
+ * many enemies there are.
+ *
+ *   java -cp out org.headroyce.lross2024.GameServer
+ *   java --module-path $PATH_TO_FX --add-modules javafx.controls -Dgame.server=localhost:7777 -cp out org.headroyce.lross2024.Main
+ *
+ * -Dserver.port sets the port (default NetProtocol.DEFAULT_PORT), -Dserver.budget the bytes of enemy records per
+ * snapshot (default 1024) and -Dserver.window how many snapshots a client can be behind on acknowledging before
+ * it gets no more (default 8). A client whose socket cannot take a snapshot is skipped that tick too, so a slow
+ * client never backs up the server. Every few seconds it prints how many clients it has, how long its ticks take
+ * and what each client is sent.
+ */
+public class GameServer {
+
+    private static final int PORT = Integer.getInteger("server.port", NetProtocol.DEFAULT_PORT);
+    private static final int BUDGET = Integer.getInteger("server.budget", 1024);
+    private static final int WINDOW = Integer.getInteger("server.window", 8);
+
+    private static final long STEP_NANOS = GameEngine.GAME_STEP_TIMER * 1000000L;
+    private static final long STATS_NANOS = 5000000000L;
+
+    // Room for the snapshot header as well as its records
+    private static final int OUT_CAPACITY = 64 * 1024;
+    private static final int SNAPSHOT_ROOM = BUDGET + 256;
+
+    private static final GameEngine.DIRECTION[] DIRECTIONS = GameEngine.DIRECTION.values();
+
+    private Selector selector;
+    private ServerSocketChannel server;
+    private List<Connection> connections;
+    private volatile boolean running;
+
+    private final LatencyHistogram tickTimes;
+    private long bytesSent, snapshotsSent, lateTicks;
+
+    /**
+     * opens the server socket
+     * @param port the port to listen on (0 for any free port)
+     * @throws IOException if the port cannot be opened
+     */
+    public GameServer(int port) throws IOException {
+        selector = Selector.open();
+        server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress(port));
+        server.configureBlocking(false);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+        connections = new ArrayList<>();
+        tickTimes = new LatencyHistogram();
+        running = true;
+    }
+
+    /**
+     * Get the port the server is listening on
+     * @return the port
+     */
+    public int getPort() {
+        return server.socket().getLocalPort();
+    }
+
+    /**
+     * Get how long each server tick (every game ticked and its snapshot written) has taken
+     * @return the tick times
+     */
+    public LatencyHistogram getTickTimes() {
+        return tickTimes;
+    }
+
+    /**
+     * stops the server after its current tick (from any thread)
+     */
+    public void shutdown() {
+        running = false;
+        selector.wakeup();
+    }
+
+    /**
+     * serves clients until shutdown
+     * @throws IOException if the selector fails
+     */
+    public void run() throws IOException {
+        long nextTick = System.nanoTime() + STEP_NANOS;
+        long nextStats = System.nanoTime() + STATS_NANOS;
+        while (running) {
+            long wait = nextTick - System.nanoTime();
+            if (wait > 1000000) {
+                selector.select(wait / 1000000);
+            } else {
+                selector.selectNow();
+            }
+
+            Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+            while (keys.hasNext()) {
+                SelectionKey key = keys.next();
+                keys.remove();
+                if (!key.isValid()) {
+                    continue;
+                }
+                if (key.isAcceptable()) {
+                    accept();
+                    continue;
+                }
+                Connection connection = (Connection) key.attachment();
+                try {
+                    if (key.isReadable()) {
+                        connection.read();
+                    }
+                    if (key.isValid() && key.isWritable()) {
+                        connection.flush();
+                    }
+                } catch (IOException e) {
+                    connection.close(e.getMessage());
+                }
+            }
+
+            long now = System.nanoTime();
+            if (now >= nextTick) {
+                tick();
+                nextTick += STEP_NANOS;
+                if (nextTick <= System.nanoTime()) {
+                    // Too far behind to catch up: the games slow down instead
+                    lateTicks++;
+                    nextTick = System.nanoTime() + STEP_NANOS;
+                }
+            }
+            if (now >= nextStats) {
+                printStats(now - nextStats + STATS_NANOS);
+                nextStats = now + STATS_NANOS;
+            }
+        }
+        for (Connection connection : new ArrayList<>(connections)) {
+            connection.close(null);
+        }
+        server.close();
+        selector.close();
+    }
+
+    /**
+     * ticks every client's game and sends each a snapshot
+     */
+    private void tick() {
+        long start = System.nanoTime();
+        for (int i = 0; i < connections.size(); i++) {
+            Connection connection = connections.get(i);
+            try {
+                connection.tick();
+            } catch (IOException e) {
+                connection.close(e.getMessage());
+                i--;
+            }
+        }
+        tickTimes.record(System.nanoTime() - start);
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = server.accept();
+        if (channel == null) {
+            return;
+        }
+        channel.configureBlocking(false);
+        channel.socket().setTcpNoDelay(true);
+        Connection connection = new Connection(channel);
+        connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+        connections.add(connection);
+        System.out.println("Server: " + channel.getRemoteAddress() + " connected (" + connections.size()
+                + " clients)");
+    }
+
+    private void printStats(long elapsed) {
+        if (connections.isEmpty()) {
+            return;
+        }
+        double seconds = elapsed / 1e9;
+        System.out.printf("Server: %d clients, tick p50 %s p99 %s max %s, %d late, %.1f KB/s and %.0f bytes a"
+                        + " snapshot per client%n", connections.size(),
+                LatencyHistogram.format(tickTimes.getPercentileNanos(0.5)),
+                LatencyHistogram.format(tickTimes.getPercentileNanos(0.99)),
+                LatencyHistogram.format(tickTimes.getMaxNanos()), lateTicks,
+                bytesSent / seconds / 1024 / connections.size(),
+                snapshotsSent == 0 ? 0.0 : (double) bytesSent / snapshotsSent);
+        tickTimes.clear();
+        bytesSent = 0;
+        snapshotsSent = 0;
+        lateTicks = 0;
+    }
+
+    /**
+     * one client and its game
+     */
+    private class Connection {
+        private final SocketChannel channel;
+        private SelectionKey key;
+        private final ByteBuffer in, out;
+
+        private final GameEngine engine;
+        private final SnapshotEncoder encoder;
+        private boolean paused = true;
+        private boolean changed = true;
+        private int resets;
+        private long acked;
+
+        private Connection(SocketChannel channel) {
+            this.channel = channel;
+            in = ByteBuffer.allocateDirect(4096).order(ByteOrder.LITTLE_ENDIAN);
+            out = ByteBuffer.allocateDirect(OUT_CAPACITY).order(ByteOrder.LITTLE_ENDIAN);
+            engine = new GameEngine(500, 500);
+            encoder = new SnapshotEncoder();
+        }
+
+        /**
+         * takes in whatever the client has sent
+         */
+        private void read() throws IOException {
+            if (channel.read(in) < 0) {
+                close("closed");
+                return;
+            }
+            in.flip();
+            // A frame longer than input can be would never fit in the buffer, and the key would stay readable
+            for (int length = NetProtocol.frameLength(in, NetProtocol.MAX_INPUT_FRAME); length >= 0;
+                 length = NetProtocol.frameLength(in, NetProtocol.MAX_INPUT_FRAME)) {
+                int end = in.position() + NetProtocol.FRAME_HEADER + length;
+                int limit = in.limit();
+                in.position(in.position() + NetProtocol.FRAME_HEADER);
+                in.limit(end);
+                handle(in.get());
+                in.limit(limit);
+                in.position(end);
+            }
+            in.compact();
+        }
+
+        /**
+         * applies one message to the game
+         */
+        private void handle(byte type) throws IOException {
+            switch (type) {
+                case NetProtocol.PRESS:
+                    engine.applyForce(direction());
+                    break;
+                case NetProtocol.RELEASE:
+                    engine.removeForce(direction());
+                    break;
+                case NetProtocol.RELEASE_ALL:
+                    for (GameEngine.DIRECTION direction : DIRECTIONS) {
+                        engine.removeForce(direction);
+                    }
+                    break;
+                case NetProtocol.PAUSE:
+                    paused = NetProtocol.getVarint(in) != 0;
+                    changed = true;
+                    break;
+                case NetProtocol.RESET:
+                    engine.reset();
+                    resets++;
+                    changed = true;
+                    break;
+                case NetProtocol.SIZE:
+                    long width = NetProtocol.getVarint(in);
+                    long height = NetProtocol.getVarint(in);
+                    if (width < 1 || height < 1 || width > 100000 || height > 100000) {
+                        throw new IOException("bad size " + width + "x" + height);
+                    }
+                    engine.setSize(width, height);
+                    break;
+                case NetProtocol.ACK:
+                    acked = Math.max(acked, NetProtocol.getVarint(in));
+                    break;
+                default:
+                    throw new IOException("unknown message " + type);
+            }
+        }
+
+        private GameEngine.DIRECTION direction() throws IOException {
+            long ordinal = NetProtocol.getVarint(in);
+            if (ordinal < 0 || ordinal >= DIRECTIONS.length) {
+                throw new IOException("bad direction " + ordinal);
+            }
+            return DIRECTIONS[(int) ordinal];
+        }
+
+        /**
+         * ticks the game (unless it is paused or over) and sends a snapshot if the client can take one
+         */
+        private void tick() throws IOException {
+            if (!paused && !engine.isGameOver()) {
+                engine.tick();
+                changed = true;
+            }
+            if (!changed || encoder.getSequence() - acked >= WINDOW || out.remaining() < SNAPSHOT_ROOM) {
+                return;
+            }
+            int start = out.position();
+            encoder.encode(engine, resets, paused, out, BUDGET);
+            bytesSent += out.position() - start;
+            snapshotsSent++;
+            changed = false;
+            flush();
+        }
+
+        /**
+         * writes as much as the socket takes, and waits to be writable if there is more
+         */
+        private void flush() throws IOException {
+            out.flip();
+            channel.write(out);
+            boolean left = out.hasRemaining();
+            out.compact();
+            key.interestOps(left ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+        }
+
+        private void close(String reason) {
+            connections.remove(this);
+            key.cancel();
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // Already gone
+            }
+            System.out.println("Server: a client left" + (reason == null ? "" : " (" + reason + ")") + ", "
+                    + connections.size() + " clients");
+        }
+    }
+
+    /**
+     * serves clients until the process is stopped
+     * @param args not used
+     * @throws IOException if the port cannot be opened
+     */
+    public static void main(String[] args) throws IOException {
+        GameServer server = new GameServer(PORT);
+        System.out.println("Server: listening on port " + server.getPort());
+        server.run();
+    }
+}
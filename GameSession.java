@@ -0,0 +1,126 @@
+package org.headroyce.lross2024;
+
+/**
+ * One headless game hosted by a SessionHost: an engine, where its input comes from (a bot or a recording) and how
+ * its ticks have gone. A session is stepped one tick at a time by whichever worker picks it up, but never by two at
+ * once, so nothing in it is shared.
+ *
+ * Every session has a tick budget; ticks that take longer are counted as overruns, so one expensive game shows up
+ * without being averaged away by the rest.
+ */
+public class GameSession {
+
+    private final int id;
+    private final GameEngine engine;
+    private final InputReplay replay;
+    private final long budgetNanos;
+    private final long maxTicks;
+
+    private final LatencyHistogram tickTimes;
+    private long overruns;
+    private boolean finished;
+
+    /**
+     * makes a session played by a BotInput
+     * @param id the session's number
+     * @param seed the seed of the game (and of the bot)
+     * @param width width of the play field
+     * @param height height of the play field
+     * @param budgetNanos how long a tick may take before it counts as an overrun
+     * @param maxTicks the session finishes after this many ticks if the game is not over by then
+     * @return the session, at tick 0
+     */
+    public static GameSession bot(int id, long seed, double width, double height, long budgetNanos, long maxTicks) {
+        GameEngine engine = new GameEngine(width, height, seed);
+        engine.setInputSource(new BotInput(seed));
+        return new GameSession(id, engine, null, budgetNanos, maxTicks);
+    }
+
+    /**
+     * makes a session that plays a recording, to check the score it gets
+     * @param id the session's number
+     * @param replay the recording (not shared with any other session)
+     * @param budgetNanos how long a tick may take before it counts as an overrun
+     * @return the session, at tick 0
+     */
+    public static GameSession replay(int id, InputReplay replay, long budgetNanos) {
+        return new GameSession(id, replay.newEngine(), replay, budgetNanos, Long.MAX_VALUE);
+    }
+
+    private GameSession(int id, GameEngine engine, InputReplay replay, long budgetNanos, long maxTicks) {
+        this.id = id;
+        this.engine = engine;
+        this.replay = replay;
+        this.budgetNanos = budgetNanos;
+        this.maxTicks = maxTicks;
+        tickTimes = new LatencyHistogram(1);
+    }
+
+    /**
+     * runs one tick, unless the session is finished
+     * @return true if the session is still running afterwards
+     */
+    public boolean step() {
+        if (finished) {
+            return false;
+        }
+        long start = System.nanoTime();
+        engine.tick();
+        long took = System.nanoTime() - start;
+        tickTimes.record(took);
+        if (took > budgetNanos) {
+            overruns++;
+        }
+
+        finished = engine.isGameOver() || engine.getTick() >= maxTicks
+                || (replay != null && replay.isFinished(engine));
+        return !finished;
+    }
+
+    /**
+     * Check if the session is done: its game is over, its recording has ended or it has run its ticks
+     * @return true once the session will not tick again
+     */
+    public boolean isFinished() {
+        return finished;
+    }
+
+    /**
+     * Get the session's number
+     * @return the id it was made with
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Get the game being played
+     * @return the session's engine (only touch it between steps)
+     */
+    public GameEngine getEngine() {
+        return engine;
+    }
+
+    /**
+     * Get how long each tick has taken
+     * @return the session's tick times (nanoseconds)
+     */
+    public LatencyHistogram getTickTimes() {
+        return tickTimes;
+    }
+
+    /**
+     * Get the number of ticks that went over the session's budget
+     * @return how many ticks overran
+     */
+    public long getOverruns() {
+        return overruns;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("session %d: seed %d, %d ticks, score %d, %d over budget, slowest %s%s", id,
+                engine.getSeed(), engine.getTick(), engine.getFinalScore(), overruns,
+                LatencyHistogram.format(tickTimes.getMaxNanos()), engine.isGameOver() ? ", game over" : "");
+    }
+}
@@ -0,0 +1,171 @@
+package org.headroyce.lross2024;
+
+/**
+ * Holds the game to its time budget when it gets too busy, by lowering quality a step at a time, and gives the
+ * quality back once there is room again. Every frame it is told how long the last tick took and how long drawing
+ * took. Only work counts, never the time spent waiting for the next frame, so an idle game has a load near 0
+ * whatever the display's refresh rate. The load is the larger of the tick against its budget and the tick and the
+ * drawing together against the frame budget, smoothed over a few frames. A load over one for DEGRADE_WAIT takes
+ * the next step down, a load under RESTORE_LOAD for RESTORE_WAIT takes a step back up. Every change is printed.
+ *
+ * The steps (each keeps the ones before it) skip drawing tiny enemies, draw the play field at half resolution,
+ * halve the spawn chances, and stop spawning over the number of enemies there were when that step was taken.
+ * The last two change the game, so they are given to the engine (which records them) rather than just drawn.
+ * -Dgame.governor=false turns it off.
+ */
+public class Governor {
+
+    public static final boolean ENABLED = !"false".equalsIgnoreCase(System.getProperty("game.governor"));
+
+    // Budgets for one tick and for one frame, in milliseconds (-Dgame.governor.tick, -Dgame.governor.frame)
+    private static final double TICK_BUDGET = Double.parseDouble(System.getProperty("game.governor.tick", "12"));
+    private static final double FRAME_BUDGET = Double.parseDouble(System.getProperty("game.governor.frame", "20"));
+
+    // Enemies under this size (both ways) are not drawn from SKIP_TINY on (-Dgame.governor.tiny)
+    private static final double TINY = Double.parseDouble(System.getProperty("game.governor.tiny", "4"));
+
+    // How much of each frame's load goes into the smoothed load
+    private static final double SMOOTHING = 0.1;
+    // Under this load there is room to step back up
+    private static final double RESTORE_LOAD = 0.5;
+    // Nanoseconds the load has to stay over one to step down, and under RESTORE_LOAD to step up (both counted from
+    // the last change at the earliest)
+    private static final long DEGRADE_WAIT = 500000000L;
+    private static final long RESTORE_WAIT = 3000000000L;
+
+    // Resolution and spawn percent once their steps are taken
+    private static final double LOW_RESOLUTION = 0.5;
+    private static final int THROTTLED_PERCENT = 50;
+
+    /**
+     * the quality steps, best first
+     */
+    public enum Level {
+        FULL("full quality"),
+        SKIP_TINY("tiny enemies not drawn"),
+        LOW_RESOLUTION("half resolution"),
+        THROTTLE_SPAWNS("half the spawns"),
+        CAP_ENEMIES("enemies capped");
+
+        private final String label;
+
+        Level(String label) {
+            this.label = label;
+        }
+
+        /**
+         * Get what the step does, as it is printed
+         * @return the step's label
+         */
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    private static final Level[] LEVELS = Level.values();
+
+    private Level level = Level.FULL;
+    private double load;
+    private boolean started;
+    private long lastChange;
+    // When the load last went over one, and under RESTORE_LOAD (only meaningful while it still is)
+    private long overSince, underSince;
+    private int enemyCap = GameEngine.NO_CAP;
+
+    /**
+     * takes one frame's times into the load and changes level if it has been too high or low for long enough
+     * @param now the time of the frame (nanoseconds)
+     * @param tickNanos how long the last tick took (0 if it is not known)
+     * @param drawNanos how long drawing the frame took
+     * @param enemies how many enemies there are, which becomes the cap if enemies get capped
+     * @return true if the level changed
+     */
+    public boolean update(long now, long tickNanos, long drawNanos, int enemies) {
+        long frameNanos = tickNanos + drawNanos;
+        double frameLoad = Math.max(tickNanos / (TICK_BUDGET * 1e6), frameNanos / (FRAME_BUDGET * 1e6));
+        if (!started) {
+            started = true;
+            lastChange = now;
+            load = frameLoad;
+        }
+        double previous = load;
+        load += (frameLoad - load) * SMOOTHING;
+        if (load > 1 && previous <= 1) {
+            overSince = now;
+        }
+        if (load < RESTORE_LOAD && previous >= RESTORE_LOAD) {
+            underSince = now;
+        }
+
+        int step = level.ordinal();
+        long since = now - lastChange;
+        if (load > 1 && step < LEVELS.length - 1 && since >= DEGRADE_WAIT && now - overSince >= DEGRADE_WAIT) {
+            step++;
+        } else if (load < RESTORE_LOAD && step > 0 && since >= RESTORE_WAIT && now - underSince >= RESTORE_WAIT) {
+            step--;
+        } else {
+            return false;
+        }
+
+        Level from = level;
+        level = LEVELS[step];
+        lastChange = now;
+        enemyCap = level == Level.CAP_ENEMIES ? Math.max(1, enemies) : GameEngine.NO_CAP;
+        System.out.printf("Governor: %s -> %s (load %.2f, tick %.2f ms, frame %.2f ms, %d enemies)%n",
+                from.getLabel(), level.getLabel(), load, tickNanos / 1e6, frameNanos / 1e6, enemies);
+        return true;
+    }
+
+    /**
+     * Get the quality step the game is on
+     * @return the level
+     */
+    public Level getLevel() {
+        return level;
+    }
+
+    /**
+     * Get the smoothed load: 1 is exactly on budget
+     * @return the load
+     */
+    public double getLoad() {
+        return load;
+    }
+
+    /**
+     * Get the size enemies have to reach (one way or the other) to be drawn
+     * @return 0 until tiny enemies are skipped
+     */
+    public double getMinDrawnSize() {
+        return level.compareTo(Level.SKIP_TINY) >= 0 ? TINY : 0;
+    }
+
+    /**
+     * Get the resolution the play field is drawn at
+     * @return 1 for full resolution, less to draw fewer pixels
+     */
+    public double getResolution() {
+        return level.compareTo(Level.LOW_RESOLUTION) >= 0 ? LOW_RESOLUTION : 1;
+    }
+
+    /**
+     * Get the percent of the spawn chances the game should spawn at (see GameEngine.setSpawnThrottle)
+     * @return 100 until spawns are throttled
+     */
+    public int getSpawnPercent() {
+        return level.compareTo(Level.THROTTLE_SPAWNS) >= 0 ? THROTTLED_PERCENT : 100;
+    }
+
+    /**
+     * Get the number of enemies the game should stop spawning at (see GameEngine.setSpawnThrottle)
+     * @return the cap, or GameEngine.NO_CAP until enemies are capped
+     */
+    public int getEnemyCap() {
+        return enemyCap;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s (load %.2f)", level.getLabel(), load);
+    }
+}
@@ -0,0 +1,73 @@
+package org.headroyce.lross2024;
+
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.text.Text;
+
+/**
+ * Draws the score and lives onto their own canvas layer above the play field. The layer is only redrawn when
+ * the score, the lives or the size of the canvas change, and the text is only measured when it changes.
+ */
+public class Hud {
+    private int score;
+    private long lives;
+    private double width, height;
+    private boolean dirty;
+
+    private String scoreText, livesText;
+    private Text livesLayout;
+    private double livesWidth;
+
+    /**
+     * makes a hud that draws on its first render
+     */
+    public Hud() {
+        livesLayout = new Text();
+        dirty = true;
+    }
+
+    /**
+     * draws the score and lives if anything changed since the last time
+     * @param canvas the hud layer
+     * @param score the player's score
+     * @param lives the player's lives
+     * @return true if the layer was redrawn
+     */
+    public boolean render(Canvas canvas, int score, long lives) {
+        if (!dirty && score == this.score && lives == this.lives
+                && canvas.getWidth() == width && canvas.getHeight() == height) {
+            return false;
+        }
+
+        if (dirty || score != this.score || scoreText == null) {
+            scoreText = "Score: " + score;
+        }
+        if (dirty || lives != this.lives || livesText == null) {
+            livesText = "Lives: " + lives;
+            livesLayout.setText(livesText);
+            livesWidth = livesLayout.getLayoutBounds().getWidth();
+        }
+        this.score = score;
+        this.lives = lives;
+        width = canvas.getWidth();
+        height = canvas.getHeight();
+        dirty = false;
+
+        GraphicsContext gc = canvas.getGraphicsContext2D();
+        gc.clearRect(0, 0, width, height);
+        gc.strokeText(scoreText, 10, 30);
+        gc.strokeText(livesText, width - 10 - livesWidth, 20);
+        return true;
+    }
+
+    /**
+     * clears the hud layer; the next render draws it again
+     * @param canvas the hud layer
+     */
+    public void clear(Canvas canvas) {
+        if (!dirty) {
+            canvas.getGraphicsContext2D().clearRect(0, 0, canvas.getWidth(), canvas.getHeight());
+            dirty = true;
+        }
+    }
+}
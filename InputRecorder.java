@@ -0,0 +1,165 @@
+package org.headroyce.lross2024;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Records a game so InputReplay can play it again exactly: the seed it started with, and every force applied or
+ * removed and every change of size with the tick it took effect on. Each game is written to its own file in a
+ * directory when it ends.
+ *
+ * The file is a small header (MAGIC, VERSION, seed) followed by one unsigned varint per event holding the ticks
+ * since the previous event shifted left by CODE_BITS plus the event code; a size change is followed by the width
+ * and height as two 8 byte doubles, and a change of spawn throttle by its percent and enemy cap as two varints
+ * (version 2 on). Input changes a few times a second at most, so most events take one or two
+ * bytes.
+ */
+public class InputRecorder {
+
+    static final int MAGIC = 0x4d4f4f44;  // "MOOD"
+    static final int VERSION = 2;
+
+    // Event codes: a press is the direction's ordinal, a release is RELEASE plus the ordinal
+    static final int CODE_BITS = 4;
+    static final int RELEASE = GameEngine.DIRECTION.values().length;
+    static final int RESIZE = 2 * RELEASE;
+    static final int END = RESIZE + 1;
+    static final int THROTTLE = END + 1;
+
+    private Path directory;
+
+    private byte[] bytes;
+    private int length;
+    private long seed;
+    private long lastTick;
+    private boolean recording;
+
+    /**
+     * makes a recorder that saves games into a directory (made if needed)
+     * @param directory where to save the games
+     */
+    public InputRecorder(Path directory) {
+        this.directory = directory;
+        bytes = new byte[256];
+    }
+
+    /**
+     * starts recording a new game (called by GameEngine.reset)
+     * @param seed the game's seed
+     * @param width width of the play field
+     * @param height height of the play field
+     */
+    public void start(long seed, double width, double height) {
+        this.seed = seed;
+        length = 0;
+        lastTick = 0;
+        recording = true;
+
+        writeInt(MAGIC);
+        writeVarint(VERSION);
+        writeLong(seed);
+        resize(0, width, height);
+    }
+
+    /**
+     * records a force being applied or removed
+     * @param tick the tick it takes effect on
+     * @param direction the direction of the force
+     * @param pressed true if applied, false if removed
+     */
+    public void force(long tick, GameEngine.DIRECTION direction, boolean pressed) {
+        event(tick, pressed ? direction.ordinal() : RELEASE + direction.ordinal());
+    }
+
+    /**
+     * records a change of size
+     * @param tick the tick it takes effect on
+     * @param width the new width
+     * @param height the new height
+     */
+    public void resize(long tick, double width, double height) {
+        if (event(tick, RESIZE)) {
+            writeLong(Double.doubleToLongBits(width));
+            writeLong(Double.doubleToLongBits(height));
+        }
+    }
+
+    /**
+     * records a change of spawn throttle (see GameEngine.setSpawnThrottle)
+     * @param tick the tick it takes effect on
+     * @param percent the percent of the spawn chances
+     * @param cap the enemy cap
+     */
+    public void throttle(long tick, int percent, int cap) {
+        if (event(tick, THROTTLE)) {
+            writeVarint(percent);
+            writeVarint(cap);
+        }
+    }
+
+    /**
+     * ends the game being recorded and saves it (does nothing if no game is being recorded)
+     * @param tick the last tick of the game
+     */
+    public void finish(long tick) {
+        if (!event(tick, END)) {
+            return;
+        }
+        recording = false;
+
+        Path file = directory.resolve(fileName(seed));
+        try {
+            Files.createDirectories(directory);
+            Files.write(file, Arrays.copyOf(bytes, length));
+        } catch (IOException e) {
+            System.err.println("Could not save the recording " + file + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Get the name a game is saved under
+     * @param seed the game's seed
+     * @return the file name
+     */
+    public static String fileName(long seed) {
+        return "game-" + Long.toHexString(seed) + ".rec";
+    }
+
+    private boolean event(long tick, int code) {
+        if (!recording) {
+            return false;
+        }
+        writeVarint((Math.max(0, tick - lastTick) << CODE_BITS) | code);
+        lastTick = Math.max(lastTick, tick);
+        return true;
+    }
+
+    private void writeVarint(long value) {
+        while ((value & ~0x7FL) != 0) {
+            writeByte((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        writeByte((int) value);
+    }
+
+    private void writeInt(int value) {
+        for (int shift = 24; shift >= 0; shift -= 8) {
+            writeByte(value >>> shift);
+        }
+    }
+
+    private void writeLong(long value) {
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            writeByte((int) (value >>> shift));
+        }
+    }
+
+    private void writeByte(int b) {
+        if (length == bytes.length) {
+            bytes = Arrays.copyOf(bytes, bytes.length * 2);
+        }
+        bytes[length++] = (byte) b;
+    }
+}
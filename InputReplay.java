@@ -0,0 +1,214 @@
+package org.headroyce.lross2024;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Plays back a game saved by InputRecorder. It is the engine's input source: every tick it applies the forces and
+ * size changes recorded for that tick, so the engine plays exactly the recorded game (with the same game.*
+ * options, which change the order enemies are kept in).
+ */
+public class InputReplay implements InputSource {
+
+    private static final GameEngine.DIRECTION[] DIRECTIONS = GameEngine.DIRECTION.values();
+
+    private long seed;
+    private long endTick;
+
+    // Events in order: the tick each takes effect on, its code, and the size for RESIZE events
+    private int count;
+    private long[] ticks;
+    private int[] codes;
+    private double[] widths, heights;
+    // Percent and enemy cap of THROTTLE events
+    private int[] percents, caps;
+
+    private int next;
+
+    /**
+     * reads a recording from a file
+     * @param file the recording
+     * @throws IOException if the file cannot be read or is not a recording
+     */
+    public InputReplay(Path file) throws IOException {
+        this(Files.readAllBytes(file), file.toString());
+    }
+
+    /**
+     * reads a recording
+     * @param bytes the recording
+     * @param name what to call it in errors
+     * @throws IOException if it is not a recording
+     */
+    public InputReplay(byte[] bytes, String name) throws IOException {
+        Reader in = new Reader(bytes);
+        if (bytes.length < 4 || in.readInt() != InputRecorder.MAGIC) {
+            throw new IOException(name + " is not a recording");
+        }
+        long version = in.readVarint();
+        if (version < 1 || version > InputRecorder.VERSION) {
+            throw new IOException(name + " is a version " + version + " recording");
+        }
+        seed = in.readLong();
+
+        ticks = new long[16];
+        codes = new int[16];
+        widths = new double[16];
+        heights = new double[16];
+        percents = new int[16];
+        caps = new int[16];
+        long tick = 0;
+        while (in.available() > 0) {
+            long event = in.readVarint();
+            tick += event >>> InputRecorder.CODE_BITS;
+            int code = (int) (event & ((1 << InputRecorder.CODE_BITS) - 1));
+            if (code == InputRecorder.END) {
+                break;
+            }
+            if (code > InputRecorder.THROTTLE) {
+                throw new IOException(name + " has an unknown event " + code);
+            }
+            if (count == ticks.length) {
+                ticks = Arrays.copyOf(ticks, count * 2);
+                codes = Arrays.copyOf(codes, count * 2);
+                widths = Arrays.copyOf(widths, count * 2);
+                heights = Arrays.copyOf(heights, count * 2);
+                percents = Arrays.copyOf(percents, count * 2);
+                caps = Arrays.copyOf(caps, count * 2);
+            }
+            ticks[count] = tick;
+            codes[count] = code;
+            if (code == InputRecorder.RESIZE) {
+                widths[count] = Double.longBitsToDouble(in.readLong());
+                heights[count] = Double.longBitsToDouble(in.readLong());
+            } else if (code == InputRecorder.THROTTLE) {
+                percents[count] = (int) in.readVarint();
+                caps[count] = (int) in.readVarint();
+            }
+            count++;
+        }
+        // A recording cut short still plays up to its last event
+        endTick = tick;
+
+        if (count == 0 || ticks[0] != 0 || codes[0] != InputRecorder.RESIZE) {
+            throw new IOException(name + " does not start with the size of the game");
+        }
+    }
+
+    /**
+     * Get the seed the recorded game started with
+     * @return the seed
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Get the last tick of the recorded game
+     * @return the tick the recording ends on
+     */
+    public long getEndTick() {
+        return endTick;
+    }
+
+    /**
+     * makes an engine set up to play the recording (it is the engine's input source)
+     * @return the new engine, at tick 0
+     */
+    public GameEngine newEngine() {
+        GameEngine engine = new GameEngine(widths[0], heights[0], seed);
+        engine.setInputSource(this);
+        next = 1;
+        return engine;
+    }
+
+    /**
+     * starts the recording again on an engine (which it becomes the input source of)
+     * @param engine the engine to play on
+     */
+    public void restart(GameEngine engine) {
+        engine.setSize(widths[0], heights[0]);
+        engine.setSpawnThrottle(100, GameEngine.NO_CAP);
+        engine.reset(seed);
+        engine.setInputSource(this);
+        next = 1;
+    }
+
+    /**
+     * Check if an engine has played the whole recording
+     * @param engine the engine playing it
+     * @return true once the engine is at the end of the recording or the game is over
+     */
+    public boolean isFinished(GameEngine engine) {
+        return engine.isGameOver() || engine.getTick() >= endTick;
+    }
+
+    @Override
+    public void poll(GameEngine engine, long tick) {
+        for (; next < count && ticks[next] <= tick; next++) {
+            int code = codes[next];
+            if (code == InputRecorder.RESIZE) {
+                engine.setSize(widths[next], heights[next]);
+            } else if (code == InputRecorder.THROTTLE) {
+                engine.setSpawnThrottle(percents[next], caps[next]);
+            } else if (code < InputRecorder.RELEASE) {
+                engine.applyForce(DIRECTIONS[code]);
+            } else {
+                engine.removeForce(DIRECTIONS[code - InputRecorder.RELEASE]);
+            }
+        }
+    }
+
+    /**
+     * reads the numbers written by InputRecorder
+     */
+    private static class Reader {
+        private byte[] bytes;
+        private int position;
+
+        private Reader(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        private int available() {
+            return bytes.length - position;
+        }
+
+        private int readByte() throws IOException {
+            if (position == bytes.length) {
+                throw new IOException("recording ends in the middle of an event");
+            }
+            return bytes[position++] & 0xFF;
+        }
+
+        private long readVarint() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IOException("varint is too long");
+        }
+
+        private int readInt() throws IOException {
+            int value = 0;
+            for (int i = 0; i < 4; i++) {
+                value = (value << 8) | readByte();
+            }
+            return value;
+        }
+
+        private long readLong() throws IOException {
+            long value = 0;
+            for (int i = 0; i < 8; i++) {
+                value = (value << 8) | readByte();
+            }
+            return value;
+        }
+    }
+}
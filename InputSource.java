@@ -0,0 +1,15 @@
+package org.headroyce.lross2024;
+
+/**
+ * gives input to a GameEngine. the engine asks its input source once at the start of every tick, so input always
+ * lands at a known point in the game.
+ */
+public interface InputSource {
+
+    /**
+     * called at the start of every tick, before forces are applied to the player
+     * @param engine the engine being ticked; call applyForce/removeForce on it to give input
+     * @param tick the number of the tick about to run (the first tick is 1)
+     */
+    void poll(GameEngine engine, long tick);
+}
@@ -0,0 +1,224 @@
+package org.headroyce.lross2024;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts latencies in log buckets: one per unit (a microsecond by default) up to 8 units, then 8 buckets between
+ * each power of two and the next, so every bucket is within 12.5% of its latency.
+ *
+ * One thread records; recording is a few plain stores (no locks, no compare and swap, no allocation) so it can be
+ * left on in every tick. any thread can read while it records, and sees counts that are at most a few records old.
+ */
+public class LatencyHistogram {
+
+    // Buckets per power of two (as bits) and in all, which covers 2^28 units
+    private static final int SUB_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int BUCKETS = 28 * SUB_BUCKETS;
+
+    private long unitNanos;
+
+    private AtomicLongArray counts;
+    private AtomicLong count;
+    private AtomicLong totalNanos;
+    private AtomicLong maxNanos;
+
+    /**
+     * makes an empty histogram with microsecond buckets (up to about 4.5 minutes)
+     */
+    public LatencyHistogram() {
+        this(1000);
+    }
+
+    /**
+     * makes an empty histogram
+     * @param unitNanos the width of the smallest buckets in nanoseconds (1 for nanosecond buckets, up to about
+     *                  a quarter of a second)
+     */
+    public LatencyHistogram(long unitNanos) {
+        this.unitNanos = Math.max(1, unitNanos);
+        counts = new AtomicLongArray(BUCKETS);
+        count = new AtomicLong();
+        totalNanos = new AtomicLong();
+        maxNanos = new AtomicLong();
+    }
+
+    /**
+     * counts one latency (only ever call this from one thread at a time)
+     * @param nanos the latency in nanoseconds (negatives count as zero)
+     */
+    public void record(long nanos) {
+        nanos = Math.max(0, nanos);
+        int bucket = bucketOf(nanos / unitNanos);
+        counts.setRelease(bucket, counts.getPlain(bucket) + 1);
+        totalNanos.setRelease(totalNanos.getPlain() + nanos);
+        if (nanos > maxNanos.getPlain()) {
+            maxNanos.setRelease(nanos);
+        }
+        count.setRelease(count.getPlain() + 1);
+    }
+
+    /**
+     * Get the number of latencies counted
+     * @return how many were recorded
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * Get the mean latency
+     * @return the mean in nanoseconds, 0 if nothing was recorded
+     */
+    public double getMeanNanos() {
+        long n = count.get();
+        return n == 0 ? 0 : (double) totalNanos.get() / n;
+    }
+
+    /**
+     * Get the longest latency
+     * @return the maximum in nanoseconds
+     */
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    /**
+     * Get a latency that a fraction of all latencies are under
+     * @param fraction from 0 to 1, e.g. 0.99 for the 99th percentile
+     * @return the top of the bucket the percentile falls in, in nanoseconds (0 if nothing was recorded)
+     */
+    public long getPercentileNanos(double fraction) {
+        long n = count.get();
+        if (n == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(fraction * n);
+        long seen = 0;
+        for (int k = 0; k < BUCKETS; k++) {
+            seen += counts.get(k);
+            if (seen >= rank) {
+                return Math.min(upperBound(k) * unitNanos, maxNanos.get());
+            }
+        }
+        return maxNanos.get();
+    }
+
+    /**
+     * Get how many latencies are in a bucket
+     * @param bucket the bucket, from 0 to getBuckets() - 1
+     * @return the number in the bucket
+     */
+    public long getBucketCount(int bucket) {
+        return counts.get(bucket);
+    }
+
+    /**
+     * Get the number of buckets
+     * @return how many buckets there are
+     */
+    public int getBuckets() {
+        return BUCKETS;
+    }
+
+    /**
+     * Get the lowest latency in a bucket
+     * @param bucket the bucket
+     * @return the lowest latency it holds, in units
+     */
+    public static long lowerBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        return (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+    }
+
+    /**
+     * Get the latency just past a bucket
+     * @param bucket the bucket
+     * @return the lowest latency the next bucket holds, in units
+     */
+    public static long upperBound(int bucket) {
+        return lowerBound(bucket + 1);
+    }
+
+    private static int bucketOf(long units) {
+        if (units < SUB_BUCKETS) {
+            return (int) units;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(units) - SUB_BITS;
+        int bucket = (shift + 1) * SUB_BUCKETS + (int) ((units >>> shift) & (SUB_BUCKETS - 1));
+        return Math.min(BUCKETS - 1, bucket);
+    }
+
+    /**
+     * counts everything another histogram has counted, as if it had been recorded here (only from the thread that
+     * records into this one, or while nothing does)
+     * @param other a histogram with the same unit
+     * @throws IllegalArgumentException if the histograms have different units
+     */
+    public void add(LatencyHistogram other) {
+        if (other.unitNanos != unitNanos) {
+            throw new IllegalArgumentException("histograms have different units");
+        }
+        for (int k = 0; k < BUCKETS; k++) {
+            long n = other.counts.get(k);
+            if (n > 0) {
+                counts.setRelease(k, counts.getPlain(k) + n);
+            }
+        }
+        totalNanos.setRelease(totalNanos.getPlain() + other.totalNanos.get());
+        long max = other.maxNanos.get();
+        if (max > maxNanos.getPlain()) {
+            maxNanos.setRelease(max);
+        }
+        count.setRelease(count.getPlain() + other.count.get());
+    }
+
+    /**
+     * forgets everything counted so far (from the recording thread, or while nothing records)
+     */
+    public void clear() {
+        for (int k = 0; k < BUCKETS; k++) {
+            counts.set(k, 0);
+        }
+        count.set(0);
+        totalNanos.set(0);
+        maxNanos.set(0);
+    }
+
+    /**
+     * the count, mean, percentiles and max on one line, then one line per non-empty bucket
+     */
+    @Override
+    public String toString() {
+        StringBuilder rtn = new StringBuilder(String.format("n=%d mean=%s p50=%s p99=%s p999=%s max=%s",
+                getCount(), format(getMeanNanos()), format(getPercentileNanos(0.5)),
+                format(getPercentileNanos(0.99)), format(getPercentileNanos(0.999)), format(getMaxNanos())));
+        for (int k = 0; k < BUCKETS; k++) {
+            long n = counts.get(k);
+            if (n > 0) {
+                rtn.append(String.format("%n  %10s - %10s %8d", format(lowerBound(k) * unitNanos),
+                        format(upperBound(k) * unitNanos), n));
+            }
+        }
+        return rtn.toString();
+    }
+
+    /**
+     * writes a time in the unit that suits it (ns, us or ms)
+     * @param nanos the time in nanoseconds
+     * @return the time as text
+     */
+    public static String format(double nanos) {
+        if (nanos < 1000) {
+            return String.format("%.0fns", nanos);
+        }
+        if (nanos < 1000000) {
+            return String.format("%.1fus", nanos / 1e3);
+        }
+        return String.format("%.2fms", nanos / 1e6);
+    }
+}
@@ -0,0 +1,420 @@
+package org.headroyce.lross2024;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Keeps every finished game in a directory: each run (score, seconds, ticks, seed and when it ended) is appended to
+ * an append only log, and the best TOP runs are kept in memory for the game over screen. The run goes into the
+ * index straight away, but the disk is only touched by the leaderboard's own thread, so a game ending never waits
+ * on it.
+ *
+ * The log (LOG) is a header followed by fixed size RUN_BYTES records, written through a memory mapped window that
+ * moves along the file MAP_BYTES at a time. A record's time is written last and is never 0, so the log ends at the
+ * first record without one; whatever mapping the window left past that is cut off on close. Every CHECKPOINT_EVERY
+ * runs, and on close, the index and how much of the log it covers are written to a checkpoint (CHECKPOINT), so
+ * opening only reads the checkpoint and the runs after it, however many runs the log holds. Without a usable
+ * checkpoint the whole log is read instead.
+ *
+ * Both files are little endian.
+ */
+public class Leaderboard {
+
+    public static final String LOG = "scores.log";
+    public static final String CHECKPOINT = "scores.top";
+
+    // How many of the best runs are kept (-Dgame.scores.top=100)
+    public static final int TOP = Math.max(1, Integer.getInteger("game.scores.top", 100));
+
+    static final int LOG_MAGIC = 0x474f4c4d;         // "MLOG"
+    static final int CHECKPOINT_MAGIC = 0x504f544d;  // "MTOP"
+    static final int VERSION = 1;
+
+    // The log header is padded to a record so records stay aligned
+    static final int RUN_BYTES = 32;
+    static final int HEADER_BYTES = RUN_BYTES;
+    private static final int CHECKPOINT_HEADER = 2 * Integer.BYTES + 2 * Long.BYTES + Integer.BYTES;
+
+    private static final long MAP_BYTES = 1 << 20;
+    private static final int CHECKPOINT_EVERY = 4096;
+
+    /**
+     * one finished game
+     */
+    public static final class Run {
+        public final int score;
+        public final int seconds;
+        public final long ticks;
+        public final long seed;
+        // When it ended, in milliseconds since the epoch
+        public final long time;
+
+        public Run(int score, int seconds, long ticks, long seed, long time) {
+            this.score = score;
+            this.seconds = seconds;
+            this.ticks = ticks;
+            this.seed = seed;
+            this.time = time;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d points, %d s, seed %s, %s", score, seconds, Long.toHexString(seed),
+                    Instant.ofEpochMilli(time));
+        }
+    }
+
+    /**
+     * the best runs, best first and among equal scores the earlier run first, and how many runs there have been
+     */
+    private static final class Index {
+        private final Run[] top = new Run[TOP];
+        private int count;
+        private long runs;
+
+        private void add(Run run) {
+            runs++;
+            // Runs with the same score stay ahead of this one
+            int at = run.score == Integer.MIN_VALUE ? count : above(run.score - 1);
+            if (at >= TOP) {
+                return;
+            }
+            System.arraycopy(top, at, top, at + 1, Math.min(count, TOP - 1) - at);
+            top[at] = run;
+            count = Math.min(count + 1, TOP);
+        }
+
+        /**
+         * how many of the best runs scored more than a score
+         */
+        private int above(int score) {
+            int low = 0, high = count;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (top[mid].score > score) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        private Index copy() {
+            Index copy = new Index();
+            System.arraycopy(top, 0, copy.top, 0, count);
+            copy.count = count;
+            copy.runs = runs;
+            return copy;
+        }
+    }
+
+    // A run put on the queue to stop the writer
+    private static final Run CLOSE = new Run(0, 0, 0, 0, 0);
+
+    private final Path directory;
+
+    // Every run added, for the game; guarded by this
+    private final Index index;
+
+    // Only the writer thread touches these once it has started: the runs in the log, and the log
+    private final Index logged;
+    private final FileChannel log;
+    private MappedByteBuffer window;
+    private long windowStart;
+    private long end;
+    private int sinceCheckpoint;
+
+    private final LinkedBlockingQueue<Run> queue;
+    private final Thread writer;
+
+    private Leaderboard(Path directory) throws IOException {
+        this.directory = directory;
+        queue = new LinkedBlockingQueue<>();
+
+        Files.createDirectories(directory);
+        log = FileChannel.open(directory.resolve(LOG), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            if (log.size() == 0) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+                header.putInt(0, LOG_MAGIC).putInt(4, VERSION);
+                log.write(header, 0);
+            }
+            checkHeader();
+            Index checkpoint = readCheckpoint();
+            logged = checkpoint != null ? checkpoint : new Index();
+            end = scan(checkpoint != null ? end : HEADER_BYTES);
+            mapWindow(end);
+        } catch (IOException e) {
+            log.close();
+            throw e;
+        }
+        index = logged.copy();
+
+        writer = new Thread(this::write, "leaderboard");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * opens the leaderboard kept in a directory (made if needed), and starts its writer thread
+     * @param directory where the log and checkpoint are
+     * @return the leaderboard
+     * @throws IOException if the files cannot be opened or are not a leaderboard
+     */
+    public static Leaderboard open(Path directory) throws IOException {
+        return new Leaderboard(directory);
+    }
+
+    /**
+     * adds a finished game: it is in the index when this returns, and written to the log soon after. it never waits
+     * on the disk, so the engine can call it as a game ends
+     * @param score the final score
+     * @param seconds how long the game lasted
+     * @param ticks how many ticks it lasted
+     * @param seed the game's seed
+     */
+    public void add(int score, int seconds, long ticks, long seed) {
+        Run run = new Run(score, seconds, ticks, seed, Math.max(1, System.currentTimeMillis()));
+        synchronized (this) {
+            index.add(run);
+        }
+        queue.add(run);
+    }
+
+    /**
+     * Get how many runs there have been
+     * @return the number of runs, all time
+     */
+    public synchronized long getRuns() {
+        return index.runs;
+    }
+
+    /**
+     * Get the best score
+     * @return the best score, or 0 if there have been no runs
+     */
+    public synchronized int getBest() {
+        return index.count == 0 ? 0 : index.top[0].score;
+    }
+
+    /**
+     * Get where a score places among the best runs
+     * @param score the score
+     * @return 1 for the best score (ties share the best place), or -1 if it is not among the TOP best
+     */
+    public synchronized int getRank(int score) {
+        int rank = index.above(score) + 1;
+        return rank <= TOP ? rank : -1;
+    }
+
+    /**
+     * Get the best runs
+     * @return up to TOP runs, best first
+     */
+    public synchronized Run[] getTop() {
+        return Arrays.copyOf(index.top, index.count);
+    }
+
+    /**
+     * writes what is queued, checkpoints and closes the files. waits for the writer thread to finish
+     */
+    public void close() {
+        queue.add(CLOSE);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * the writer thread: appends runs to the log as they come and checkpoints every so often
+     */
+    private void write() {
+        try {
+            for (Run run = queue.take(); run != CLOSE; run = queue.take()) {
+                append(run);
+                if (++sinceCheckpoint >= CHECKPOINT_EVERY) {
+                    writeCheckpoint();
+                }
+            }
+            if (sinceCheckpoint > 0) {
+                writeCheckpoint();
+            }
+            window.force();
+            window = null;
+            log.truncate(end);
+        } catch (IOException e) {
+            System.err.println("Could not write the leaderboard in " + directory + ": " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            try {
+                log.close();
+            } catch (IOException e) {
+                // Nothing more to do with it
+            }
+        }
+    }
+
+    private void append(Run run) throws IOException {
+        if (end + RUN_BYTES > windowStart + window.capacity()) {
+            mapWindow(end);
+        }
+        int at = (int) (end - windowStart);
+        window.putLong(at + 8, run.seed);
+        window.putLong(at + 16, run.ticks);
+        window.putInt(at + 24, run.score);
+        window.putInt(at + 28, run.seconds);
+        // Last, so a record without its time was never finished
+        window.putLong(at, run.time);
+        end += RUN_BYTES;
+        logged.add(run);
+    }
+
+    private void mapWindow(long start) throws IOException {
+        windowStart = start;
+        window = log.map(FileChannel.MapMode.READ_WRITE, start, MAP_BYTES);
+        window.order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private void checkHeader() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        if (log.read(header, 0) < HEADER_BYTES || header.getInt(0) != LOG_MAGIC) {
+            throw new IOException(directory.resolve(LOG) + " is not a leaderboard");
+        }
+        if (header.getInt(4) != VERSION) {
+            throw new IOException(directory.resolve(LOG) + " is a version " + header.getInt(4) + " leaderboard");
+        }
+    }
+
+    /**
+     * reads the runs in the log from some offset into the index, a window at a time
+     * @return where the log ends
+     */
+    private long scan(long from) throws IOException {
+        long size = log.size();
+        long at = from;
+        while (at + RUN_BYTES <= size) {
+            long length = Math.min(MAP_BYTES, (size - at) / RUN_BYTES * RUN_BYTES);
+            MappedByteBuffer in = log.map(FileChannel.MapMode.READ_ONLY, at, length);
+            in.order(ByteOrder.LITTLE_ENDIAN);
+            for (int i = 0; i < length; i += RUN_BYTES) {
+                Run run = read(in, i);
+                if (run == null) {
+                    return at + i;
+                }
+                logged.add(run);
+            }
+            at += length;
+        }
+        return at;
+    }
+
+    private static Run read(ByteBuffer in, int at) {
+        long time = in.getLong(at);
+        if (time == 0) {
+            return null;
+        }
+        return new Run(in.getInt(at + 24), in.getInt(at + 28), in.getLong(at + 16), in.getLong(at + 8), time);
+    }
+
+    /**
+     * loads the index from the checkpoint, if there is one that fits the log
+     * @return the index, or null if there is no usable checkpoint (otherwise end is where it stops covering the log)
+     */
+    private Index readCheckpoint() throws IOException {
+        Path file = directory.resolve(CHECKPOINT);
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < CHECKPOINT_HEADER) {
+                return null;
+            }
+            MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            in.order(ByteOrder.LITTLE_ENDIAN);
+            if (in.getInt() != CHECKPOINT_MAGIC || in.getInt() != VERSION) {
+                return null;
+            }
+            long covered = in.getLong();
+            long total = in.getLong();
+            int saved = in.getInt();
+            if (covered < HEADER_BYTES || covered > log.size() || (covered - HEADER_BYTES) % RUN_BYTES != 0
+                    || saved < 0 || size != CHECKPOINT_HEADER + (long) saved * RUN_BYTES) {
+                return null;
+            }
+            Index checkpoint = new Index();
+            for (int i = 0; i < saved; i++) {
+                Run run = read(in, CHECKPOINT_HEADER + i * RUN_BYTES);
+                if (run == null) {
+                    return null;
+                }
+                // Runs that were not in the checkpoint's index are not in this one either, whatever TOP is now
+                checkpoint.add(run);
+            }
+            checkpoint.runs = total;
+            end = covered;
+            return checkpoint;
+        }
+    }
+
+    /**
+     * writes the index and how much of the log it covers to a new checkpoint, which then replaces the old one
+     */
+    private void writeCheckpoint() throws IOException {
+        ByteBuffer out = ByteBuffer.allocate(CHECKPOINT_HEADER + logged.count * RUN_BYTES)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        out.putInt(CHECKPOINT_MAGIC).putInt(VERSION).putLong(end).putLong(logged.runs).putInt(logged.count);
+        for (int i = 0; i < logged.count; i++) {
+            Run run = logged.top[i];
+            out.putLong(run.time).putLong(run.seed).putLong(run.ticks).putInt(run.score).putInt(run.seconds);
+        }
+        out.flip();
+
+        window.force();
+        Path file = directory.resolve(CHECKPOINT);
+        Path temporary = directory.resolve(CHECKPOINT + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (out.hasRemaining()) {
+                channel.write(out);
+            }
+            channel.force(true);
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        sinceCheckpoint = 0;
+    }
+
+    /**
+     * prints the best runs kept in a directory
+     * @param args the directory (default scores)
+     * @throws IOException if the leaderboard cannot be opened
+     */
+    public static void main(String[] args) throws IOException {
+        Path directory = Paths.get(args.length > 0 ? args[0] : System.getProperty("game.scores", "scores"));
+        long start = System.nanoTime();
+        Leaderboard leaderboard = open(directory);
+        double millis = (System.nanoTime() - start) / 1e6;
+        Run[] best = leaderboard.getTop();
+        for (int i = 0; i < best.length; i++) {
+            System.out.printf("%4d. %s%n", i + 1, best[i]);
+        }
+        System.out.printf("%d runs, opened in %.1f ms%n", leaderboard.getRuns(), millis);
+        leaderboard.close();
+    }
+}
@@ -1,10 +1,5 @@
 package org.headroyce.lross2024;
 
-import javafx.geometry.Point2D;
-import javafx.scene.canvas.Canvas;
-import javafx.scene.canvas.GraphicsContext;
-import javafx.scene.paint.Color;
-
 /**
  * represents lifesaver inherited from ball
  */
@@ -24,7 +19,14 @@ public class Lifesaver extends Ball {
      */
     public Lifesaver(double radius) {
         super(radius);
-        setColor(Color.GREEN);
+    }
+
+    /**
+     * Get the type of this mob
+     * @return the lifesaver type
+     */
+    public MobType getType(){
+        return MobType.LIFESAVER;
     }
 
     /**
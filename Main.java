@@ -11,13 +11,17 @@ import javafx.stage.Stage;
  */
 public class Main extends Application {
 
+    private GameGUI root;
+
     @Override
     /**
      * creates a new javafx window (500 by 500) named "Templer"
      */
     public void start(Stage primaryStage) throws Exception{
+        Startup.mark("fx");
 
         GameGUI root = new GameGUI();
+        Startup.mark("gui");
         primaryStage.setTitle("Templer");
 
         Scene scene = new Scene(root, 500,500);
@@ -41,8 +45,20 @@ public class Main extends Application {
             }
         });
         primaryStage.show();
+        Startup.mark("shown");
 
         root.pause(false,false);
+        this.root = root;
+    }
+
+    @Override
+    /**
+     * stops the game when the window closes, so a game being recorded is saved
+     */
+    public void stop() {
+        if( root != null ){
+            root.shutdown();
+        }
     }
 
 
@@ -51,6 +67,7 @@ public class Main extends Application {
      * @param args all arguments from other classes
      */
     public static void main(String[] args) {
+        Startup.markMain();
         launch(args);
     }
     private class KeyPressHandler implements EventHandler<KeyEvent> {
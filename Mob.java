@@ -1,16 +1,9 @@
 package org.headroyce.lross2024;
 
-import javafx.geometry.Point2D;
-import javafx.scene.canvas.Canvas;
-import javafx.scene.canvas.GraphicsContext;
-import javafx.scene.paint.Color;
-
 /**
  * represents all entities in the game, all variants of mobs inherit here.
  */
 public class Mob {
-    private Color color;
-
     public double hp;
     public int score;
 
@@ -24,14 +17,26 @@ public class Mob {
     private double[] boundX, boundY;
 
     /**
-     * general constructor makes a new black object. (never used, just inherited)
+     * general constructor makes a new object. (never used, just inherited)
      */
     public Mob(){
-        setColor(Color.BLACK);
         boundX = new double[2];
         boundY = new double[2];
     }
 
+    /**
+     * puts every field back to how a new mob starts, so a pooled mob can be used again
+     */
+    public void reset(){
+        hp = 0;
+        score = 0;
+        width = height = 0;
+        x = y = 0;
+        velX = velY = 0;
+        boundX[0] = boundX[1] = 0;
+        boundY[0] = boundY[1] = 0;
+    }
+
     /**
      * Set the width of this object.  An obstacles's width must be positive.
      * @param w the new, positive, width of this object
@@ -131,29 +136,30 @@ public class Mob {
         return rtn;
     }
 
-
     /**
-     * Sets the color of the ball
-     * @param c the new color of the ball (cannot be null)
-     * @return true if the color has changed, false otherwise
+     * Get the lower bound on the velocity in the X direction (without making an array)
+     * @return the lowest x velocity
      */
-    public boolean setColor( Color c ){
-        if( c == null ){
-            return false;
-        }
+    public double getMinVelocityX() { return boundX[0]; }
 
-        color = c;
-        return true;
+    /**
+     * Get the upper bound on the velocity in the X direction (without making an array)
+     * @return the highest x velocity
+     */
+    public double getMaxVelocityX() { return boundX[1]; }
 
-    }
+    /**
+     * Get the lower bound on the velocity in the Y direction (without making an array)
+     * @return the lowest y velocity
+     */
+    public double getMinVelocityY() { return boundY[0]; }
 
     /**
-     * Get the current color of the ball
-     * @return the current color of the ball
+     * Get the upper bound on the velocity in the Y direction (without making an array)
+     * @return the highest y velocity
      */
-    public Color getColor(){
-        return this.color;
-    }
+    public double getMaxVelocityY() { return boundY[1]; }
+
 
     /**
      * Get the current hit point value of the ball
@@ -180,6 +186,14 @@ public class Mob {
         score += deltaScore;
     }
 
+    /**
+     * Get the type of this mob, used as its tag in the EntityStore
+     * @return the type of this mob
+     */
+    public MobType getType(){
+        return MobType.MOB;
+    }
+
     /**
      * Adds score to player based on what goes off screen
      * @return how much score the mob grants for going off screen.
@@ -216,23 +230,20 @@ public class Mob {
         double moveVelX = this.velX;
         double moveVelY = this.velY;
 
-        double[] boundsX = getVelocityBoundX();
-        double[] boundsY = getVelocityBoundY();
-
         // Clamp the x
-        if( moveVelX < boundsX[0] ){
-            moveVelX = boundsX[0];
+        if( moveVelX < boundX[0] ){
+            moveVelX = boundX[0];
         }
-        else if( moveVelX > boundsX[1] ){
-            moveVelX = boundsX[1];
+        else if( moveVelX > boundX[1] ){
+            moveVelX = boundX[1];
         }
 
         // Clamp the y
-        if( moveVelY < boundsY[0] ){
-            moveVelY = boundsY[0];
+        if( moveVelY < boundY[0] ){
+            moveVelY = boundY[0];
         }
-        else if( moveVelY > boundsY[1] ){
-            moveVelY = boundsY[1];
+        else if( moveVelY > boundY[1] ){
+            moveVelY = boundY[1];
         }
 
         this.x += moveVelX;
@@ -240,25 +251,14 @@ public class Mob {
     }
 
     /**
-     * Check to see if the obstacle overlaps with another obstacle
+     * Check to see if this mob overlaps another, going by their shapes (balls are circles around x, y, everything
+     * else a box from its top left corner at x, y)
      * @param other the second Mob to check intersection with
      * @return true if this objects intersect, false otherwise
      */
     public boolean intersects(Mob other){
-        if( this.x + this.getWidth() < other.x ){
-            return false;
-        }
-        if( this.x > other.x + other.getWidth()){
-            return false;
-        }
-        if( this.y + this.getHeight() < other.y ){
-            return false;
-        }
-        if( this.y > other.y + other.getHeight()){
-            return false;
-        }
-
-        return true;
+        return Narrowphase.overlaps(this.getType(), this.x, this.y, this.getWidth(), this.getHeight(),
+                other.getType(), other.x, other.y, other.getWidth(), other.getHeight());
     }
 
     /**
@@ -278,19 +278,12 @@ public class Mob {
 
     /**
      * Check to the see if a point in within the ball
-     * @param point the 2D points to check
+     * @param px x of the point to check
+     * @param py y of the point to check
      * @return true if point is within this, false otherwise
      */
-    public boolean contains(Point2D point){
+    public boolean contains(double px, double py){
         return false;
     }
 
-    /**
-     * unused, but renders mobs on canvas.
-     * @param canvas where to render the mob.
-     */
-    public void render( Canvas canvas ){
-
-    }
-
 }
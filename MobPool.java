@@ -0,0 +1,106 @@
+package org.headroyce.lross2024;
+
+import java.util.function.Supplier;
+
+/**
+ * keeps mobs that are no longer used so new ones can reuse them instead of being allocated. mobs are reset when
+ * they are handed out again. at most cap idle mobs are kept, any more are left for the garbage collector.
+ * @param <T> the kind of mob in the pool
+ */
+public class MobPool<T extends Mob> {
+    private Supplier<T> factory;
+    private Mob[] free;
+    private int freeCount;
+
+    private long hits, misses, drops;
+
+    /**
+     * makes an empty pool
+     * @param factory makes a new mob when the pool is empty (cannot be null)
+     * @param cap the most idle mobs to keep; negatives are reset to zero
+     */
+    public MobPool(Supplier<T> factory, int cap) {
+        if (factory == null) {
+            throw new IllegalArgumentException("factory cannot be null");
+        }
+        this.factory = factory;
+        free = new Mob[Math.max(0, cap)];
+    }
+
+    /**
+     * hands out a reset mob, reusing an idle one if there is one
+     * @return a mob as if it was just made
+     */
+    @SuppressWarnings("unchecked")
+    public T acquire() {
+        if (freeCount == 0) {
+            misses++;
+            return factory.get();
+        }
+        hits++;
+        T mob = (T) free[--freeCount];
+        free[freeCount] = null;
+        mob.reset();
+        return mob;
+    }
+
+    /**
+     * makes idle mobs up front so the first ones handed out are not allocated in the middle of a game
+     * @param count how many idle mobs the pool should have (at most its cap)
+     */
+    public void fill(int count) {
+        count = Math.min(count, free.length);
+        while (freeCount < count) {
+            free[freeCount++] = factory.get();
+        }
+    }
+
+    /**
+     * gives a mob back to the pool. it must not be used again until acquire hands it out.
+     * @param mob the mob that is no longer used
+     */
+    public void release(T mob) {
+        if (freeCount < free.length) {
+            free[freeCount++] = mob;
+        } else {
+            drops++;
+        }
+    }
+
+    /**
+     * Get the number of idle mobs in the pool
+     * @return how many mobs are waiting to be reused
+     */
+    public int getIdle() {
+        return freeCount;
+    }
+
+    /**
+     * Get the number of times acquire reused a mob
+     * @return the number of pool hits
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * Get the number of times acquire had to make a new mob
+     * @return the number of pool misses
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Get the number of released mobs that were not kept because the pool was full
+     * @return the number of dropped mobs
+     */
+    public long getDrops() {
+        return drops;
+    }
+
+    @Override
+    public String toString() {
+        return "hits=" + hits + " misses=" + misses + " drops=" + drops + " idle=" + freeCount;
+    }
+}
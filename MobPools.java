@@ -0,0 +1,122 @@
+package org.headroyce.lross2024;
+
+/**
+ * one pool for every kind of enemy the engine spawns
+ */
+public class MobPools {
+
+    // Most idle mobs kept per kind (-Dgame.pool.cap=...)
+    public static final int DEFAULT_CAP = Integer.getInteger("game.pool.cap", 1024);
+    // Idle mobs of each kind made when a game starts, so early spawns do not allocate
+    public static final int DEFAULT_FILL = 64;
+
+    public final MobPool<Ball> balls;
+    public final MobPool<Lifesaver> lifesavers;
+    public final MobPool<Coin> coins;
+    public final MobPool<Obstacle> obstacles;
+    public final MobPool<SpikedWall> spikedWalls;
+
+    /**
+     * makes the pools, all empty
+     * @param cap the most idle mobs kept in each pool
+     */
+    public MobPools(int cap) {
+        balls = new MobPool<>(Ball::new, cap);
+        lifesavers = new MobPool<>(Lifesaver::new, cap);
+        coins = new MobPool<>(Coin::new, cap);
+        obstacles = new MobPool<>(Obstacle::new, cap);
+        spikedWalls = new MobPool<>(() -> new SpikedWall(10, 50), cap);
+    }
+
+    /**
+     * makes idle mobs of every kind up front (see MobPool.fill)
+     * @param count how many idle mobs each pool should have
+     */
+    public void fill(int count) {
+        balls.fill(count);
+        lifesavers.fill(count);
+        coins.fill(count);
+        obstacles.fill(count);
+        spikedWalls.fill(count);
+    }
+
+    /**
+     * takes a mob of some kind from its pool
+     * @param type the kind of mob (MOB is not pooled, so it is always a new one)
+     * @return a mob of that kind, as good as new
+     */
+    public Mob acquire(MobType type) {
+        switch (type) {
+            case BALL:
+                return balls.acquire();
+            case LIFESAVER:
+                return lifesavers.acquire();
+            case COIN:
+                return coins.acquire();
+            case OBSTACLE:
+                return obstacles.acquire();
+            case SPIKED_WALL:
+                return spikedWalls.acquire();
+            default:
+                return new Mob();
+        }
+    }
+
+    /**
+     * gives a mob back to the pool for its kind
+     * @param mob the mob that is no longer used
+     */
+    public void release(Mob mob) {
+        switch (mob.getType()) {
+            case BALL:
+                balls.release((Ball) mob);
+                break;
+            case LIFESAVER:
+                lifesavers.release((Lifesaver) mob);
+                break;
+            case COIN:
+                coins.release((Coin) mob);
+                break;
+            case OBSTACLE:
+                obstacles.release((Obstacle) mob);
+                break;
+            case SPIKED_WALL:
+                spikedWalls.release((SpikedWall) mob);
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Get the total number of times a mob was reused
+     * @return pool hits over every pool
+     */
+    public long getHits() {
+        return balls.getHits() + lifesavers.getHits() + coins.getHits() + obstacles.getHits()
+                + spikedWalls.getHits();
+    }
+
+    /**
+     * Get the total number of times a new mob had to be made
+     * @return pool misses over every pool
+     */
+    public long getMisses() {
+        return balls.getMisses() + lifesavers.getMisses() + coins.getMisses() + obstacles.getMisses()
+                + spikedWalls.getMisses();
+    }
+
+    /**
+     * Get the number of mobs waiting to be reused
+     * @return idle mobs over every pool
+     */
+    public int getIdle() {
+        return balls.getIdle() + lifesavers.getIdle() + coins.getIdle() + obstacles.getIdle() + spikedWalls.getIdle();
+    }
+
+    @Override
+    public String toString() {
+        return "balls[" + balls + "] lifesavers[" + lifesavers + "] coins[" + coins + "] obstacles[" + obstacles
+                + "] spikedWalls[" + spikedWalls + "]";
+    }
+}
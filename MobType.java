@@ -0,0 +1,32 @@
+package org.headroyce.lross2024;
+
+/**
+ * the kinds of mobs in the game, stored as a small tag next to each mob's fields in the EntityStore
+ */
+public enum MobType {
+    MOB,
+    BALL,
+    LIFESAVER,
+    COIN,
+    OBSTACLE,
+    SPIKED_WALL;
+
+    private static final MobType[] TYPES = values();
+
+    /**
+     * Get the type from its tag
+     * @param tag the tag of the type (its ordinal)
+     * @return the type with that tag
+     */
+    public static MobType of(int tag) {
+        return TYPES[tag];
+    }
+
+    /**
+     * Check if this type is a ball (or something inheriting from ball)
+     * @return true for balls, lifesavers and coins
+     */
+    public boolean isBall() {
+        return this == BALL || this == LIFESAVER || this == COIN;
+    }
+}
@@ -0,0 +1,448 @@
+package org.headroyce.lross2024;
+
+import java.util.Arrays;
+
+/**
+ * The exact collision test and response for a pair of mobs, picked from tables keyed by the two type tags. Balls
+ * (and lifesavers and coins) are circles centered on x, y with a diameter of their width; everything else is a box
+ * with its top left corner at x, y. Every pair of types maps to one of three shape tests and one response, so the
+ * per pair work is a table lookup and a switch over static code: no virtual calls, views or allocation.
+ *
+ * The tests in the tick are swept: each mob moves in a straight line from where it was before the tick (prevX,
+ * prevY) to where it is at the end of the step, and the pair collides at the first moment they touch, however far
+ * they moved. Every test in a tick is against the whole step (see Pass), and once every pair has responded each mob
+ * is moved back, once, to the first moment it touched something it was apart from at the start. So nothing passes
+ * through anything else even when a step moves it further than its own size, and where a mob in several pairs ends
+ * up does not depend on the order of its pairs.
+ *
+ * The responses do to the store what Mob.bounceOff and Mob.damage (and their overrides) do to mob objects.
+ */
+public final class Narrowphase {
+
+    // Shape tests
+    private static final byte CIRCLE_CIRCLE = 0;
+    private static final byte CIRCLE_BOX = 1;
+    private static final byte BOX_CIRCLE = 2;
+    private static final byte BOX_BOX = 3;
+
+    // What happens to the pair's velocities when they touch: a bounces off b (see Mob.bounceOff)
+    private static final byte SWAP = 0;          // they trade velocities
+    private static final byte A_IS_WALL = 1;     // the spiked wall a pushes b away (SpikedWall.bounceOff)
+    private static final byte B_IS_WALL = 2;     // the spiked wall b pushes a away
+    private static final byte NOTHING = 3;       // a is a coin, which does not bounce (Coin.bounceOff)
+
+    // Returned by the swept tests when a pair does not touch during the step
+    public static final double MISS = Double.POSITIVE_INFINITY;
+
+    private static final MobType[] TYPES = MobType.values();
+    private static final int TYPE_COUNT = TYPES.length;
+
+    // [typeA * TYPE_COUNT + typeB]
+    private static final byte[] TEST = new byte[TYPE_COUNT * TYPE_COUNT];
+    private static final byte[] RESPONSE = new byte[TYPE_COUNT * TYPE_COUNT];
+
+    // Whether each type is a circle (otherwise it is a box)
+    private static final boolean[] CIRCLE = new boolean[TYPE_COUNT];
+
+    // What damage() does to a mob of each type, and what it returns (the hit points it costs whoever it hits)
+    private static final double[] HP_CHANGE = new double[TYPE_COUNT];
+    private static final int[] DAMAGE = new int[TYPE_COUNT];
+
+    static {
+        for (MobType a : TYPES) {
+            for (MobType b : TYPES) {
+                int pair = a.ordinal() * TYPE_COUNT + b.ordinal();
+                if (a.isBall()) {
+                    TEST[pair] = b.isBall() ? CIRCLE_CIRCLE : CIRCLE_BOX;
+                } else {
+                    TEST[pair] = b.isBall() ? BOX_CIRCLE : BOX_BOX;
+                }
+
+                if (a == MobType.SPIKED_WALL) {
+                    RESPONSE[pair] = A_IS_WALL;
+                } else if (b == MobType.SPIKED_WALL) {
+                    RESPONSE[pair] = B_IS_WALL;
+                } else if (a == MobType.COIN) {
+                    RESPONSE[pair] = NOTHING;
+                } else {
+                    RESPONSE[pair] = SWAP;
+                }
+            }
+
+            CIRCLE[a.ordinal()] = a.isBall();
+            HP_CHANGE[a.ordinal()] = a == MobType.SPIKED_WALL ? 1 : -1;
+            switch (a) {
+                case LIFESAVER:
+                    DAMAGE[a.ordinal()] = 1;
+                    break;
+                case COIN:
+                    DAMAGE[a.ordinal()] = 0;
+                    break;
+                default:
+                    DAMAGE[a.ordinal()] = -1;
+                    break;
+            }
+        }
+    }
+
+    private Narrowphase() {
+    }
+
+    /**
+     * one pass of the narrowphase over a tick. it keeps where the enemies and the player were at the end of the step,
+     * so every swept test is against the whole step however many pairs a mob is in (and whatever the responses
+     * before it did), and the first moment each of them touched something it was apart from at the start.
+     */
+    public static final class Pass {
+        private double[] endX = new double[0], endY = new double[0], toi = new double[0];
+        private double prevPlayerX, prevPlayerY, playerEndX, playerEndY, playerToi;
+
+        /**
+         * starts a pass once everything has moved for the step
+         * @param store the enemies
+         * @param player the player
+         * @param prevPlayerX x of the player before the step
+         * @param prevPlayerY y of the player before the step
+         */
+        public void begin(EntityStore store, Ball player, double prevPlayerX, double prevPlayerY) {
+            int n = store.size();
+            if (endX.length < n) {
+                int capacity = Math.max(n, endX.length * 2);
+                endX = new double[capacity];
+                endY = new double[capacity];
+                toi = new double[capacity];
+            }
+            System.arraycopy(store.x, 0, endX, 0, n);
+            System.arraycopy(store.y, 0, endY, 0, n);
+            Arrays.fill(toi, 0, n, 1);
+            this.prevPlayerX = prevPlayerX;
+            this.prevPlayerY = prevPlayerY;
+            playerEndX = player.x;
+            playerEndY = player.y;
+            playerToi = 1;
+        }
+
+        /**
+         * ends a pass when every pair has responded: moves each enemy and the player back along its step to the
+         * first moment it touched something, keeping anything the responses pushed it by
+         * @param store the enemies
+         * @param player the player
+         */
+        public void finish(EntityStore store, Ball player) {
+            double[] x = store.x, y = store.y, prevX = store.prevX, prevY = store.prevY;
+            for (int i = 0, n = store.size(); i < n; i++) {
+                if (toi[i] < 1) {
+                    x[i] -= (endX[i] - prevX[i]) * (1 - toi[i]);
+                    y[i] -= (endY[i] - prevY[i]) * (1 - toi[i]);
+                }
+            }
+            if (playerToi < 1) {
+                player.x -= (playerEndX - prevPlayerX) * (1 - playerToi);
+                player.y -= (playerEndY - prevPlayerY) * (1 - playerToi);
+            }
+        }
+
+        /**
+         * keeps the earliest time an enemy touched something it was apart from at the start of the step
+         */
+        private void hit(int i, double t) {
+            if (t > 0 && t < toi[i]) {
+                toi[i] = t;
+            }
+        }
+    }
+
+    /**
+     * checks if two stored enemies touch during the step, and if they do bounces them off each other and damages
+     * both. they are moved back to when they touched by pass.finish.
+     * @param store the enemies
+     * @param pass the pass this tick's tests are part of
+     * @param a index of the first enemy (the one that bounces off the other)
+     * @param b index of the second enemy
+     * @return true if they touched
+     */
+    public static boolean collide(EntityStore store, Pass pass, int a, int b) {
+        int ta = store.type[a], tb = store.type[b];
+        int pair = ta * TYPE_COUNT + tb;
+        double[] endX = pass.endX, endY = pass.endY, prevX = store.prevX, prevY = store.prevY;
+        double[] w = store.width, h = store.height;
+        double toi = sweep(TEST[pair], prevX[a], prevY[a], endX[a] - prevX[a], endY[a] - prevY[a], w[a], h[a],
+                prevX[b], prevY[b], endX[b] - prevX[b], endY[b] - prevY[b], w[b], h[b]);
+        if (toi == MISS) {
+            return false;
+        }
+        pass.hit(a, toi);
+        pass.hit(b, toi);
+
+        double[] velX = store.velX, velY = store.velY;
+        switch (RESPONSE[pair]) {
+            case SWAP:
+                double tx = velX[a], ty = velY[a];
+                velX[a] = velX[b];
+                velY[a] = velY[b];
+                velX[b] = tx;
+                velY[b] = ty;
+                break;
+            case A_IS_WALL:
+                pushOffWall(store, a, b);
+                break;
+            case B_IS_WALL:
+                pushOffWall(store, b, a);
+                break;
+            default:
+                break;
+        }
+
+        store.hp[a] += HP_CHANGE[ta];
+        store.hp[b] += HP_CHANGE[tb];
+        return true;
+    }
+
+    /**
+     * checks if a stored enemy touches the player during the step, and if it does bounces the player off it and
+     * hurts (or helps) both, the same as enemy.damage(), enemy.bounceOff(player) and player.addHP(enemy.damage()).
+     * they are moved back to when they touched by pass.finish.
+     * @param store the enemies
+     * @param pass the pass this tick's tests are part of
+     * @param i index of the enemy
+     * @param player the player
+     * @return true if they touched
+     */
+    public static boolean hitPlayer(EntityStore store, Pass pass, int i, Ball player) {
+        int type = store.type[i];
+        double r = player.getRadius();
+        double[] y = store.y, prevX = store.prevX, prevY = store.prevY;
+        double[] w = store.width, h = store.height;
+        double prevPlayerX = pass.prevPlayerX, prevPlayerY = pass.prevPlayerY;
+        double toi = sweep(CIRCLE[type] ? CIRCLE_CIRCLE : CIRCLE_BOX, prevPlayerX, prevPlayerY,
+                pass.playerEndX - prevPlayerX, pass.playerEndY - prevPlayerY, 2 * r, 2 * r,
+                prevX[i], prevY[i], pass.endX[i] - prevX[i], pass.endY[i] - prevY[i], w[i], h[i]);
+        if (toi == MISS) {
+            return false;
+        }
+        pass.hit(i, toi);
+        if (toi > 0 && toi < pass.playerToi) {
+            pass.playerToi = toi;
+        }
+
+        store.hp[i] += HP_CHANGE[type];
+        if (type == MobType.COIN.ordinal()) {
+            player.addScore(1000);
+        } else if (type == MobType.SPIKED_WALL.ordinal()) {
+            if (player.velY <= store.velY[i] && player.y - player.getHeight() > y[i]) {
+                player.y += 18;
+                player.velY = store.velY[i] * 2;
+            } else {
+                player.velY *= -1;
+                player.velX *= -1;
+            }
+        } else {
+            double tx = store.velX[i], ty = store.velY[i];
+            store.velX[i] = player.velX;
+            store.velY[i] = player.velY;
+            player.velX = tx;
+            player.velY = ty;
+        }
+        store.hp[i] += HP_CHANGE[type];
+        player.addHP(DAMAGE[type]);
+        return true;
+    }
+
+    /**
+     * checks if two mobs touch, going by their types' shapes
+     * @return true if mob a and mob b overlap
+     */
+    public static boolean overlaps(MobType ta, double ax, double ay, double aw, double ah,
+                                   MobType tb, double bx, double by, double bw, double bh) {
+        return test(TEST[ta.ordinal() * TYPE_COUNT + tb.ordinal()], ax, ay, aw, ah, bx, by, bw, bh);
+    }
+
+    /**
+     * fills in the box each enemy sweeps through during the step (from its bounding box before the step to its
+     * bounding box now; circles are centered on x, y), for the broadphase
+     * @param store the enemies
+     * @param left where to put the left edges (each array at least store.size() long)
+     * @param top where to put the top edges
+     * @param width where to put the widths
+     * @param height where to put the heights
+     */
+    public static void sweptBoxes(EntityStore store, double[] left, double[] top, double[] width, double[] height) {
+        double[] x = store.x, y = store.y, prevX = store.prevX, prevY = store.prevY;
+        double[] w = store.width, h = store.height;
+        byte[] type = store.type;
+        for (int i = 0, n = store.size(); i < n; i++) {
+            double dx = x[i] - prevX[i];
+            double dy = y[i] - prevY[i];
+            double l = Math.min(x[i], prevX[i]);
+            double t = Math.min(y[i], prevY[i]);
+            if (CIRCLE[type[i]]) {
+                l -= w[i] / 2;
+                t -= h[i] / 2;
+            }
+            left[i] = l;
+            top[i] = t;
+            width[i] = w[i] + Math.abs(dx);
+            height[i] = h[i] + Math.abs(dy);
+        }
+    }
+
+    /**
+     * the first moment in a step two moving shapes touch
+     * @return the time of impact from 0 (the start of the step) to 1 (the end), or MISS
+     */
+    private static double sweep(byte test, double ax, double ay, double adx, double ady, double aw, double ah,
+                                double bx, double by, double bdx, double bdy, double bw, double bh) {
+        switch (test) {
+            case CIRCLE_CIRCLE:
+                return sweptCircles(ax, ay, aw / 2, bx, by, bw / 2, bdx - adx, bdy - ady);
+            case CIRCLE_BOX:
+                return sweptCircleBox(ax, ay, aw / 2, adx - bdx, ady - bdy, bx, by, bw, bh);
+            case BOX_CIRCLE:
+                return sweptCircleBox(bx, by, bw / 2, bdx - adx, bdy - ady, ax, ay, aw, ah);
+            default:
+                return sweptBoxes(ax, ay, aw, ah, adx - bdx, ady - bdy, bx, by, bw, bh);
+        }
+    }
+
+    /**
+     * swept circle against circle: circle b moves by (vx, vy) relative to circle a
+     * @return the time of impact in [0, 1), or MISS
+     */
+    public static double sweptCircles(double ax, double ay, double ar, double bx, double by, double br,
+                                      double vx, double vy) {
+        double px = bx - ax, py = by - ay;
+        double r = ar + br;
+        double c = px * px + py * py - r * r;
+        if (c < 0) {
+            return 0;
+        }
+        double a = vx * vx + vy * vy;
+        double b = px * vx + py * vy;
+        if (a == 0 || b >= 0) {
+            // Not moving, or moving apart
+            return MISS;
+        }
+        double discriminant = b * b - a * c;
+        if (discriminant <= 0) {
+            return MISS;
+        }
+        double t = (-b - Math.sqrt(discriminant)) / a;
+        return t < 1 ? t : MISS;
+    }
+
+    /**
+     * swept circle against box: the circle moves by (vx, vy) relative to the box. the circle touches the box when
+     * its center enters the box grown by r on every side with rounded corners, so this is the center's path
+     * against two grown boxes and the four corner circles.
+     * @return the time of impact in [0, 1), or MISS
+     */
+    public static double sweptCircleBox(double cx, double cy, double r, double vx, double vy,
+                                        double bx, double by, double bw, double bh) {
+        if (circleBox(cx, cy, r, bx, by, bw, bh)) {
+            return 0;
+        }
+        double t = rayBox(cx, cy, vx, vy, bx - r, by, bw + 2 * r, bh);
+        t = Math.min(t, rayBox(cx, cy, vx, vy, bx, by - r, bw, bh + 2 * r));
+        t = Math.min(t, sweptCircles(bx, by, r, cx, cy, 0, vx, vy));
+        t = Math.min(t, sweptCircles(bx + bw, by, r, cx, cy, 0, vx, vy));
+        t = Math.min(t, sweptCircles(bx, by + bh, r, cx, cy, 0, vx, vy));
+        t = Math.min(t, sweptCircles(bx + bw, by + bh, r, cx, cy, 0, vx, vy));
+        return t;
+    }
+
+    /**
+     * swept box against box: box a moves by (vx, vy) relative to box b (touching edges count)
+     * @return the time of impact in [0, 1], or MISS
+     */
+    public static double sweptBoxes(double ax, double ay, double aw, double ah, double vx, double vy,
+                                    double bx, double by, double bw, double bh) {
+        // Where a's top left corner has to be for the boxes to touch
+        double t = rayBox(ax, ay, vx, vy, bx - aw, by - ah, bw + aw, bh + ah);
+        return t <= 1 || boxes(ax + vx, ay + vy, aw, ah, bx, by, bw, bh) ? Math.min(t, 1) : MISS;
+    }
+
+    /**
+     * the first moment a point moving by (vx, vy) is inside a box (edges included)
+     * @return the time in [0, 1), 0 if it starts inside, or MISS
+     */
+    private static double rayBox(double px, double py, double vx, double vy,
+                                 double bx, double by, double bw, double bh) {
+        double enter = 0, exit = 1;
+        if (vx == 0) {
+            if (px < bx || px > bx + bw) {
+                return MISS;
+            }
+        } else {
+            double t1 = (bx - px) / vx, t2 = (bx + bw - px) / vx;
+            enter = Math.max(enter, Math.min(t1, t2));
+            exit = Math.min(exit, Math.max(t1, t2));
+        }
+        if (vy == 0) {
+            if (py < by || py > by + bh) {
+                return MISS;
+            }
+        } else {
+            double t1 = (by - py) / vy, t2 = (by + bh - py) / vy;
+            enter = Math.max(enter, Math.min(t1, t2));
+            exit = Math.min(exit, Math.max(t1, t2));
+        }
+        return enter <= exit && enter < 1 ? enter : MISS;
+    }
+
+    private static boolean test(byte test, double ax, double ay, double aw, double ah,
+                                double bx, double by, double bw, double bh) {
+        switch (test) {
+            case CIRCLE_CIRCLE:
+                return circles(ax, ay, aw / 2, bx, by, bw / 2);
+            case CIRCLE_BOX:
+                return circleBox(ax, ay, aw / 2, bx, by, bw, bh);
+            case BOX_CIRCLE:
+                return circleBox(bx, by, bw / 2, ax, ay, aw, ah);
+            default:
+                return boxes(ax, ay, aw, ah, bx, by, bw, bh);
+        }
+    }
+
+    /**
+     * checks if two circles overlap (touching does not count, as in Ball.intersects)
+     */
+    public static boolean circles(double ax, double ay, double ar, double bx, double by, double br) {
+        double dx = bx - ax;
+        double dy = by - ay;
+        double r = ar + br;
+        return dx * dx + dy * dy < r * r;
+    }
+
+    /**
+     * checks if a circle overlaps a box (touching does not count)
+     */
+    public static boolean circleBox(double cx, double cy, double r, double bx, double by, double bw, double bh) {
+        // The closest point of the box to the center of the circle
+        double dx = cx - Math.max(bx, Math.min(cx, bx + bw));
+        double dy = cy - Math.max(by, Math.min(cy, by + bh));
+        return dx * dx + dy * dy < r * r;
+    }
+
+    /**
+     * checks if two boxes overlap (touching edges count, as in the broadphase)
+     */
+    public static boolean boxes(double ax, double ay, double aw, double ah,
+                                double bx, double by, double bw, double bh) {
+        return ax + aw >= bx && ax <= bx + bw && ay + ah >= by && ay <= by + bh;
+    }
+
+    /**
+     * does SpikedWall.bounceOff on the store: whatever is under the wall is pushed out below it and sped up,
+     * anything else turns around
+     */
+    private static void pushOffWall(EntityStore store, int wall, int other) {
+        double[] velX = store.velX, velY = store.velY, y = store.y;
+        if (velY[other] <= velY[wall] && y[other] - store.height[other] > y[wall]) {
+            y[other] += 18;
+            velY[other] = velY[wall] * 2;
+        } else {
+            velY[other] *= -1;
+            velX[other] *= -1;
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package org.headroyce.lross2024;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * What GameServer and GameClient say to each other over TCP. Every message is a frame: a 4 byte little endian
+ * length, then a type byte and the message. Numbers inside messages are varints (zigzag for signed ones), and
+ * positions are fixed point: POSITION_SCALE steps to a pixel, velocities VELOCITY_SCALE steps to a pixel per tick.
+ *
+ * Client to server: PRESS, RELEASE (a direction's ordinal), RELEASE_ALL, PAUSE (0 or 1), RESET, SIZE (width and
+ * height as varint pixels) and ACK (the number of the last snapshot it has applied).
+ *
+ * Server to client: SNAPSHOT, written by SnapshotEncoder and read by SnapshotDecoder.
+ */
+public final class NetProtocol {
+
+    public static final int DEFAULT_PORT = 7777;
+
+    // Message types
+    public static final byte PRESS = 1;
+    public static final byte RELEASE = 2;
+    public static final byte RELEASE_ALL = 3;
+    public static final byte PAUSE = 4;
+    public static final byte RESET = 5;
+    public static final byte SIZE = 6;
+    public static final byte ACK = 7;
+    public static final byte SNAPSHOT = 8;
+
+    // Bytes in front of every message, and the most a message may be
+    public static final int FRAME_HEADER = Integer.BYTES;
+    public static final int MAX_FRAME = 1 << 20;
+    // The most a message from a client may be: its messages are a type and at most two varints
+    public static final int MAX_INPUT_FRAME = 64;
+
+    public static final int POSITION_SCALE = 16;
+    public static final int VELOCITY_SCALE = 256;
+
+    private NetProtocol() {
+    }
+
+    /**
+     * Get a position in fixed point
+     * @param pixels the position in pixels
+     * @return the position in POSITION_SCALE steps
+     */
+    public static int quantize(double pixels) {
+        return (int) Math.round(pixels * POSITION_SCALE);
+    }
+
+    /**
+     * Get a velocity in fixed point
+     * @param pixelsPerTick the distance moved in one tick
+     * @return the velocity in VELOCITY_SCALE steps
+     */
+    public static int quantizeVelocity(double pixelsPerTick) {
+        return (int) Math.round(pixelsPerTick * VELOCITY_SCALE);
+    }
+
+    /**
+     * Get where something is some ticks after it was at a position, going at a steady velocity. the server and
+     * every client work it out the same way, so they agree on it to the step.
+     * @param position where it was (fixed point)
+     * @param velocity its velocity (fixed point)
+     * @param ticks how many ticks later
+     * @return where it is now (fixed point)
+     */
+    public static int predict(int position, int velocity, long ticks) {
+        return position + (int) Math.floorDiv(velocity * ticks, VELOCITY_SCALE / POSITION_SCALE);
+    }
+
+    /**
+     * writes the header of a frame, to be filled in by endFrame once the message is written
+     * @param out where to write
+     * @param type the message type
+     * @return where the frame starts, for endFrame
+     */
+    public static int beginFrame(ByteBuffer out, byte type) {
+        int start = out.position();
+        out.putInt(0);
+        out.put(type);
+        return start;
+    }
+
+    /**
+     * fills in the length of a frame started by beginFrame
+     * @param out where the frame was written
+     * @param start what beginFrame returned
+     */
+    public static void endFrame(ByteBuffer out, int start) {
+        out.putInt(start, out.position() - start - FRAME_HEADER);
+    }
+
+    /**
+     * Get the length of the next whole frame in a buffer being read
+     * @param in the received bytes (from position to limit)
+     * @return the length of the message after the frame header, or -1 if it has not all arrived yet
+     * @throws IOException if the length cannot be right
+     */
+    public static int frameLength(ByteBuffer in) throws IOException {
+        return frameLength(in, MAX_FRAME);
+    }
+
+    /**
+     * Get the length of the next whole frame in a buffer being read, which may be no longer than some maximum
+     * @param in the received bytes (from position to limit)
+     * @param max the longest message allowed, which has to fit in the buffer after its frame header
+     * @return the length of the message after the frame header, or -1 if it has not all arrived yet
+     * @throws IOException if the length cannot be right
+     */
+    public static int frameLength(ByteBuffer in, int max) throws IOException {
+        if (in.remaining() < FRAME_HEADER) {
+            return -1;
+        }
+        int length = in.getInt(in.position());
+        if (length < 1 || length > max) {
+            throw new IOException("bad frame length " + length);
+        }
+        return in.remaining() - FRAME_HEADER >= length ? length : -1;
+    }
+
+    /**
+     * writes an unsigned varint
+     * @param out where to write
+     * @param value the value (treated as unsigned)
+     */
+    public static void putVarint(ByteBuffer out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    /**
+     * writes a signed varint, small either side of zero
+     * @param out where to write
+     * @param value the value
+     */
+    public static void putSigned(ByteBuffer out, long value) {
+        putVarint(out, (value << 1) ^ (value >> 63));
+    }
+
+    /**
+     * reads an unsigned varint
+     * @param in where to read
+     * @return the value
+     * @throws IOException if the varint is cut short or too long
+     */
+    public static long getVarint(ByteBuffer in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            if (!in.hasRemaining()) {
+                throw new IOException("message ends in the middle of a number");
+            }
+            int b = in.get() & 0xFF;
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("varint is too long");
+    }
+
+    /**
+     * reads a signed varint written by putSigned
+     * @param in where to read
+     * @return the value
+     * @throws IOException if the varint is cut short or too long
+     */
+    public static long getSigned(ByteBuffer in) throws IOException {
+        long value = getVarint(in);
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
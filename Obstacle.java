@@ -1,10 +1,5 @@
 package org.headroyce.lross2024;
 
-import javafx.geometry.Point2D;
-import javafx.scene.canvas.Canvas;
-import javafx.scene.canvas.GraphicsContext;
-import javafx.scene.paint.Color;
-
 /**
  * Represents an rectangluar obstacle
  */
@@ -23,7 +18,6 @@ public class Obstacle extends Mob{
      * @param height the height (in pixels) to set of the obstacle; Non-positives are reset to ten
      */
     public Obstacle( double width, double height ){
-        setColor(Color.PURPLE);
         if( width <= 0 ){
             width = 10;
         }
@@ -36,27 +30,30 @@ public class Obstacle extends Mob{
     }
 
     /**
-     * Check to see if the obstacle overlaps with a ball (circular)
-     * @param other the ball to check intersection with
-     * @return true is this object intersects with other, false otherwise
+     * puts every field back to how a new obstacle starts (ten wide, forty high)
      */
-    public boolean intersects(Ball other){
-        Obstacle o = new Obstacle(other.getRadius(), other.getRadius());
-        o.x = other.x - other.getRadius();
-        o.y = other.y - other.getRadius();
-
-        return this.intersects(o);
+    public void reset(){
+        super.reset();
+        setWidth(10);
+        setHeight(40);
     }
 
     /**
-     * renders a purple rectangle on canvas.
-     * @param canvas where to render the mob.
+     * Get the type of this mob
+     * @return the obstacle type
      */
-    public void render( Canvas canvas ){
-        GraphicsContext gc = canvas.getGraphicsContext2D();
-        gc.setFill(this.getColor());
-        gc.fillRect(x, y, getWidth(), getHeight());
+    public MobType getType(){
+        return MobType.OBSTACLE;
+    }
 
+    /**
+     * Check to see if the obstacle overlaps with a ball (circular)
+     * @param other the ball to check intersection with
+     * @return true is this object intersects with other, false otherwise
+     */
+    public boolean intersects(Ball other){
+        return Narrowphase.circleBox(other.x, other.y, other.getRadius(), this.x, this.y, this.getWidth(),
+                this.getHeight());
     }
 }
 
@@ -0,0 +1,86 @@
+package org.headroyce.lross2024;
+
+import java.util.Arrays;
+
+/**
+ * growable list of index pairs handed from a broadphase to the narrowphase. it is reused every tick so it
+ * only allocates when it has to grow.
+ */
+public class PairBuffer {
+    private long[] pairs;
+    private int size;
+
+    /**
+     * makes an empty pair buffer
+     */
+    public PairBuffer() {
+        pairs = new long[64];
+        size = 0;
+    }
+
+    /**
+     * removes all pairs (keeps the memory)
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * adds a pair, the smaller index always ends up first.
+     * @param a index of one mob
+     * @param b index of the other mob
+     */
+    public void add(int a, int b) {
+        if (size == pairs.length) {
+            pairs = Arrays.copyOf(pairs, pairs.length * 2);
+        }
+        if (a > b) {
+            int t = a;
+            a = b;
+            b = t;
+        }
+        pairs[size++] = ((long) a << 32) | (b & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Get the number of pairs
+     * @return how many pairs are in the buffer
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get the smaller index of a pair
+     * @param k which pair
+     * @return the first index of pair k
+     */
+    public int first(int k) {
+        return (int) (pairs[k] >>> 32);
+    }
+
+    /**
+     * Get the larger index of a pair
+     * @param k which pair
+     * @return the second index of pair k
+     */
+    public int second(int k) {
+        return (int) pairs[k];
+    }
+
+    /**
+     * sorts the pairs by first index and then second index
+     */
+    public void sort() {
+        Sorting.sort(pairs, 0, size);
+    }
+
+    /**
+     * checks if two (sorted) buffers hold exactly the same pairs
+     * @param other the other buffer
+     * @return true if both buffers have the same pairs in the same order
+     */
+    public boolean sameAs(PairBuffer other) {
+        return Arrays.equals(pairs, 0, size, other.pairs, 0, other.size);
+    }
+}
@@ -0,0 +1,96 @@
+package org.headroyce.lross2024;
+
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+
+import java.util.Arrays;
+
+/**
+ * Draws where the ticks are going (p50/p99/p999/max of every TickProfiler phase), the Governor's level and how many
+ * enemies of each type there are, onto its own canvas layer. It is only redrawn a few times a second so it costs next to nothing.
+ */
+public class ProfilerOverlay {
+
+    // Nanoseconds between redraws
+    private static final long REFRESH_NANOS = 250000000L;
+
+    private static final TickProfiler.Phase[] PHASES = TickProfiler.Phase.values();
+    private static final MobType[] TYPES = MobType.values();
+    private static final Font FONT = Font.font("Monospaced", 12);
+    private static final double LINE_HEIGHT = 15;
+
+    private long lastDrawn;
+    private boolean drawn;
+    private int[] typeCounts;
+
+    /**
+     * makes an overlay that draws on its first render
+     */
+    public ProfilerOverlay() {
+        typeCounts = new int[TYPES.length];
+    }
+
+    /**
+     * redraws the overlay if it has not been redrawn for a while
+     * @param canvas the overlay layer
+     * @param profiler the tick times to show
+     * @param governor the quality level to show
+     * @param snapshot the game step whose enemies are counted
+     * @param now the time of the frame (nanoseconds)
+     * @return true if the layer was redrawn
+     */
+    public boolean render(Canvas canvas, TickProfiler profiler, Governor governor, RenderSnapshot snapshot,
+                          long now) {
+        if (drawn && now - lastDrawn < REFRESH_NANOS) {
+            return false;
+        }
+        lastDrawn = now;
+        drawn = true;
+
+        Arrays.fill(typeCounts, 0);
+        for (int i = 0; i < snapshot.count; i++) {
+            typeCounts[snapshot.type[i]]++;
+        }
+
+        GraphicsContext gc = canvas.getGraphicsContext2D();
+        gc.clearRect(0, 0, canvas.getWidth(), canvas.getHeight());
+
+        double top = 50;
+        double lines = PHASES.length + TYPES.length + 5;
+        gc.setFill(Color.rgb(255, 255, 255, 0.8));
+        gc.fillRect(5, top - LINE_HEIGHT, 420, lines * LINE_HEIGHT + 5);
+
+        gc.setFill(Color.BLACK);
+        gc.setFont(FONT);
+        double y = top;
+        gc.fillText(TickProfiler.header(), 10, y);
+        for (TickProfiler.Phase phase : PHASES) {
+            y += LINE_HEIGHT;
+            gc.fillText(profiler.row(phase), 10, y);
+        }
+
+        y += LINE_HEIGHT * 2;
+        gc.fillText(String.format("%-20s %s", "governor", governor), 10, y);
+
+        y += LINE_HEIGHT * 2;
+        gc.fillText(String.format("%-20s %9d", "enemies", snapshot.count), 10, y);
+        for (MobType type : TYPES) {
+            y += LINE_HEIGHT;
+            gc.fillText(String.format("  %-18s %9d", type.name().toLowerCase(), typeCounts[type.ordinal()]), 10, y);
+        }
+        return true;
+    }
+
+    /**
+     * clears the overlay layer; the next render draws it again
+     * @param canvas the overlay layer
+     */
+    public void clear(Canvas canvas) {
+        if (drawn) {
+            canvas.getGraphicsContext2D().clearRect(0, 0, canvas.getWidth(), canvas.getHeight());
+            drawn = false;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package org.headroyce.lross2024;
+
+/**
+ * Carries key presses and releases from the FX thread to the simulation thread. Each event is stamped with the time
+ * it arrived and goes into a ring buffer; the engine applies everything queued at the start of its next tick, and
+ * the time from arrival to being applied goes into a latency histogram.
+ *
+ * One thread may press and release and one thread may poll. neither side locks or allocates.
+ */
+public class QueuedInput implements InputSource {
+
+    // Must be a power of two
+    private static final int CAPACITY = 1024;
+
+    private static final GameEngine.DIRECTION[] DIRECTIONS = GameEngine.DIRECTION.values();
+
+    // Event codes: a press is the direction's ordinal, a release is RELEASE plus the ordinal
+    private static final int RELEASE = DIRECTIONS.length;
+    private static final int RELEASE_ALL = 2 * RELEASE;
+
+    private long[] times;
+    private byte[] codes;
+
+    // Next event to poll and next free spot; only ever go up
+    private volatile long head;
+    private volatile long tail;
+
+    private volatile long dropped;
+
+    private LatencyHistogram latency;
+
+    /**
+     * makes an empty queue
+     */
+    public QueuedInput() {
+        times = new long[CAPACITY];
+        codes = new byte[CAPACITY];
+        latency = new LatencyHistogram();
+    }
+
+    /**
+     * queues a force being applied
+     * @param direction the direction of the force
+     */
+    public void press(GameEngine.DIRECTION direction) {
+        offer(direction.ordinal());
+    }
+
+    /**
+     * queues a force being removed
+     * @param direction the direction of the force
+     */
+    public void release(GameEngine.DIRECTION direction) {
+        offer(RELEASE + direction.ordinal());
+    }
+
+    /**
+     * queues every force being removed (the releases of keys held while the game pauses may never come)
+     */
+    public void releaseAll() {
+        offer(RELEASE_ALL);
+    }
+
+    /**
+     * Get the time events waited between arriving and being applied to the engine
+     * @return the input latency histogram
+     */
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    /**
+     * Get the number of events lost because the queue was full (nothing was polling it)
+     * @return how many events were dropped
+     */
+    public long getDropped() {
+        return dropped;
+    }
+
+    private void offer(int code) {
+        long t = tail;
+        if (t - head == CAPACITY) {
+            dropped++;
+            return;
+        }
+        int slot = (int) (t & (CAPACITY - 1));
+        times[slot] = System.nanoTime();
+        codes[slot] = (byte) code;
+        // Publishes the slot to the polling thread
+        tail = t + 1;
+    }
+
+    @Override
+    public void poll(GameEngine engine, long tick) {
+        long h = head;
+        long t = tail;
+        if (h == t) {
+            return;
+        }
+        long now = System.nanoTime();
+        for (; h < t; h++) {
+            int slot = (int) (h & (CAPACITY - 1));
+            int code = codes[slot];
+            if (code == RELEASE_ALL) {
+                for (GameEngine.DIRECTION direction : DIRECTIONS) {
+                    if ((engine.getForces() & direction.bit) != 0) {
+                        engine.removeForce(direction);
+                    }
+                }
+            } else if (code < RELEASE) {
+                engine.applyForce(DIRECTIONS[code]);
+            } else {
+                engine.removeForce(DIRECTIONS[code - RELEASE]);
+            }
+            latency.record(now - times[slot]);
+        }
+        // Gives the slots back to the pressing thread
+        head = t;
+    }
+}
@@ -0,0 +1,92 @@
+package org.headroyce.lross2024;
+
+/**
+ * Everything needed to draw one game step: where every enemy was before and after the step, its size and type,
+ * the player, score, lives and whether the game is over. The simulation thread fills one and hands it to the
+ * FX thread through a TripleBuffer; once published it is not changed until the FX thread is done with it.
+ */
+public class RenderSnapshot {
+    public int count;
+    public double[] x, y, prevX, prevY;
+    public double[] width, height;
+    public byte[] type;
+
+    public double playerX, playerY, prevPlayerX, prevPlayerY;
+    public double playerRadius;
+    public boolean playerFlashing;
+
+    public int score;
+    public long lives;
+    public int timeElapsed;
+    public boolean gameOver;
+
+    // The tick this snapshot is of, when (System.nanoTime) that tick was due, and how long it took to run
+    public long tick;
+    public long time;
+    public long tickNanos;
+
+    // How many resets the simulation had done when this was taken
+    public int resets;
+
+    /**
+     * makes an empty snapshot
+     */
+    public RenderSnapshot() {
+        resize(64);
+    }
+
+    /**
+     * copies the state of an engine into this snapshot
+     * @param engine the engine to copy
+     * @param time when (System.nanoTime) the engine's last tick was due
+     */
+    public void capture(GameEngine engine, long time) {
+        EntityStore enemies = engine.getEnemies();
+        count = enemies.size();
+        ensureCapacity(count);
+        System.arraycopy(enemies.x, 0, x, 0, count);
+        System.arraycopy(enemies.y, 0, y, 0, count);
+        System.arraycopy(enemies.prevX, 0, prevX, 0, count);
+        System.arraycopy(enemies.prevY, 0, prevY, 0, count);
+        System.arraycopy(enemies.width, 0, width, 0, count);
+        System.arraycopy(enemies.height, 0, height, 0, count);
+        System.arraycopy(enemies.type, 0, type, 0, count);
+
+        Ball player = engine.getPlayer();
+        playerX = player.x;
+        playerY = player.y;
+        prevPlayerX = engine.getPrevPlayerX();
+        prevPlayerY = engine.getPrevPlayerY();
+        playerRadius = player.getRadius();
+        playerFlashing = engine.isPlayerFlashing();
+
+        score = player.score;
+        lives = Math.round(player.getHP());
+        timeElapsed = engine.getTimeElapsed();
+        gameOver = engine.isGameOver();
+
+        tick = engine.getTick();
+        this.time = time;
+        tickNanos = engine.getTickNanos();
+    }
+
+    /**
+     * makes room for some number of enemies (capture does this itself)
+     * @param count how many enemies the arrays have to hold
+     */
+    public void ensureCapacity(int count) {
+        if (x.length < count) {
+            resize(Math.max(count, x.length * 2));
+        }
+    }
+
+    private void resize(int capacity) {
+        x = new double[capacity];
+        y = new double[capacity];
+        prevX = new double[capacity];
+        prevY = new double[capacity];
+        width = new double[capacity];
+        height = new double[capacity];
+        type = new byte[capacity];
+    }
+}
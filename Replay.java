@@ -0,0 +1,64 @@
+package org.headroyce.lross2024;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Plays recorded games (see InputRecorder) without a display as fast as they run, so the game that stuttered can
+ * be run again under a profiler:
+ *
+ *   java -cp out org.headroyce.lross2024.Replay recordings/game-1f3a.rec
+ *
+ * For every recording it prints how long the game took, the ticks per second, the slowest tick and the final
+ * score, then where the ticks went (see TickProfiler). -Dreplay.repeat plays each recording that many times (default 1), which gives a profiler more to look at.
+ * To watch a recording instead, start the game with -Dgame.replay.
+ */
+public class Replay {
+
+    private static final int REPEAT = Integer.getInteger("replay.repeat", 1);
+
+    /**
+     * plays every recording given
+     * @param args paths of the recordings
+     * @throws IOException if a recording cannot be read
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("usage: Replay <recording>...");
+            System.exit(2);
+        }
+        for (String arg : args) {
+            Path file = Paths.get(arg);
+            InputReplay replay = new InputReplay(file);
+            for (int i = 0; i < REPEAT; i++) {
+                play(file.getFileName().toString(), replay);
+            }
+        }
+    }
+
+    /**
+     * plays a recording once, timing every tick
+     */
+    private static void play(String name, InputReplay replay) {
+        GameEngine engine = replay.newEngine();
+        long slowest = 0, slowestTick = 0;
+        long start = System.nanoTime();
+        while (!replay.isFinished(engine)) {
+            long before = System.nanoTime();
+            engine.tick();
+            long took = System.nanoTime() - before;
+            if (took > slowest) {
+                slowest = took;
+                slowestTick = engine.getTick();
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+
+        long ticks = engine.getTick();
+        System.out.printf("%-30s %8d ticks %10.1f ms %12.0f ticks/s  slowest %.3f ms (tick %d)  score %d%n",
+                name, ticks, elapsed / 1e6, ticks / (elapsed / 1e9), slowest / 1e6, slowestTick,
+                engine.getFinalScore());
+        System.out.println(engine.getProfiler());
+    }
+}
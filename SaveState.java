@@ -0,0 +1,76 @@
+package org.headroyce.lross2024;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Saves a whole game to a file and loads it back, through a memory mapped file so the enemies go straight between
+ * the store's arrays and the page cache a column at a time. Scenarios (see Scenarios) are save states too, so
+ * a busy scene can be loaded straight into the game.
+ *
+ * The file is a header (MAGIC, VERSION, the size of the rest) followed by what GameEngine.saveState writes, all
+ * little endian.
+ */
+public final class SaveState {
+
+    static final int MAGIC = 0x5641534d;  // "MSAV"
+    static final int VERSION = 4;
+    private static final int HEADER_BYTES = 2 * Integer.BYTES + Long.BYTES;
+
+    private SaveState() {
+    }
+
+    /**
+     * saves a game (call it between ticks, from the thread running the engine)
+     * @param engine the game to save
+     * @param file where to save it (replaced if it exists)
+     * @return the size of the file in bytes
+     * @throws IOException if the file cannot be written
+     */
+    public static long save(GameEngine engine, Path file) throws IOException {
+        long bytes = engine.stateBytes();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer out = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES + bytes);
+            out.order(ByteOrder.LITTLE_ENDIAN);
+            out.putInt(MAGIC);
+            out.putInt(VERSION);
+            out.putLong(bytes);
+            engine.saveState(out);
+        }
+        return HEADER_BYTES + bytes;
+    }
+
+    /**
+     * loads a saved game into an engine, replacing whatever it was playing (call it between ticks, from the thread
+     * running the engine)
+     * @param file the save state
+     * @param engine the engine to load it into
+     * @throws IOException if the file cannot be read or is not a save state
+     */
+    public static void load(Path file, GameEngine engine) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES) {
+                throw new IOException(file + " is not a save state");
+            }
+            MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            in.order(ByteOrder.LITTLE_ENDIAN);
+            if (in.getInt() != MAGIC) {
+                throw new IOException(file + " is not a save state");
+            }
+            int version = in.getInt();
+            if (version != VERSION) {
+                throw new IOException(file + " is a version " + version + " save state");
+            }
+            if (in.getLong() != size - HEADER_BYTES) {
+                throw new IOException(file + " is cut short");
+            }
+            engine.loadState(in);
+        }
+    }
+}
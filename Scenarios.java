@@ -0,0 +1,150 @@
+package org.headroyce.lross2024;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Random;
+
+/**
+ * Builds stress scenes as save states, so a profiler can start on a busy game instead of waiting for one to build
+ * up. Each part of the scene is a name and a count:
+ *
+ *   java -cp out org.headroyce.lross2024.Scenarios heavy.sav balls=50000 wall=500
+ *
+ * - balls: enemy balls spread over the field and the space above it
+ * - wall: obstacles packed side by side in rows above the field, coming down as one wall
+ * - mixed: the mix of enemies a busy game has (the benchmarks use the same mix)
+ *
+ * -Dscenario.width and -Dscenario.height set the size of the field (default 500 by 500, the window's size) and
+ * -Dscenario.seed the seed. Load the file with -Dgame.load=heavy.sav (or F9 with -Dgame.save=heavy.sav).
+ */
+public class Scenarios {
+
+    private static final double WIDTH = Double.parseDouble(System.getProperty("scenario.width", "500"));
+    private static final double HEIGHT = Double.parseDouble(System.getProperty("scenario.height", "500"));
+    private static final long SEED = Long.getLong("scenario.seed", 1);
+
+    /**
+     * builds a scene and saves it
+     * @param args the file to save to, then name=count for each part of the scene
+     * @throws IOException if the file cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("usage: Scenarios <file> <balls|wall|mixed>=<count>...");
+            System.exit(2);
+        }
+
+        Random rand = new Random(SEED);
+        GameEngine engine = new GameEngine(WIDTH, HEIGHT, rand.nextLong());
+        for (int i = 1; i < args.length; i++) {
+            String[] part = args[i].split("=");
+            if (part.length != 2) {
+                System.err.println("expected name=count: " + args[i]);
+                System.exit(2);
+            }
+            add(engine, part[0], Integer.parseInt(part[1]), rand);
+        }
+
+        long bytes = SaveState.save(engine, Paths.get(args[0]));
+        System.out.println(args[0] + ": " + engine.getEnemies().size() + " enemies, " + bytes + " bytes");
+    }
+
+    /**
+     * adds one part of a scene to a game
+     * @param engine the game
+     * @param name the kind of part: balls, wall or mixed
+     * @param count how many enemies it has
+     * @param rand where positions and speeds come from
+     */
+    public static void add(GameEngine engine, String name, int count, Random rand) {
+        EntityStore enemies = engine.getEnemies();
+        MobPools pools = engine.getPools();
+        switch (name) {
+            case "balls":
+                for (int i = 0; i < count; i++) {
+                    Ball ball = pools.balls.acquire();
+                    ball.setRadius(10);
+                    ball.hp = 1;
+                    ball.setVelocityBoundX(-5, 5);
+                    ball.setVelocityBoundY(0, 5);
+                    ball.velX = rand.nextInt(5) + 2;
+                    ball.velY = rand.nextInt(5) + 2;
+                    ball.x = rand.nextDouble() * WIDTH;
+                    ball.y = rand.nextDouble() * HEIGHT * 1.5 - HEIGHT * 0.5;
+                    enemies.add(ball);
+                }
+                break;
+            case "wall":
+                int perRow = 0;
+                for (int i = 0; i < count; i++) {
+                    Obstacle obstacle = pools.obstacles.acquire();
+                    if (perRow == 0) {
+                        perRow = Math.max(1, (int) (WIDTH / obstacle.getWidth()));
+                    }
+                    obstacle.hp = 1;
+                    obstacle.setVelocityBoundX(-5, 5);
+                    obstacle.setVelocityBoundY(0, 5);
+                    obstacle.velY = 5;
+                    obstacle.x = (i % perRow) * obstacle.getWidth();
+                    obstacle.y = -(i / perRow + 1) * obstacle.getHeight();
+                    enemies.add(obstacle);
+                }
+                break;
+            case "mixed":
+                for (Mob mob : mixedMobs(count, rand)) {
+                    mob.x *= WIDTH / 500;
+                    mob.y = rand.nextDouble() * HEIGHT * 1.5 - HEIGHT * 0.5;
+                    enemies.add(mob);
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("unknown scenario part: " + name);
+        }
+    }
+
+    /**
+     * makes n enemies in the mix a busy game has: mostly balls and obstacles, some lifesavers and coins and the
+     * odd spiked wall, set up the same way the engine spawns them and spread over a 500x500 field
+     * @param n how many enemies
+     * @param rand where the positions and speeds come from
+     * @return the enemies
+     */
+    public static Mob[] mixedMobs(int n, Random rand) {
+        Mob[] rtn = new Mob[n];
+        for (int i = 0; i < n; i++) {
+            int kind = rand.nextInt(100);
+            Mob mob;
+            if (kind < 60) {
+                mob = ball(new Ball(), 10, 5, rand);
+            } else if (kind < 68) {
+                mob = ball(new Lifesaver(), 10, 5, rand);
+            } else if (kind < 72) {
+                mob = ball(new Coin(), 25, 8, rand);
+            } else if (kind < 99) {
+                mob = new Obstacle();
+                mob.setVelocityBoundX(-5, 5);
+                mob.setVelocityBoundY(0, 5);
+                mob.velY = 5;
+            } else {
+                mob = new SpikedWall(5 + rand.nextInt(195), 50);
+                mob.setVelocityBoundX(-3, 3);
+                mob.setVelocityBoundY(0, 5);
+                mob.velY = 3;
+            }
+            mob.hp = mob instanceof SpikedWall ? 100000 : 1;
+            mob.x = rand.nextDouble() * 500;
+            mob.y = rand.nextDouble() * 500;
+            rtn[i] = mob;
+        }
+        return rtn;
+    }
+
+    private static Ball ball(Ball ball, double radius, double speed, Random rand) {
+        ball.setRadius(radius);
+        ball.setVelocityBoundX(-speed, speed);
+        ball.setVelocityBoundY(0, speed);
+        ball.velX = rand.nextInt((int) speed) + 2;
+        ball.velY = rand.nextInt((int) speed) + 2;
+        return ball;
+    }
+}
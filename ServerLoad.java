@@ -0,0 +1,112 @@
+package org.headroyce.lross2024;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Loads a GameServer with headless clients that press random keys (and start again when their game ends), and
+ * prints what each client was sent and how long the server's ticks took:
+ *
+ *   java -cp out org.headroyce.lross2024.ServerLoad
+ *
+ * -Dload.clients sets the number of clients (default 200) and -Dload.seconds how long they play (default 10).
+ * With -Dload.server=host:port the clients connect to that server; otherwise one is started in this process on a
+ * free port (so its tick times can be printed too).
+ */
+public class ServerLoad {
+
+    private static final int CLIENTS = Integer.getInteger("load.clients", 200);
+    private static final double SECONDS = Double.parseDouble(System.getProperty("load.seconds", "10"));
+    private static final String SERVER = System.getProperty("load.server");
+
+    // How often (ms) the clients change the keys they hold
+    private static final long INPUT_MILLIS = 250;
+
+    private static final GameEngine.DIRECTION[] MOVES = {
+            GameEngine.DIRECTION.LEFT, GameEngine.DIRECTION.UP, GameEngine.DIRECTION.RIGHT, GameEngine.DIRECTION.DOWN
+    };
+
+    /**
+     * runs the clients and prints the results
+     * @param args not used
+     * @throws IOException if the server cannot be started or reached
+     * @throws InterruptedException if interrupted while the clients play
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        GameServer server = null;
+        InetSocketAddress address;
+        if (SERVER == null) {
+            server = new GameServer(0);
+            GameServer running = server;
+            Thread thread = new Thread(() -> {
+                try {
+                    running.run();
+                } catch (IOException e) {
+                    System.err.println("Server failed: " + e.getMessage());
+                }
+            }, "server");
+            thread.setDaemon(true);
+            thread.start();
+            address = new InetSocketAddress("localhost", server.getPort());
+        } else {
+            address = GameClient.parseAddress(SERVER);
+        }
+
+        GameClient[] clients = new GameClient[CLIENTS];
+        List<TripleBuffer<RenderSnapshot>> buffers = new ArrayList<>();
+        int[] resets = new int[CLIENTS];
+        for (int i = 0; i < clients.length; i++) {
+            buffers.add(new TripleBuffer<>(RenderSnapshot::new));
+            clients[i] = new GameClient(address, buffers.get(i));
+            clients[i].start();
+            clients[i].setSize(500, 500);
+            clients[i].pause(false);
+            clients[i].requestReset();
+            resets[i] = 1;
+        }
+
+        Random rand = new Random(1);
+        GameEngine.DIRECTION[] held = new GameEngine.DIRECTION[clients.length];
+        long start = System.nanoTime();
+        long end = start + (long) (SECONDS * 1e9);
+        while (System.nanoTime() < end) {
+            for (int i = 0; i < clients.length; i++) {
+                RenderSnapshot latest = buffers.get(i).latest();
+                if (latest.gameOver && latest.resets == resets[i]) {
+                    clients[i].requestReset();
+                    resets[i]++;
+                }
+                if (held[i] != null) {
+                    clients[i].release(held[i]);
+                }
+                held[i] = MOVES[rand.nextInt(MOVES.length)];
+                clients[i].press(held[i]);
+            }
+            Thread.sleep(INPUT_MILLIS);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        long bytes = 0, snapshots = 0, least = Long.MAX_VALUE, most = 0;
+        for (GameClient client : clients) {
+            bytes += client.getBytesReceived();
+            snapshots += client.getSnapshots();
+            least = Math.min(least, client.getSnapshots());
+            most = Math.max(most, client.getSnapshots());
+            client.shutdown();
+        }
+        System.out.printf("%d clients for %.1f s: %.1f KB/s each, %.0f bytes a snapshot, %.1f snapshots/s each"
+                        + " (fewest %d, most %d)%n", clients.length, seconds, bytes / seconds / 1024 / clients.length,
+                snapshots == 0 ? 0.0 : (double) bytes / snapshots, snapshots / seconds / clients.length, least, most);
+        if (server != null) {
+            LatencyHistogram ticks = server.getTickTimes();
+            System.out.printf("Server ticks (since its last stats): p50 %s p99 %s max %s%n",
+                    LatencyHistogram.format(ticks.getPercentileNanos(0.5)),
+                    LatencyHistogram.format(ticks.getPercentileNanos(0.99)),
+                    LatencyHistogram.format(ticks.getMaxNanos()));
+            server.shutdown();
+        }
+    }
+}
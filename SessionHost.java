@@ -0,0 +1,272 @@
+package org.headroyce.lross2024;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hosts many headless games (GameSessions) in one JVM, all ticking at a target rate: bot tournaments, or checking
+ * the scores of recorded games on a server. Every round each running session ticks once; the rounds are split
+ * over a work stealing ForkJoinPool, so a worker that finishes its share early takes sessions from a busy one.
+ * When a round takes longer than a tick the next starts straight away, so the sessions fall behind real time
+ * instead of skipping ticks.
+ *
+ *   java -cp out org.headroyce.lross2024.SessionHost [recording]...
+ *
+ * With no recordings it hosts -Dhost.sessions bot games (default 1000); with recordings it plays each one and
+ * prints its score. -Dhost.rate is the target ticks per second (default 60), -Dhost.seconds how long to run at most
+ * (default 10), -Dhost.budget each session's tick budget in milliseconds (default 1), -Dhost.threads the number of
+ * workers (default one per core), -Dhost.ticks the most ticks a bot game runs for (default no limit) and
+ * -Dhost.seed where the bots' seeds come from. At the end it prints throughput, tick times and how many sessions
+ * one core could hold at the target rate.
+ */
+public class SessionHost {
+
+    private static final int SESSIONS = Integer.getInteger("host.sessions", 1000);
+    private static final double RATE = Double.parseDouble(System.getProperty("host.rate", "60"));
+    private static final double SECONDS = Double.parseDouble(System.getProperty("host.seconds", "10"));
+    private static final double BUDGET = Double.parseDouble(System.getProperty("host.budget", "1"));
+    private static final int THREADS = Integer.getInteger("host.threads", Runtime.getRuntime().availableProcessors());
+    private static final long TICKS = Long.getLong("host.ticks", Long.MAX_VALUE);
+    private static final long SEED = Long.getLong("host.seed", 1);
+
+    // Sessions a worker steps on its own instead of splitting them with others
+    private static final int GRAIN = 8;
+
+    private final ForkJoinPool pool;
+    private final long periodNanos;
+
+    private final List<GameSession> sessions;
+    // The sessions still running, in the first liveCount spots
+    private GameSession[] live;
+    private int liveCount;
+
+    private final LatencyHistogram roundTimes;
+    private long rounds, lateRounds;
+    private long ticks;
+    private long elapsedNanos;
+
+    /**
+     * makes a host with no sessions
+     * @param threads how many workers step the sessions
+     * @param tickRate how many ticks a second every session should get
+     */
+    public SessionHost(int threads, double tickRate) {
+        pool = new ForkJoinPool(Math.max(1, threads));
+        periodNanos = (long) (1e9 / tickRate);
+        sessions = new ArrayList<>();
+        live = new GameSession[16];
+        roundTimes = new LatencyHistogram();
+    }
+
+    /**
+     * adds a session, which starts ticking with the next round
+     * @param session the session (not in any other host)
+     */
+    public void add(GameSession session) {
+        sessions.add(session);
+        if (session.isFinished()) {
+            return;
+        }
+        if (liveCount == live.length) {
+            GameSession[] bigger = new GameSession[live.length * 2];
+            System.arraycopy(live, 0, bigger, 0, liveCount);
+            live = bigger;
+        }
+        live[liveCount++] = session;
+    }
+
+    /**
+     * runs rounds at the tick rate until every session is finished or the time is up
+     * @param maxNanos the longest to run for
+     */
+    public void run(long maxNanos) {
+        long start = System.nanoTime();
+        long next = start;
+        while (liveCount > 0 && System.nanoTime() - start < maxNanos) {
+            long roundStart = System.nanoTime();
+            pool.invoke(new Round(live, 0, liveCount));
+            long roundEnd = System.nanoTime();
+            roundTimes.record(roundEnd - roundStart);
+            rounds++;
+            ticks += liveCount;
+            removeFinished();
+
+            next += periodNanos;
+            if (roundEnd >= next) {
+                // Over time: start the next round now rather than trying to catch up
+                lateRounds++;
+                next = roundEnd;
+            } else {
+                LockSupport.parkNanos(next - roundEnd);
+            }
+        }
+        elapsedNanos += System.nanoTime() - start;
+    }
+
+    /**
+     * stops the workers
+     */
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    /**
+     * Get every session, running or not
+     * @return the sessions in the order they were added
+     */
+    public List<GameSession> getSessions() {
+        return sessions;
+    }
+
+    /**
+     * Get how many ticks the sessions have run in all
+     * @return the total ticks
+     */
+    public long getTicks() {
+        return ticks;
+    }
+
+    /**
+     * Get how long each round (one tick of every running session) took
+     * @return the round times
+     */
+    public LatencyHistogram getRoundTimes() {
+        return roundTimes;
+    }
+
+    /**
+     * Get the tick times of every session together
+     * @return a new histogram of all the tick times (nanoseconds)
+     */
+    public LatencyHistogram getTickTimes() {
+        LatencyHistogram all = new LatencyHistogram(1);
+        for (GameSession session : sessions) {
+            all.add(session.getTickTimes());
+        }
+        return all;
+    }
+
+    /**
+     * Get how many sessions one core could keep at the tick rate, from what the sessions' ticks have cost
+     * @param tickNanos the time one session's tick takes (the mean, or a percentile to leave room)
+     * @return sessions per core
+     */
+    public double sessionsPerCore(double tickNanos) {
+        return tickNanos <= 0 ? 0 : periodNanos / tickNanos;
+    }
+
+    /**
+     * what the sessions did: throughput, rounds that overran the tick, tick times and sessions per core
+     */
+    @Override
+    public String toString() {
+        LatencyHistogram tickTimes = getTickTimes();
+        long overruns = 0;
+        int finished = 0;
+        for (GameSession session : sessions) {
+            overruns += session.getOverruns();
+            if (session.isFinished()) {
+                finished++;
+            }
+        }
+        double seconds = elapsedNanos / 1e9;
+        double busy = tickTimes.getMeanNanos() * tickTimes.getCount() / (elapsedNanos * (double) pool.getParallelism());
+
+        StringBuilder rtn = new StringBuilder();
+        rtn.append(String.format("%d sessions (%d finished) on %d workers for %.1f s%n", sessions.size(), finished,
+                pool.getParallelism(), seconds));
+        rtn.append(String.format("%d ticks, %.0f ticks/s, %.1f rounds/s (target %.1f), %d rounds over %s%n", ticks,
+                ticks / seconds, rounds / seconds, 1e9 / periodNanos, lateRounds,
+                LatencyHistogram.format(periodNanos)));
+        rtn.append(String.format("rounds: p50 %s p99 %s max %s%n", LatencyHistogram.format(roundTimes.getPercentileNanos(0.5)),
+                LatencyHistogram.format(roundTimes.getPercentileNanos(0.99)),
+                LatencyHistogram.format(roundTimes.getMaxNanos())));
+        rtn.append(String.format("ticks: mean %s p99 %s max %s, %d over budget, workers %.0f%% busy%n",
+                LatencyHistogram.format(tickTimes.getMeanNanos()),
+                LatencyHistogram.format(tickTimes.getPercentileNanos(0.99)),
+                LatencyHistogram.format(tickTimes.getMaxNanos()), overruns, busy * 100));
+        rtn.append(String.format("sessions per core at %.0f ticks/s: %.0f (mean tick), %.0f (p99 tick)",
+                1e9 / periodNanos, sessionsPerCore(tickTimes.getMeanNanos()),
+                sessionsPerCore(tickTimes.getPercentileNanos(0.99))));
+        return rtn.toString();
+    }
+
+    /**
+     * drops finished sessions from the running ones, keeping the order of the rest
+     */
+    private void removeFinished() {
+        int kept = 0;
+        for (int i = 0; i < liveCount; i++) {
+            if (!live[i].isFinished()) {
+                live[kept++] = live[i];
+            }
+        }
+        for (int i = kept; i < liveCount; i++) {
+            live[i] = null;
+        }
+        liveCount = kept;
+    }
+
+    /**
+     * ticks a range of sessions once, splitting it in half until it is small enough for one worker
+     */
+    private static class Round extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final GameSession[] sessions;
+        private final int from, to;
+
+        private Round(GameSession[] sessions, int from, int to) {
+            this.sessions = sessions;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= GRAIN) {
+                for (int i = from; i < to; i++) {
+                    sessions[i].step();
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new Round(sessions, from, middle), new Round(sessions, middle, to));
+        }
+    }
+
+    /**
+     * hosts bot games, or plays recordings, and prints how it went
+     * @param args recordings to play; none to host bots
+     * @throws IOException if a recording cannot be read
+     */
+    public static void main(String[] args) throws IOException {
+        SessionHost host = new SessionHost(THREADS, RATE);
+        long budget = (long) (BUDGET * 1e6);
+        if (args.length == 0) {
+            GameRandom seeds = new GameRandom(SEED);
+            for (int i = 0; i < SESSIONS; i++) {
+                host.add(GameSession.bot(i, seeds.nextLong(), 500, 500, budget, TICKS));
+            }
+        } else {
+            for (int i = 0; i < args.length; i++) {
+                host.add(GameSession.replay(i, new InputReplay(Paths.get(args[i])), budget));
+            }
+        }
+
+        host.run((long) (SECONDS * 1e9));
+        host.shutdown();
+
+        if (args.length > 0) {
+            for (GameSession session : host.getSessions()) {
+                System.out.println(args[session.getId()] + ": " + session);
+            }
+        }
+        System.out.println(host);
+    }
+}
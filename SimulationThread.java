@@ -0,0 +1,169 @@
+package org.headroyce.lross2024;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Runs a GameEngine on its own thread in real time, so a slow frame cannot hold up a tick or the other way
+ * around. after every step it copies the engine into a RenderSnapshot and publishes it through a TripleBuffer.
+ * only this thread touches the engine; everything else talks to it through the methods here.
+ */
+public class SimulationThread extends Thread {
+
+    private static final long STEP_NANOS = GameEngine.GAME_STEP_TIMER * 1000000L;
+
+    private GameEngine engine;
+    private TripleBuffer<RenderSnapshot> snapshots;
+
+    private volatile boolean running;
+    private volatile boolean paused;
+    private volatile boolean resetRequested;
+    private ConcurrentLinkedQueue<Consumer<GameEngine>> tasks;
+    private int resets;
+    private volatile double width, height;
+
+    // Set when playing a recording instead of taking input, and whether to play it as fast as it runs
+    private InputReplay replay;
+    private boolean fast;
+
+    /**
+     * makes a paused simulation thread (call start and then pause(false) to run it)
+     * @param engine the engine to run; nothing else may touch it once the thread has started
+     * @param snapshots where to publish what the engine looks like after each step
+     */
+    public SimulationThread(GameEngine engine, TripleBuffer<RenderSnapshot> snapshots) {
+        super("simulation");
+        setDaemon(true);
+        this.engine = engine;
+        this.snapshots = snapshots;
+        running = true;
+        paused = true;
+        tasks = new ConcurrentLinkedQueue<>();
+
+        // So there is something to draw before the first step
+        snapshots.back().capture(engine, System.nanoTime());
+        snapshots.publish();
+    }
+
+    /**
+     * plays a recording instead of a live game (call before start). the recording sets the size of the play field
+     * and a reset starts it again.
+     * @param replay the recording
+     * @param fast true to run a tick as soon as the last one is done instead of in real time
+     */
+    public void setReplay(InputReplay replay, boolean fast) {
+        this.replay = replay;
+        this.fast = fast;
+        replay.restart(engine);
+        publish(System.nanoTime());
+    }
+
+    /**
+     * Pause or unpause the simulation
+     * @param setPaused true to pause, false otherwise
+     */
+    public void pause(boolean setPaused) {
+        paused = setPaused;
+        if (!setPaused) {
+            LockSupport.unpark(this);
+        }
+    }
+
+    /**
+     * asks the simulation to reset the engine before its next step
+     */
+    public void requestReset() {
+        resetRequested = true;
+        LockSupport.unpark(this);
+    }
+
+    /**
+     * runs something on the engine between two ticks (even while paused), then publishes the engine as it is
+     * @param task what to do with the engine
+     */
+    public void submit(Consumer<GameEngine> task) {
+        tasks.offer(task);
+        LockSupport.unpark(this);
+    }
+
+    /**
+     * Changes the size of the play field (used from the next step on)
+     * @param width the new width
+     * @param height the new height
+     */
+    public void setSize(double width, double height) {
+        this.width = width;
+        this.height = height;
+    }
+
+    /**
+     * stops the thread after its current step, and finishes the recording if the game is being recorded
+     */
+    public void shutdown() {
+        running = false;
+        LockSupport.unpark(this);
+    }
+
+    @Override
+    public void run() {
+        long last = System.nanoTime();
+        while (running) {
+            if (resetRequested) {
+                resetRequested = false;
+                if (replay != null) {
+                    replay.restart(engine);
+                } else {
+                    engine.reset();
+                }
+                resets++;
+                publish(System.nanoTime());
+            }
+            Consumer<GameEngine> task;
+            while ((task = tasks.poll()) != null) {
+                try {
+                    task.accept(engine);
+                } catch (RuntimeException e) {
+                    // One task going wrong should not stop the game
+                    System.err.println("A task on the simulation thread failed: " + e);
+                }
+                publish(System.nanoTime());
+            }
+            if (paused || engine.isGameOver() || (replay != null && replay.isFinished(engine))) {
+                LockSupport.park(this);
+                // Time spent paused is not game time
+                last = System.nanoTime();
+                continue;
+            }
+
+            if (fast) {
+                engine.tick();
+                publish(System.nanoTime());
+                continue;
+            }
+
+            if (replay == null && width > 0 && height > 0) {
+                engine.setSize(width, height);
+            }
+            long now = System.nanoTime();
+            int ticks = engine.step((now - last) / 1e6);
+            last = now;
+
+            long leftover = (long) (engine.getInterpolation() * STEP_NANOS);
+            if (ticks > 0) {
+                publish(now - leftover);
+            }
+
+            // Sleep until the next tick is due
+            LockSupport.parkNanos(this, STEP_NANOS - leftover);
+        }
+        engine.finishRecording();
+    }
+
+    private void publish(long time) {
+        RenderSnapshot snapshot = snapshots.back();
+        snapshot.capture(engine, time);
+        snapshot.resets = resets;
+        snapshots.publish();
+    }
+}
@@ -0,0 +1,194 @@
+package org.headroyce.lross2024;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Reads the SNAPSHOT messages a SnapshotEncoder writes and keeps the client's side of the game: the player and
+ * every enemy the server has told it about, each as where it was on some tick and its velocity. Enemies are moved
+ * on with NetProtocol.predict exactly as the server predicts them, so the corrections (deltas from that
+ * prediction) land on the same numbers the server has.
+ */
+public class SnapshotDecoder {
+
+    // What the client knows, by slot (see EntityStore.slotOf)
+    private int[] handle;
+    private int[] x, y, velX, velY, width, height;
+    private long[] tick;
+    private byte[] type;
+    private int slots;
+    private int known;
+
+    private long sequence;
+    private long now;
+    private int resets;
+    private int flags;
+    private int playerX, playerY, prevPlayerX, prevPlayerY, playerRadius;
+    private long score, lives;
+    private int timeElapsed;
+    private int serverEnemies;
+
+    /**
+     * makes a decoder that knows nothing yet
+     */
+    public SnapshotDecoder() {
+        handle = new int[64];
+        Arrays.fill(handle, EntityStore.NO_HANDLE);
+        x = new int[64];
+        y = new int[64];
+        velX = new int[64];
+        velY = new int[64];
+        width = new int[64];
+        height = new int[64];
+        tick = new long[64];
+        type = new byte[64];
+    }
+
+    /**
+     * applies one snapshot
+     * @param in the message, after its type byte (the limit is the end of the message)
+     * @throws IOException if the message is cut short or does not fit what the client knows
+     */
+    public void apply(ByteBuffer in) throws IOException {
+        sequence = NetProtocol.getVarint(in);
+        now = NetProtocol.getVarint(in);
+        resets = (int) NetProtocol.getVarint(in);
+        if (!in.hasRemaining()) {
+            throw new IOException("snapshot ends in its header");
+        }
+        flags = in.get();
+        prevPlayerX = playerX;
+        prevPlayerY = playerY;
+        playerX = (int) NetProtocol.getSigned(in);
+        playerY = (int) NetProtocol.getSigned(in);
+        playerRadius = (int) NetProtocol.getVarint(in);
+        score = NetProtocol.getSigned(in);
+        lives = NetProtocol.getSigned(in);
+        timeElapsed = (int) NetProtocol.getVarint(in);
+        serverEnemies = (int) NetProtocol.getVarint(in);
+
+        for (long record = NetProtocol.getVarint(in); record != SnapshotEncoder.END;
+             record = NetProtocol.getVarint(in)) {
+            int kind = (int) (record & ((1 << SnapshotEncoder.KIND_BITS) - 1));
+            long h = record >>> SnapshotEncoder.KIND_BITS;
+            if (h > Integer.MAX_VALUE) {
+                throw new IOException("bad handle " + h);
+            }
+            int slot = EntityStore.slotOf((int) h);
+            if (slot >= handle.length) {
+                resize(Math.max(slot + 1, handle.length * 2));
+            }
+            slots = Math.max(slots, slot + 1);
+
+            if (kind == SnapshotEncoder.DESPAWN) {
+                if (handle[slot] == h) {
+                    handle[slot] = EntityStore.NO_HANDLE;
+                    known--;
+                }
+            } else if (kind == SnapshotEncoder.SPAWN) {
+                if (handle[slot] == EntityStore.NO_HANDLE) {
+                    known++;
+                }
+                handle[slot] = (int) h;
+                if (!in.hasRemaining()) {
+                    throw new IOException("snapshot ends in a spawn");
+                }
+                type[slot] = in.get();
+                if (type[slot] < 0 || type[slot] >= MobType.values().length) {
+                    throw new IOException("bad enemy type " + type[slot]);
+                }
+                width[slot] = (int) NetProtocol.getVarint(in);
+                height[slot] = (int) NetProtocol.getVarint(in);
+                x[slot] = (int) NetProtocol.getSigned(in);
+                y[slot] = (int) NetProtocol.getSigned(in);
+                velX[slot] = (int) NetProtocol.getSigned(in);
+                velY[slot] = (int) NetProtocol.getSigned(in);
+                tick[slot] = now;
+            } else {
+                if (handle[slot] != h) {
+                    throw new IOException("update for enemy " + h + " which the client does not have");
+                }
+                x[slot] = NetProtocol.predict(x[slot], velX[slot], now - tick[slot]) + (int) NetProtocol.getSigned(in);
+                y[slot] = NetProtocol.predict(y[slot], velY[slot], now - tick[slot]) + (int) NetProtocol.getSigned(in);
+                velX[slot] += (int) NetProtocol.getSigned(in);
+                velY[slot] += (int) NetProtocol.getSigned(in);
+                tick[slot] = now;
+            }
+        }
+    }
+
+    /**
+     * Get the number of the last snapshot applied
+     * @return the snapshot's sequence number, to acknowledge
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Get the number of enemies the server has, which can be more than the client has been told about yet
+     * @return the server's enemy count
+     */
+    public int getServerEnemies() {
+        return serverEnemies;
+    }
+
+    /**
+     * copies the game as of the last snapshot into a RenderSnapshot, every enemy where the client predicts it is
+     * and where it was a tick before
+     * @param snapshot the snapshot to fill
+     * @param time when (System.nanoTime) the snapshot arrived
+     */
+    public void fill(RenderSnapshot snapshot, long time) {
+        snapshot.ensureCapacity(known);
+        double scale = NetProtocol.POSITION_SCALE;
+        int count = 0;
+        for (int slot = 0; slot < slots; slot++) {
+            if (handle[slot] == EntityStore.NO_HANDLE) {
+                continue;
+            }
+            long age = now - tick[slot];
+            snapshot.x[count] = NetProtocol.predict(x[slot], velX[slot], age) / scale;
+            snapshot.y[count] = NetProtocol.predict(y[slot], velY[slot], age) / scale;
+            snapshot.prevX[count] = NetProtocol.predict(x[slot], velX[slot], age - 1) / scale;
+            snapshot.prevY[count] = NetProtocol.predict(y[slot], velY[slot], age - 1) / scale;
+            snapshot.width[count] = width[slot] / scale;
+            snapshot.height[count] = height[slot] / scale;
+            snapshot.type[count] = type[slot];
+            count++;
+        }
+        snapshot.count = count;
+
+        snapshot.playerX = playerX / scale;
+        snapshot.playerY = playerY / scale;
+        snapshot.prevPlayerX = prevPlayerX / scale;
+        snapshot.prevPlayerY = prevPlayerY / scale;
+        snapshot.playerRadius = playerRadius / scale;
+        snapshot.playerFlashing = (flags & SnapshotEncoder.PLAYER_FLASHING) != 0;
+
+        snapshot.score = (int) score;
+        snapshot.lives = lives;
+        snapshot.timeElapsed = timeElapsed;
+        snapshot.gameOver = (flags & SnapshotEncoder.GAME_OVER) != 0;
+
+        snapshot.tick = now;
+        snapshot.time = time;
+        snapshot.tickNanos = 0;
+        snapshot.resets = resets;
+    }
+
+    private void resize(int capacity) {
+        int old = handle.length;
+        handle = Arrays.copyOf(handle, capacity);
+        Arrays.fill(handle, old, capacity, EntityStore.NO_HANDLE);
+        x = Arrays.copyOf(x, capacity);
+        y = Arrays.copyOf(y, capacity);
+        velX = Arrays.copyOf(velX, capacity);
+        velY = Arrays.copyOf(velY, capacity);
+        width = Arrays.copyOf(width, capacity);
+        height = Arrays.copyOf(height, capacity);
+        tick = Arrays.copyOf(tick, capacity);
+        type = Arrays.copyOf(type, capacity);
+    }
+}
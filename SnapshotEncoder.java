@@ -0,0 +1,192 @@
+package org.headroyce.lross2024;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Writes SNAPSHOT messages (see NetProtocol) for one client, each one only what has changed since the snapshots
+ * the client already has. The encoder keeps its own copy of what the client knows about every enemy: where it was
+ * on some tick (fixed point), its velocity and its size. Both sides work out where an enemy is now from that with
+ * NetProtocol.predict, so an enemy going straight costs nothing; it is only sent when it appears, disappears,
+ * changes velocity or drifts more than TOLERANCE from where the client thinks it is.
+ *
+ * A snapshot is the player, then a list of records (despawns, spawns and corrections as small deltas from the
+ * client's prediction), then an end marker. Records stop at the byte budget, and the next snapshot carries on from
+ * the enemy where this one stopped, so a client gets the same few hundred bytes a tick however many enemies there
+ * are; with too many changes for the budget, enemies are just corrected less often.
+ *
+ * Over TCP every snapshot arrives, in order, so the copy is updated as each snapshot is written. The client
+ * acknowledges the snapshots it has applied and the server stops sending when too many are unacknowledged (see
+ * GameServer), so the copy is never more than that many snapshots ahead of the client.
+ */
+public class SnapshotEncoder {
+
+    // Record kinds, in the low bits of the varint that carries the handle
+    static final int END = 0;
+    static final int DESPAWN = 1;
+    static final int SPAWN = 2;
+    static final int UPDATE = 3;
+    static final int KIND_BITS = 2;
+
+    // Flags in the snapshot header
+    static final int GAME_OVER = 1;
+    static final int PLAYER_FLASHING = 2;
+    static final int PAUSED = 4;
+
+    // How far (position steps) and how much faster or slower (velocity steps) an enemy can be from what the client
+    // predicts before it is corrected: half a pixel, and half a pixel every 64 ticks
+    private static final int TOLERANCE = NetProtocol.POSITION_SCALE / 2;
+    private static final int VELOCITY_TOLERANCE = NetProtocol.VELOCITY_SCALE / 128;
+
+    // The most bytes one record can take (a spawn: handle, type and six numbers), so a record is never started
+    // without room to finish it
+    static final int MAX_RECORD = 5 + 1 + 6 * 5;
+
+    // What the client knows, by slot (see EntityStore.slotOf)
+    private int[] handle;
+    private int[] x, y, velX, velY, width, height;
+    private long[] tick;
+
+    // The enemy the next snapshot starts at
+    private int cursor;
+    private long sequence;
+
+    /**
+     * makes an encoder for a client that knows nothing yet
+     */
+    public SnapshotEncoder() {
+        handle = new int[64];
+        Arrays.fill(handle, EntityStore.NO_HANDLE);
+        x = new int[64];
+        y = new int[64];
+        velX = new int[64];
+        velY = new int[64];
+        width = new int[64];
+        height = new int[64];
+        tick = new long[64];
+    }
+
+    /**
+     * Get the number of the last snapshot written
+     * @return 0 before the first, then 1, 2, ...
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * writes a snapshot frame of the game as it is now
+     * @param engine the game
+     * @param resets how many times the client's game has been reset
+     * @param paused whether the client's game is paused
+     * @param out where to write; it needs budget plus a few hundred bytes of room
+     * @param budget how many bytes of enemy records the snapshot may hold
+     */
+    public void encode(GameEngine engine, int resets, boolean paused, ByteBuffer out, int budget) {
+        EntityStore enemies = engine.getEnemies();
+        if (handle.length < enemies.getSlotCount()) {
+            resize(Math.max(enemies.getSlotCount(), handle.length * 2));
+        }
+        long now = engine.getTick();
+
+        int frame = NetProtocol.beginFrame(out, NetProtocol.SNAPSHOT);
+        NetProtocol.putVarint(out, ++sequence);
+        NetProtocol.putVarint(out, now);
+        NetProtocol.putVarint(out, resets);
+        int flags = (engine.isGameOver() ? GAME_OVER : 0) | (engine.isPlayerFlashing() ? PLAYER_FLASHING : 0)
+                | (paused ? PAUSED : 0);
+        out.put((byte) flags);
+        Ball player = engine.getPlayer();
+        NetProtocol.putSigned(out, NetProtocol.quantize(player.x));
+        NetProtocol.putSigned(out, NetProtocol.quantize(player.y));
+        NetProtocol.putVarint(out, NetProtocol.quantize(player.getRadius()));
+        NetProtocol.putSigned(out, player.score);
+        NetProtocol.putSigned(out, Math.round(player.getHP()));
+        NetProtocol.putVarint(out, engine.getTimeElapsed());
+        NetProtocol.putVarint(out, enemies.size());
+
+        int limit = out.position() + Math.max(0, budget - MAX_RECORD);
+
+        // Enemies that are gone first: the client would keep drawing them otherwise
+        for (int slot = 0; slot < handle.length && out.position() <= limit; slot++) {
+            if (handle[slot] != EntityStore.NO_HANDLE && enemies.indexOf(handle[slot]) == EntityStore.NO_HANDLE) {
+                NetProtocol.putVarint(out, ((long) handle[slot] << KIND_BITS) | DESPAWN);
+                handle[slot] = EntityStore.NO_HANDLE;
+            }
+        }
+
+        int count = enemies.size();
+        if (cursor >= count) {
+            cursor = 0;
+        }
+        for (int k = 0; k < count; k++) {
+            int i = cursor + k < count ? cursor + k : cursor + k - count;
+            int h = enemies.handleAt(i);
+            int slot = EntityStore.slotOf(h);
+            int qx = NetProtocol.quantize(enemies.x[i]);
+            int qy = NetProtocol.quantize(enemies.y[i]);
+            int qvx = NetProtocol.quantizeVelocity(enemies.x[i] - enemies.prevX[i]);
+            int qvy = NetProtocol.quantizeVelocity(enemies.y[i] - enemies.prevY[i]);
+            int qw = NetProtocol.quantize(enemies.width[i]);
+            int qh = NetProtocol.quantize(enemies.height[i]);
+
+            // A new enemy in the slot (or one that changed size) is sent whole, which replaces what was there
+            boolean spawn = handle[slot] != h || width[slot] != qw || height[slot] != qh;
+            int px = 0, py = 0;
+            if (!spawn) {
+                px = NetProtocol.predict(x[slot], velX[slot], now - tick[slot]);
+                py = NetProtocol.predict(y[slot], velY[slot], now - tick[slot]);
+                if (Math.abs(qx - px) <= TOLERANCE && Math.abs(qy - py) <= TOLERANCE
+                        && Math.abs(qvx - velX[slot]) <= VELOCITY_TOLERANCE
+                        && Math.abs(qvy - velY[slot]) <= VELOCITY_TOLERANCE) {
+                    continue;
+                }
+            }
+
+            if (out.position() > limit) {
+                // Out of room: the next snapshot starts here
+                cursor = i;
+                break;
+            }
+            if (spawn) {
+                NetProtocol.putVarint(out, ((long) h << KIND_BITS) | SPAWN);
+                out.put(enemies.type[i]);
+                NetProtocol.putVarint(out, qw);
+                NetProtocol.putVarint(out, qh);
+                NetProtocol.putSigned(out, qx);
+                NetProtocol.putSigned(out, qy);
+                NetProtocol.putSigned(out, qvx);
+                NetProtocol.putSigned(out, qvy);
+                handle[slot] = h;
+                width[slot] = qw;
+                height[slot] = qh;
+            } else {
+                NetProtocol.putVarint(out, ((long) h << KIND_BITS) | UPDATE);
+                NetProtocol.putSigned(out, qx - px);
+                NetProtocol.putSigned(out, qy - py);
+                NetProtocol.putSigned(out, qvx - velX[slot]);
+                NetProtocol.putSigned(out, qvy - velY[slot]);
+            }
+            x[slot] = qx;
+            y[slot] = qy;
+            velX[slot] = qvx;
+            velY[slot] = qvy;
+            tick[slot] = now;
+        }
+        NetProtocol.putVarint(out, END);
+        NetProtocol.endFrame(out, frame);
+    }
+
+    private void resize(int capacity) {
+        int old = handle.length;
+        handle = Arrays.copyOf(handle, capacity);
+        Arrays.fill(handle, old, capacity, EntityStore.NO_HANDLE);
+        x = Arrays.copyOf(x, capacity);
+        y = Arrays.copyOf(y, capacity);
+        velX = Arrays.copyOf(velX, capacity);
+        velY = Arrays.copyOf(velY, capacity);
+        width = Arrays.copyOf(width, capacity);
+        height = Arrays.copyOf(height, capacity);
+        tick = Arrays.copyOf(tick, capacity);
+    }
+}
@@ -0,0 +1,190 @@
+package org.headroyce.lross2024;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+import javax.management.NotificationEmitter;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Plays the game for hours without a display, driven by the Autopilot and reset whenever a game ends, to catch
+ * leaks and ticks that slowly get slower before a release:
+ *
+ *   java -cp out org.headroyce.lross2024.Soak
+ *
+ * Every interval it prints the games played (and per hour), the live enemies, timers and pooled mobs, the heap
+ * left after the last garbage collection, the collections and their time in the interval, and the p99 and max
+ * tick of the interval. At the end it prints how the heap after collection and the p99 tick moved over the run
+ * (a least squares slope per hour), which is where a slow leak or creeping latency shows.
+ *
+ * -Dsoak.minutes sets how long it runs (default 60), -Dsoak.interval the seconds between lines (default 60) and
+ * -Dsoak.seed where the games' seeds come from. Ticks run in real time like the game unless -Dsoak.fast=true,
+ * which runs them back to back and so packs hours of play into less time.
+ */
+public class Soak {
+
+    private static final double MINUTES = Double.parseDouble(System.getProperty("soak.minutes", "60"));
+    private static final double INTERVAL = Double.parseDouble(System.getProperty("soak.interval", "60"));
+    private static final long SEED = Long.getLong("soak.seed", 1);
+    private static final boolean FAST = Boolean.getBoolean("soak.fast");
+
+    private static final long STEP_NANOS = GameEngine.GAME_STEP_TIMER * 1000000L;
+
+    // Heap in use after the last collection, as the collectors report it
+    private static volatile long heapAfterGc = -1;
+
+    /**
+     * runs the soak
+     * @param args not used
+     */
+    public static void main(String[] args) {
+        watchCollections();
+
+        GameRandom seeds = new GameRandom(SEED);
+        GameEngine engine = new GameEngine(500, 500, seeds.nextLong());
+        engine.setInputSource(new Autopilot());
+
+        LatencyHistogram tickTimes = new LatencyHistogram(1);
+        List<double[]> heapTrend = new ArrayList<>();
+        List<double[]> p99Trend = new ArrayList<>();
+        long games = 0, gameTicks = 0;
+        long lastGcCount = gcCount(), lastGcTime = gcTime();
+
+        System.out.printf("%8s %7s %8s %8s %7s %7s %10s %5s %8s %9s %9s%n", "minutes", "games", "games/h",
+                "enemies", "timers", "pooled", "heap", "gcs", "gc time", "tick p99", "tick max");
+
+        long start = System.nanoTime();
+        long end = start + (long) (MINUTES * 60e9);
+        long nextLine = start + (long) (INTERVAL * 1e9);
+        long nextTick = start;
+        while (true) {
+            long now = System.nanoTime();
+            if (now >= nextLine || now >= end) {
+                double minutes = (now - start) / 60e9;
+                long gcs = gcCount(), gcTime = gcTime();
+                long p99 = tickTimes.getPercentileNanos(0.99);
+                System.out.printf("%8.1f %7d %8.1f %8d %7d %7d %10s %5d %6d ms %9s %9s%n", minutes, games,
+                        games / (minutes / 60), engine.getEnemies().size(), engine.getTimers().size(),
+                        engine.getPools().getIdle(), heapAfterGc < 0 ? "-" : megabytes(heapAfterGc),
+                        gcs - lastGcCount, gcTime - lastGcTime, LatencyHistogram.format(p99),
+                        LatencyHistogram.format(tickTimes.getMaxNanos()));
+                if (heapAfterGc >= 0) {
+                    heapTrend.add(new double[]{minutes / 60, heapAfterGc});
+                }
+                p99Trend.add(new double[]{minutes / 60, p99});
+                tickTimes.clear();
+                lastGcCount = gcs;
+                lastGcTime = gcTime;
+                nextLine += (long) (INTERVAL * 1e9);
+                if (now >= end) {
+                    break;
+                }
+            }
+
+            if (!FAST) {
+                if (now < nextTick) {
+                    LockSupport.parkNanos(nextTick - now);
+                    continue;
+                }
+                nextTick = Math.max(nextTick + STEP_NANOS, now - STEP_NANOS);
+            }
+
+            long before = System.nanoTime();
+            engine.tick();
+            tickTimes.record(System.nanoTime() - before);
+            if (engine.isGameOver()) {
+                games++;
+                gameTicks += engine.getTick();
+                engine.reset(seeds.nextLong());
+            }
+        }
+
+        System.out.printf("%d games, %.0f ticks a game on average%n", games,
+                games == 0 ? 0.0 : (double) gameTicks / games);
+        System.out.printf("heap after GC: %s per hour (least squares over %d lines)%n",
+                heapTrend.size() < 2 ? "-" : signed(slope(heapTrend), megabytes((long) Math.abs(slope(heapTrend)))), heapTrend.size());
+        System.out.printf("tick p99: %s per hour (least squares over %d lines)%n",
+                p99Trend.size() < 2 ? "-" : signed(slope(p99Trend), LatencyHistogram.format(Math.abs(slope(p99Trend)))), p99Trend.size());
+    }
+
+    /**
+     * listens to every collector for what the heap holds after each collection
+     */
+    private static void watchCollections() {
+        Set<String> heapPools = new HashSet<>();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                heapPools.add(pool.getName());
+            }
+        }
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (!(collector instanceof NotificationEmitter)) {
+                continue;
+            }
+            ((NotificationEmitter) collector).addNotificationListener((notification, handback) -> {
+                if (!notification.getType().equals(GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION)) {
+                    return;
+                }
+                GarbageCollectionNotificationInfo info =
+                        GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+                long used = 0;
+                for (Map.Entry<String, MemoryUsage> pool : info.getGcInfo().getMemoryUsageAfterGc().entrySet()) {
+                    if (heapPools.contains(pool.getKey())) {
+                        used += pool.getValue().getUsed();
+                    }
+                }
+                heapAfterGc = used;
+            }, null, null);
+        }
+    }
+
+    private static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, collector.getCollectionCount());
+        }
+        return count;
+    }
+
+    private static long gcTime() {
+        long time = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            time += Math.max(0, collector.getCollectionTime());
+        }
+        return time;
+    }
+
+    /**
+     * the least squares slope of y over x
+     * @param points x, y pairs
+     */
+    private static double slope(List<double[]> points) {
+        double n = points.size(), sx = 0, sy = 0, sxx = 0, sxy = 0;
+        for (double[] p : points) {
+            sx += p[0];
+            sy += p[1];
+            sxx += p[0] * p[0];
+            sxy += p[0] * p[1];
+        }
+        double d = n * sxx - sx * sx;
+        return d == 0 ? 0 : (n * sxy - sx * sy) / d;
+    }
+
+    private static String signed(double value, String magnitude) {
+        return (value < 0 ? "-" : "+") + magnitude;
+    }
+
+    private static String megabytes(long bytes) {
+        return String.format("%.1f MB", bytes / (1024.0 * 1024.0));
+    }
+}
@@ -0,0 +1,145 @@
+package org.headroyce.lross2024;
+
+/**
+ * in-place sorts used every tick. Arrays.sort can allocate a merge buffer for big, partly sorted arrays (which is
+ * exactly what the broadphase hands it every tick), these never allocate.
+ */
+public final class Sorting {
+
+    // Below this many elements the sorts switch to insertion sort
+    private static final int INSERTION_SORT_SIZE = 16;
+
+    private Sorting() {
+    }
+
+    /**
+     * sorts a[from..to) in ascending order
+     * @param a the array to sort
+     * @param from first index to sort (inclusive)
+     * @param to last index to sort (exclusive)
+     */
+    public static void sort(long[] a, int from, int to) {
+        quicksort(a, from, to - 1);
+    }
+
+    /**
+     * sorts order[lo..hi] (inclusive) so key[order[i]] is ascending
+     * @param order the indexes to sort
+     * @param key the value of every index
+     * @param lo first position to sort
+     * @param hi last position to sort
+     */
+    public static void sortByKey(int[] order, double[] key, int lo, int hi) {
+        while (hi - lo >= INSERTION_SORT_SIZE) {
+            int mid = (lo + hi) >>> 1;
+            double pivot = medianOf3(key[order[lo]], key[order[mid]], key[order[hi]]);
+
+            int i = lo;
+            int j = hi;
+            while (i <= j) {
+                while (key[order[i]] < pivot) {
+                    i++;
+                }
+                while (key[order[j]] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    int t = order[i];
+                    order[i] = order[j];
+                    order[j] = t;
+                    i++;
+                    j--;
+                }
+            }
+
+            // Recurse into the smaller half so the stack stays shallow
+            if (j - lo < hi - i) {
+                sortByKey(order, key, lo, j);
+                lo = i;
+            } else {
+                sortByKey(order, key, i, hi);
+                hi = j;
+            }
+        }
+
+        for (int i = lo + 1; i <= hi; i++) {
+            int v = order[i];
+            double k = key[v];
+            int j = i - 1;
+            while (j >= lo && key[order[j]] > k) {
+                order[j + 1] = order[j];
+                j--;
+            }
+            order[j + 1] = v;
+        }
+    }
+
+    private static void quicksort(long[] a, int lo, int hi) {
+        while (hi - lo >= INSERTION_SORT_SIZE) {
+            int mid = (lo + hi) >>> 1;
+            long pivot = medianOf3(a[lo], a[mid], a[hi]);
+
+            int i = lo;
+            int j = hi;
+            while (i <= j) {
+                while (a[i] < pivot) {
+                    i++;
+                }
+                while (a[j] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    long t = a[i];
+                    a[i] = a[j];
+                    a[j] = t;
+                    i++;
+                    j--;
+                }
+            }
+
+            if (j - lo < hi - i) {
+                quicksort(a, lo, j);
+                lo = i;
+            } else {
+                quicksort(a, i, hi);
+                hi = j;
+            }
+        }
+
+        for (int i = lo + 1; i <= hi; i++) {
+            long v = a[i];
+            int j = i - 1;
+            while (j >= lo && a[j] > v) {
+                a[j + 1] = a[j];
+                j--;
+            }
+            a[j + 1] = v;
+        }
+    }
+
+    private static long medianOf3(long a, long b, long c) {
+        if (a < b) {
+            if (b < c) {
+                return b;
+            }
+            return Math.max(a, c);
+        }
+        if (a < c) {
+            return a;
+        }
+        return Math.max(b, c);
+    }
+
+    private static double medianOf3(double a, double b, double c) {
+        if (a < b) {
+            if (b < c) {
+                return b;
+            }
+            return Math.max(a, c);
+        }
+        if (a < c) {
+            return a;
+        }
+        return Math.max(b, c);
+    }
+}
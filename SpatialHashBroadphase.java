@@ -0,0 +1,137 @@
+package org.headroyce.lross2024;
+
+import java.util.Arrays;
+
+/**
+ * uniform grid broadphase. every box is put in each cell it covers and only boxes sharing a cell are compared.
+ * boxes that would cover a lot of cells (spiked walls can be 40% of the screen wide) are kept out of the grid
+ * and checked against everything instead, so one wide wall does not fill hundreds of cells every tick.
+ */
+public class SpatialHashBroadphase implements Broadphase {
+
+    // Balls are 20px wide and coins 50px, so most mobs land in one to four cells
+    public static final double DEFAULT_CELL_SIZE = 64;
+
+    // Boxes covering more cells than this (in either direction) skip the grid
+    private static final int MAX_CELLS_PER_AXIS = 4;
+
+    private double cellSize;
+
+    // (cell key << 32 | index) for every cell a box covers
+    private long[] entries;
+    private int entryCount;
+
+    private int[] oversized;
+    private int oversizedCount;
+
+    /**
+     * makes a new grid broadphase
+     * @param cellSize width and height of a grid cell in pixels; non-positives are reset to the default
+     */
+    public SpatialHashBroadphase(double cellSize) {
+        if (cellSize <= 0) {
+            cellSize = DEFAULT_CELL_SIZE;
+        }
+        this.cellSize = cellSize;
+        entries = new long[256];
+        oversized = new int[16];
+    }
+
+    @Override
+    public void findPairs(double[] x, double[] y, double[] w, double[] h, int count, PairBuffer pairs) {
+        pairs.clear();
+        entryCount = 0;
+        oversizedCount = 0;
+
+        for (int i = 0; i < count; i++) {
+            int cx0 = cell(x[i]);
+            int cy0 = cell(y[i]);
+            int cx1 = cell(x[i] + w[i]);
+            int cy1 = cell(y[i] + h[i]);
+
+            if (cx1 - cx0 >= MAX_CELLS_PER_AXIS || cy1 - cy0 >= MAX_CELLS_PER_AXIS) {
+                if (oversizedCount == oversized.length) {
+                    oversized = Arrays.copyOf(oversized, oversized.length * 2);
+                }
+                oversized[oversizedCount++] = i;
+                continue;
+            }
+
+            for (int cx = cx0; cx <= cx1; cx++) {
+                for (int cy = cy0; cy <= cy1; cy++) {
+                    if (entryCount == entries.length) {
+                        entries = Arrays.copyOf(entries, entries.length * 2);
+                    }
+                    entries[entryCount++] = ((long) key(cx, cy) << 32) | i;
+                }
+            }
+        }
+
+        // Sorting puts everything in the same cell next to each other
+        Sorting.sort(entries, 0, entryCount);
+
+        int start = 0;
+        while (start < entryCount) {
+            int cellKey = (int) (entries[start] >>> 32);
+            int end = start + 1;
+            while (end < entryCount && (int) (entries[end] >>> 32) == cellKey) {
+                end++;
+            }
+
+            for (int s = start; s < end; s++) {
+                int a = (int) entries[s];
+                for (int t = s + 1; t < end; t++) {
+                    int b = (int) entries[t];
+                    if (Broadphase.overlaps(x, y, w, h, a, b) && ownsPair(cellKey, x, y, a, b)) {
+                        pairs.add(a, b);
+                    }
+                }
+            }
+            start = end;
+        }
+
+        // Oversized boxes are checked against every box; pairs of two oversized boxes only once
+        for (int k = 0; k < oversizedCount; k++) {
+            int a = oversized[k];
+            for (int b = 0; b < count; b++) {
+                if (b == a || (b < a && isOversized(b, k))) {
+                    continue;
+                }
+                if (Broadphase.overlaps(x, y, w, h, a, b)) {
+                    pairs.add(a, b);
+                }
+            }
+        }
+
+        pairs.sort();
+    }
+
+    /**
+     * a pair can share several cells, only the cell holding the top left corner of their overlap reports it
+     */
+    private boolean ownsPair(int cellKey, double[] x, double[] y, int a, int b) {
+        int cx = cell(Math.max(x[a], x[b]));
+        int cy = cell(Math.max(y[a], y[b]));
+        return key(cx, cy) == cellKey;
+    }
+
+    /**
+     * checks if b is one of the oversized boxes before position k (those already reported their pairs)
+     */
+    private boolean isOversized(int b, int k) {
+        for (int i = 0; i < k; i++) {
+            if (oversized[i] == b) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int cell(double v) {
+        return (int) Math.floor(v / cellSize);
+    }
+
+    private static int key(int cx, int cy) {
+        return (cx << 16) | (cy & 0xFFFF);
+    }
+}
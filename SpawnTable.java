@@ -0,0 +1,351 @@
+package org.headroyce.lross2024;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * what the game spawns and when. a table is a list of sources, each on its own timer; every time a source's timer
+ * fires it rolls a number and spawns the first of its entries whose chance is above the roll (or nothing). the
+ * table is read from a text file given by -Dgame.spawns=file, or is DEFAULT, the game's own spawns:
+ *
+ *   source enemies first=200 every=150 roll=100
+ *     ball below=8 radius=10 velX=2..6 velY=2..6 boundX=-5..5 boundY=0..5
+ *
+ * a source line has its name, the milliseconds until it first fires and between firings, and the size of its roll.
+ * the lines after it are its entries, each a mob type (ball, lifesaver, coin, obstacle or spiked_wall) and:
+ *
+ * - below=n: spawns when the roll is under n (and no earlier entry did)
+ * - radius=r (balls, which need one), width=w and height=h (boxes): its size; width=n% is a random width up to n%
+ *   of the field
+ * - hp=n: its hp (default 1)
+ * - velX=a..b, velY=a..b: its starting speed, a random whole number from a to b (or exactly a for velX=a)
+ * - boundX=a..b, boundY=a..b: the bounds on its speed
+ * - place=top (default, somewhere along the top) or place=side (against the left or right wall)
+ * - burst=n: how many spawn at once (default 1)
+ * - unique: does not spawn while the last one this entry spawned is still in the game (another entry of the same
+ *   type does not count)
+ *
+ * blank lines and anything after # are ignored.
+ */
+public class SpawnTable {
+
+    // The spawns the game has always had
+    public static final String DEFAULT = String.join("\n",
+            "source enemies first=200 every=150 roll=100",
+            "  ball below=8 radius=10 velX=2..6 velY=2..6 boundX=-5..5 boundY=0..5",
+            "  lifesaver below=10 radius=10 velX=2..6 velY=2..6 boundX=-5..5 boundY=0..5",
+            "source obstacles first=200 every=150 roll=120",
+            "  obstacle below=5 velY=5 boundX=-5..5 boundY=0..5",
+            "  spiked_wall below=10 width=40% height=50 hp=100000 velY=3 boundX=-3..3 boundY=0..5 place=side unique",
+            "source coins first=700 every=600 roll=100",
+            "  coin below=2 radius=25 velX=2..7 velY=2..7 boundX=-8..8 boundY=0..8");
+
+    // The table every engine uses (-Dgame.spawns=file), read once
+    private static SpawnTable configured;
+
+    /**
+     * one timer and the entries it picks from
+     */
+    public static final class Source {
+        public final String name;
+        // Milliseconds until it first fires and between firings
+        public final int first, every;
+        public final int roll;
+        public final Spawn[] spawns;
+
+        private Source(String name, int first, int every, int roll, Spawn[] spawns) {
+            this.name = name;
+            this.first = first;
+            this.every = every;
+            this.roll = roll;
+            this.spawns = spawns;
+        }
+    }
+
+    /**
+     * one kind of mob a source can spawn
+     */
+    public static final class Spawn {
+        public final MobType type;
+        public final int below;
+        // Zero keeps the size the mob comes out of its pool with
+        public final double radius, width, height;
+        // Above zero, the width is random up to this percent of the field
+        public final double widthPercent;
+        public final double hp;
+        public final int minVelX, maxVelX, minVelY, maxVelY;
+        // Null keeps the bounds the mob comes out of its pool with
+        public final double[] boundX, boundY;
+        public final boolean side;
+        public final int burst;
+        public final boolean unique;
+        // Which of the table's unique entries this is, or -1 if it is not unique
+        public final int uniqueSlot;
+
+        private Spawn(MobType type, int below, double radius, double width, double height, double widthPercent,
+                      double hp, int[] velX, int[] velY, double[] boundX, double[] boundY, boolean side, int burst,
+                      int uniqueSlot) {
+            this.type = type;
+            this.below = below;
+            this.radius = radius;
+            this.width = width;
+            this.height = height;
+            this.widthPercent = widthPercent;
+            this.hp = hp;
+            this.minVelX = velX[0];
+            this.maxVelX = velX[1];
+            this.minVelY = velY[0];
+            this.maxVelY = velY[1];
+            this.boundX = boundX;
+            this.boundY = boundY;
+            this.side = side;
+            this.burst = burst;
+            this.unique = uniqueSlot >= 0;
+            this.uniqueSlot = uniqueSlot;
+        }
+    }
+
+    private final Source[] sources;
+    private final int uniqueCount;
+
+    private SpawnTable(Source[] sources, int uniqueCount) {
+        this.sources = sources;
+        this.uniqueCount = uniqueCount;
+    }
+
+    /**
+     * Get the table set by game.spawns (DEFAULT if it is not set). the file is only read the first time.
+     * @return the table
+     * @throws UncheckedIOException if the file cannot be read or is not a spawn table
+     */
+    public static synchronized SpawnTable configured() {
+        if (configured == null) {
+            String file = System.getProperty("game.spawns");
+            try {
+                configured = file == null ? parse(DEFAULT, "DEFAULT") : load(Paths.get(file));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return configured;
+    }
+
+    /**
+     * reads a table from a file
+     * @param file the table
+     * @return the table
+     * @throws IOException if the file cannot be read or is not a spawn table
+     */
+    public static SpawnTable load(Path file) throws IOException {
+        return parse(Files.readString(file), file.toString());
+    }
+
+    /**
+     * reads a table
+     * @param text the table
+     * @param name what to call it in errors
+     * @return the table
+     * @throws IOException if it is not a spawn table
+     */
+    public static SpawnTable parse(String text, String name) throws IOException {
+        List<Source> sources = new ArrayList<>();
+        List<Spawn> spawns = new ArrayList<>();
+        String[] header = null;
+        int uniqueCount = 0;
+
+        String[] lines = text.split("\r?\n");
+        for (int i = 0; i < lines.length; i++) {
+            String line = lines[i];
+            int comment = line.indexOf('#');
+            if (comment >= 0) {
+                line = line.substring(0, comment);
+            }
+            line = line.trim();
+            if (line.isEmpty()) {
+                continue;
+            }
+
+            String where = name + ":" + (i + 1) + ": ";
+            String[] words = line.split("\\s+");
+            try {
+                if (words[0].equals("source")) {
+                    if (header != null) {
+                        sources.add(source(header, spawns));
+                    }
+                    if (words.length < 2) {
+                        throw new IllegalArgumentException("a source needs a name");
+                    }
+                    header = words;
+                    spawns.clear();
+                    source(header, spawns);
+                } else if (header == null) {
+                    throw new IllegalArgumentException("entry before any source");
+                } else {
+                    Spawn spawn = spawn(words, uniqueCount);
+                    spawns.add(spawn);
+                    if (spawn.unique) {
+                        uniqueCount++;
+                    }
+                }
+            } catch (IllegalArgumentException e) {
+                throw new IOException(where + e.getMessage());
+            }
+        }
+        if (header != null) {
+            sources.add(source(header, spawns));
+        }
+        return new SpawnTable(sources.toArray(new Source[0]), uniqueCount);
+    }
+
+    /**
+     * Get the sources, in the order they are in the table (and spawn in when they fire on the same tick)
+     * @return every source
+     */
+    public Source[] getSources() {
+        return sources;
+    }
+
+    /**
+     * Get the number of unique entries, each of which the game keeps track of the last one spawned for
+     * @return how many entries are unique
+     */
+    public int getUniqueCount() {
+        return uniqueCount;
+    }
+
+    private static Source source(String[] words, List<Spawn> spawns) {
+        int first = 0, every = 0, roll = 0;
+        for (int i = 2; i < words.length; i++) {
+            String[] pair = pair(words[i]);
+            switch (pair[0]) {
+                case "first":
+                    first = Integer.parseInt(pair[1]);
+                    break;
+                case "every":
+                    every = Integer.parseInt(pair[1]);
+                    break;
+                case "roll":
+                    roll = Integer.parseInt(pair[1]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("unknown source setting " + pair[0]);
+            }
+        }
+        if (every <= 0 || roll <= 0) {
+            throw new IllegalArgumentException("source " + words[1] + " needs every and roll above zero");
+        }
+        return new Source(words[1], Math.max(0, first), every, roll, spawns.toArray(new Spawn[0]));
+    }
+
+    private static Spawn spawn(String[] words, int uniqueSlot) {
+        MobType type;
+        try {
+            type = MobType.valueOf(words[0].toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("unknown mob type " + words[0]);
+        }
+        if (type == MobType.MOB) {
+            throw new IllegalArgumentException("cannot spawn a plain mob");
+        }
+
+        int below = 0;
+        double radius = 0, width = 0, height = 0, widthPercent = 0, hp = 1;
+        int[] velX = {0, 0}, velY = {0, 0};
+        double[] boundX = null, boundY = null;
+        boolean side = false, unique = false;
+        int burst = 1;
+        for (int i = 1; i < words.length; i++) {
+            if (words[i].equals("unique")) {
+                unique = true;
+                continue;
+            }
+            String[] pair = pair(words[i]);
+            switch (pair[0]) {
+                case "below":
+                    below = Integer.parseInt(pair[1]);
+                    break;
+                case "radius":
+                    radius = Double.parseDouble(pair[1]);
+                    break;
+                case "width":
+                    if (pair[1].endsWith("%")) {
+                        widthPercent = Double.parseDouble(pair[1].substring(0, pair[1].length() - 1));
+                    } else {
+                        width = Double.parseDouble(pair[1]);
+                    }
+                    break;
+                case "height":
+                    height = Double.parseDouble(pair[1]);
+                    break;
+                case "hp":
+                    hp = Double.parseDouble(pair[1]);
+                    break;
+                case "velX":
+                    velX = intRange(pair[1]);
+                    break;
+                case "velY":
+                    velY = intRange(pair[1]);
+                    break;
+                case "boundX":
+                    boundX = range(pair[1]);
+                    break;
+                case "boundY":
+                    boundY = range(pair[1]);
+                    break;
+                case "place":
+                    if (!pair[1].equals("top") && !pair[1].equals("side")) {
+                        throw new IllegalArgumentException("place is top or side, not " + pair[1]);
+                    }
+                    side = pair[1].equals("side");
+                    break;
+                case "burst":
+                    burst = Math.max(1, Integer.parseInt(pair[1]));
+                    break;
+                default:
+                    throw new IllegalArgumentException("unknown entry setting " + pair[0]);
+            }
+        }
+        if (type.isBall() && (width > 0 || widthPercent > 0 || height > 0)) {
+            throw new IllegalArgumentException(words[0] + " is sized by radius");
+        }
+        if (type.isBall() && radius <= 0) {
+            throw new IllegalArgumentException(words[0] + " needs radius=");
+        }
+        if (!type.isBall() && radius > 0) {
+            throw new IllegalArgumentException(words[0] + " is sized by width and height");
+        }
+        return new Spawn(type, below, radius, width, height, widthPercent, hp, velX, velY, boundX, boundY, side,
+                burst, unique ? uniqueSlot : -1);
+    }
+
+    private static String[] pair(String word) {
+        int equals = word.indexOf('=');
+        if (equals <= 0) {
+            throw new IllegalArgumentException("expected name=value: " + word);
+        }
+        return new String[]{word.substring(0, equals), word.substring(equals + 1)};
+    }
+
+    private static double[] range(String value) {
+        String[] ends = value.split("\\.\\.", -1);
+        double[] range = {Double.parseDouble(ends[0]), Double.parseDouble(ends[ends.length - 1])};
+        if (ends.length > 2 || range[0] > range[1]) {
+            throw new IllegalArgumentException("bad range " + value);
+        }
+        return range;
+    }
+
+    private static int[] intRange(String value) {
+        String[] ends = value.split("\\.\\.", -1);
+        int[] range = {Integer.parseInt(ends[0]), Integer.parseInt(ends[ends.length - 1])};
+        if (ends.length > 2 || range[0] > range[1]) {
+            throw new IllegalArgumentException("bad range " + value);
+        }
+        return range;
+    }
+}
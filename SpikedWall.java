@@ -1,14 +1,11 @@
 package org.headroyce.lross2024;
 
-import javafx.scene.canvas.Canvas;
-import javafx.scene.canvas.GraphicsContext;
-import javafx.scene.paint.Color;
-
 /**
  * spiked wall, moves adjacent to wall and doesn't die.
  */
 public class SpikedWall extends Obstacle{
-
+    // The size it was made with, which reset puts back
+    private final double startWidth, startHeight;
 
     /**
      * Creates an obstacle with a custom width and height (in pixels)
@@ -17,8 +14,27 @@ public class SpikedWall extends Obstacle{
      */
     public SpikedWall( double width, double height ){
         super(width, height);
-        setColor(Color.DODGERBLUE);
+        startWidth = getWidth();
+        startHeight = getHeight();
+    }
+
+    /**
+     * puts every field back to how this spiked wall started, including the size it was made with
+     */
+    public void reset(){
+        super.reset();
+        setWidth(startWidth);
+        setHeight(startHeight);
     }
+
+    /**
+     * Get the type of this mob
+     * @return the spiked wall type
+     */
+    public MobType getType(){
+        return MobType.SPIKED_WALL;
+    }
+
     /**
      * since SW cannot die, you do not remove hp, just adds to sw.
      * @return how much damage it does to other mob.
@@ -0,0 +1,92 @@
+package org.headroyce.lross2024;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Times how the game starts up, from the JVM starting to the first frame drawn: each phase calls mark as it ends, and
+ * firstFrame ends the last one and (with -Dgame.startup=true) prints every phase on one line:
+ *
+ *   Startup: jvm 212 ms, fx 141 ms, logic 9 ms, gui 3 ms, shown 88 ms, first frame 31 ms = 484 ms
+ *
+ * "jvm" is from the JVM starting to main, so it is mostly the JVM booting and loading its first classes, which is
+ * what a class data sharing archive cuts (see the README). It is only worked out when the phases are printed, so
+ * the management classes it needs are not loaded before the first frame. With -Dgame.quit=seconds the game closes
+ * itself that long after its first frame, for training runs and for measuring cold starts in a loop.
+ *
+ * Marks come from the JavaFX thread apart from main's, which happens before that thread starts.
+ */
+public final class Startup {
+
+    public static final boolean PRINT = Boolean.getBoolean("game.startup");
+    public static final double QUIT = Double.parseDouble(System.getProperty("game.quit", "0"));
+
+    private static final int MAX_PHASES = 16;
+
+    private static final String[] names = new String[MAX_PHASES];
+    private static final long[] times = new long[MAX_PHASES];
+    private static int phases;
+
+    // When the JVM started, as System.nanoTime (0 until the phases are printed)
+    private static long launched;
+    private static boolean done;
+
+    private Startup() {
+    }
+
+    /**
+     * marks the start of main, which ends the JVM starting up
+     */
+    public static void markMain() {
+        mark("jvm");
+    }
+
+    /**
+     * ends a phase of starting up
+     * @param phase what was being done since the last mark
+     */
+    public static void mark(String phase) {
+        if (phases < MAX_PHASES) {
+            names[phases] = phase;
+            times[phases] = System.nanoTime();
+            phases++;
+        }
+    }
+
+    /**
+     * ends the last phase when the first frame has been drawn, and prints the phases if game.startup is set (only
+     * the first call does anything)
+     */
+    public static void firstFrame() {
+        if (done) {
+            return;
+        }
+        done = true;
+        mark("first frame");
+        if (PRINT) {
+            launched = System.nanoTime() - ManagementFactory.getRuntimeMXBean().getUptime() * 1000000L;
+            System.out.println("Startup: " + summary());
+        }
+    }
+
+    /**
+     * Get every phase marked so far and how long each took
+     * @return the phases, as printed
+     */
+    public static String summary() {
+        StringBuilder line = new StringBuilder();
+        if (phases == 0) {
+            return "";
+        }
+        long start = launched != 0 ? Math.min(launched, times[0]) : times[0];
+        long previous = start;
+        for (int i = 0; i < phases; i++) {
+            if (i > 0) {
+                line.append(", ");
+            }
+            line.append(names[i]).append(' ').append((times[i] - previous) / 1000000).append(" ms");
+            previous = times[i];
+        }
+        line.append(" = ").append((times[phases - 1] - start) / 1000000).append(" ms");
+        return line.toString();
+    }
+}
@@ -0,0 +1,45 @@
+package org.headroyce.lross2024;
+
+/**
+ * sweep and prune broadphase. boxes are sorted by their left edge and each box is only compared with the boxes
+ * that start before its right edge. wide boxes just sweep further, so mixed sizes need no special handling.
+ */
+public class SweepAndPruneBroadphase implements Broadphase {
+
+    private int[] order;
+
+    /**
+     * makes a new sweep and prune broadphase
+     */
+    public SweepAndPruneBroadphase() {
+        order = new int[64];
+    }
+
+    @Override
+    public void findPairs(double[] x, double[] y, double[] w, double[] h, int count, PairBuffer pairs) {
+        pairs.clear();
+        if (order.length < count) {
+            order = new int[Math.max(count, order.length * 2)];
+        }
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+        }
+        Sorting.sortByKey(order, x, 0, count - 1);
+
+        for (int s = 0; s < count; s++) {
+            int a = order[s];
+            double right = x[a] + w[a];
+            for (int t = s + 1; t < count; t++) {
+                int b = order[t];
+                if (x[b] > right) {
+                    break;
+                }
+                if (y[a] + h[a] >= y[b] && y[a] <= y[b] + h[b]) {
+                    pairs.add(a, b);
+                }
+            }
+        }
+
+        pairs.sort();
+    }
+}
@@ -0,0 +1,129 @@
+package org.headroyce.lross2024;
+
+/**
+ * Times each phase of a game tick (and rendering) into its own nanosecond histogram. A phase costs one
+ * System.nanoTime call and one LatencyHistogram.record, so it stays on all the time (-Dgame.profile=false turns
+ * it off).
+ */
+public class TickProfiler {
+
+    public static final boolean ENABLED = !"false".equalsIgnoreCase(System.getProperty("game.profile"));
+
+    /**
+     * the parts of a tick, in the order they run, plus the whole tick and the frame drawn from it
+     */
+    public enum Phase {
+        INPUT("input"),
+        SPAWN("spawn timers"),
+        FORCES("forces"),
+        MOVE("move"),
+        WALLS("walls"),
+        COLLISIONS("collisions"),
+        REMOVAL("cull, score, remove"),
+        TICK("whole tick"),
+        RENDER("render");
+
+        private final String label;
+
+        Phase(String label) {
+            this.label = label;
+        }
+
+        /**
+         * Get the name of the phase as shown in the overlay
+         * @return the phase's label
+         */
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    private static final Phase[] PHASES = Phase.values();
+
+    private LatencyHistogram[] histograms;
+
+    /**
+     * makes a profiler with empty histograms
+     */
+    public TickProfiler() {
+        histograms = new LatencyHistogram[PHASES.length];
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new LatencyHistogram(1);
+        }
+    }
+
+    /**
+     * Get the time now, to start timing (0 when profiling is off)
+     * @return System.nanoTime()
+     */
+    public long start() {
+        return ENABLED ? System.nanoTime() : 0;
+    }
+
+    /**
+     * records that a phase just ended. each phase must only be recorded from one thread.
+     * @param phase the phase that ended
+     * @param start when it started (from start, or the mark of the phase before it)
+     * @return the time now, which is when the next phase starts
+     */
+    public long mark(Phase phase, long start) {
+        if (!ENABLED) {
+            return 0;
+        }
+        long now = System.nanoTime();
+        histograms[phase.ordinal()].record(now - start);
+        return now;
+    }
+
+    /**
+     * Get the times of a phase
+     * @param phase the phase
+     * @return its histogram (nanoseconds)
+     */
+    public LatencyHistogram get(Phase phase) {
+        return histograms[phase.ordinal()];
+    }
+
+    /**
+     * forgets everything recorded so far
+     */
+    public void clear() {
+        for (LatencyHistogram histogram : histograms) {
+            histogram.clear();
+        }
+    }
+
+    /**
+     * Get the column headings for row
+     * @return the heading line
+     */
+    public static String header() {
+        return String.format("%-20s %9s %9s %9s %9s", "phase", "p50", "p99", "p999", "max");
+    }
+
+    /**
+     * Get the p50, p99, p999 and max of a phase on one line
+     * @param phase the phase
+     * @return the phase's line
+     */
+    public String row(Phase phase) {
+        LatencyHistogram h = get(phase);
+        return String.format("%-20s %9s %9s %9s %9s", phase.getLabel(),
+                LatencyHistogram.format(h.getPercentileNanos(0.5)),
+                LatencyHistogram.format(h.getPercentileNanos(0.99)),
+                LatencyHistogram.format(h.getPercentileNanos(0.999)),
+                LatencyHistogram.format(h.getMaxNanos()));
+    }
+
+    /**
+     * one line per phase with its p50, p99, p999 and max
+     */
+    @Override
+    public String toString() {
+        StringBuilder rtn = new StringBuilder(header());
+        for (Phase phase : PHASES) {
+            rtn.append(System.lineSeparator()).append(row(phase));
+        }
+        return rtn.toString();
+    }
+}
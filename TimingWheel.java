@@ -0,0 +1,392 @@
+package org.headroyce.lross2024;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * a hashed timing wheel counting game ticks. every timer sits in a ring of slots by the tick it is due on, so
+ * scheduling and cancelling are O(1) and each tick only looks at the timers in one slot; thousands of timers cost
+ * nothing while they wait. a timer further away than one turn of the ring stays in its slot and is passed over
+ * until its turn comes.
+ *
+ * timers live in parallel arrays and are handed out as handles (like EntityStore), and what a timer does is a kind
+ * and an argument passed back to a Listener, so scheduling, firing and cancelling do not allocate.
+ */
+public class TimingWheel {
+
+    // Returned when there is no timer, and never found by cancel or isScheduled
+    public static final int NO_TIMER = -1;
+
+    // Slots in the wheel unless another number is asked for
+    public static final int DEFAULT_SLOTS = 256;
+
+    // Handles are (generation << INDEX_BITS) | timer so a reused timer gets a new handle
+    private static final int INDEX_BITS = 24;
+    private static final int INDEX_MASK = (1 << INDEX_BITS) - 1;
+    private static final int GENERATION_MASK = 0x7F;
+
+    // What list a timer is in when it is not in a slot
+    private static final int FREE = -1;
+
+    // Bytes writeTo writes for each timer after the header
+    private static final int TIMER_BYTES = Long.BYTES + 4 * Integer.BYTES;
+
+    /**
+     * what timers do when they fire
+     */
+    public interface Listener {
+        /**
+         * called when a timer is due. a timer that repeats is already scheduled again (and can be cancelled), one
+         * that does not has already been freed.
+         * @param timer the handle of the timer
+         * @param kind the kind it was scheduled with
+         * @param arg the argument it was scheduled with
+         */
+        void fire(int timer, int kind, int arg);
+    }
+
+    private final int mask;
+    // First and last timer of every slot, then of the timers firing this tick
+    private final int[] heads, tails;
+    private final int firing;
+
+    private long[] due;
+    private int[] period, kind, arg;
+    private int[] generation;
+    private int[] next, prev, list;
+
+    private int[] free;
+    private int freeCount;
+    private int timerCount;
+    private int size;
+
+    private long now;
+
+    /**
+     * makes an empty wheel at tick 0
+     * @param slots how many slots the ring has, rounded up to a power of two; non-positives are reset to DEFAULT_SLOTS
+     */
+    public TimingWheel(int slots) {
+        if (slots <= 0) {
+            slots = DEFAULT_SLOTS;
+        }
+        slots = Integer.highestOneBit(slots - 1) << 1;
+        if (slots == 0) {
+            slots = 1;
+        }
+        mask = slots - 1;
+        firing = slots;
+        heads = new int[slots + 1];
+        tails = new int[slots + 1];
+        Arrays.fill(heads, NO_TIMER);
+        Arrays.fill(tails, NO_TIMER);
+
+        int capacity = 64;
+        due = new long[capacity];
+        period = new int[capacity];
+        kind = new int[capacity];
+        arg = new int[capacity];
+        generation = new int[capacity];
+        next = new int[capacity];
+        prev = new int[capacity];
+        list = new int[capacity];
+        free = new int[capacity];
+    }
+
+    /**
+     * Get the tick the wheel is on
+     * @return how many times advance has been called since the wheel was made or cleared
+     */
+    public long getTick() {
+        return now;
+    }
+
+    /**
+     * Get the number of timers waiting to fire
+     * @return how many timers are scheduled
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * schedules a timer
+     * @param delay how many ticks from now it fires; anything under one is reset to one (the next tick)
+     * @param period how many ticks after firing it fires again, or zero (or less) to fire once
+     * @param kind what kind of timer it is, given back to the listener
+     * @param arg anything else the listener needs, given back to it
+     * @return the handle of the timer
+     */
+    public int schedule(int delay, int period, int kind, int arg) {
+        int timer = newTimer();
+        due[timer] = now + Math.max(1, delay);
+        this.period[timer] = Math.max(0, period);
+        this.kind[timer] = kind;
+        this.arg[timer] = arg;
+        link(timer);
+        size++;
+        return (generation[timer] << INDEX_BITS) | timer;
+    }
+
+    /**
+     * stops a timer from firing
+     * @param handle the handle from schedule (NO_TIMER and timers that are done are ignored)
+     * @return true if the timer was scheduled
+     */
+    public boolean cancel(int handle) {
+        int timer = indexOf(handle);
+        if (timer == NO_TIMER) {
+            return false;
+        }
+        unlink(timer);
+        release(timer);
+        return true;
+    }
+
+    /**
+     * Check if a timer is still going to fire
+     * @param handle the handle from schedule
+     * @return true if the timer is scheduled
+     */
+    public boolean isScheduled(int handle) {
+        return indexOf(handle) != NO_TIMER;
+    }
+
+    /**
+     * Get how long until a timer fires
+     * @param handle the handle from schedule
+     * @return the ticks until it fires (one is the next tick), or -1 if it is not scheduled
+     */
+    public long getRemaining(int handle) {
+        int timer = indexOf(handle);
+        return timer == NO_TIMER ? -1 : due[timer] - now;
+    }
+
+    /**
+     * moves on one tick and fires every timer due on it, in the order they were put in their slot
+     * @param listener what to do with each timer
+     */
+    public void advance(Listener listener) {
+        now++;
+        int slot = (int) (now & mask);
+
+        // Take out every timer due now first, so the listener can schedule and cancel whatever it likes
+        for (int timer = heads[slot]; timer != NO_TIMER; ) {
+            int after = next[timer];
+            if (due[timer] == now) {
+                unlink(timer);
+                append(firing, timer);
+            }
+            timer = after;
+        }
+
+        while (heads[firing] != NO_TIMER) {
+            int timer = heads[firing];
+            unlink(timer);
+            int handle = (generation[timer] << INDEX_BITS) | timer;
+            int kind = this.kind[timer];
+            int arg = this.arg[timer];
+            if (period[timer] > 0) {
+                due[timer] = now + period[timer];
+                link(timer);
+            } else {
+                release(timer);
+            }
+            listener.fire(handle, kind, arg);
+        }
+    }
+
+    /**
+     * cancels every timer and puts the wheel back at tick 0
+     */
+    public void clear() {
+        Arrays.fill(heads, NO_TIMER);
+        Arrays.fill(tails, NO_TIMER);
+        for (int timer = 0; timer < timerCount; timer++) {
+            if (list[timer] != FREE) {
+                list[timer] = FREE;
+                generation[timer] = (generation[timer] + 1) & GENERATION_MASK;
+            }
+        }
+        freeCount = 0;
+        for (int timer = timerCount - 1; timer >= 0; timer--) {
+            free[freeCount++] = timer;
+        }
+        size = 0;
+        now = 0;
+    }
+
+    /**
+     * Get the number of bytes writeTo writes
+     * @return the size of the wheel as it is now
+     */
+    public long stateBytes() {
+        return Long.BYTES + Integer.BYTES + (long) size * TIMER_BYTES;
+    }
+
+    /**
+     * writes the tick and every timer (with its handle) at the buffer's position
+     * @param out where to write, with at least stateBytes() bytes left
+     */
+    public void writeTo(ByteBuffer out) {
+        out.putLong(now);
+        out.putInt(size);
+        for (int slot = 0; slot <= mask; slot++) {
+            for (int timer = heads[slot]; timer != NO_TIMER; timer = next[timer]) {
+                out.putInt((generation[timer] << INDEX_BITS) | timer);
+                out.putLong(due[timer]);
+                out.putInt(period[timer]);
+                out.putInt(kind[timer]);
+                out.putInt(arg[timer]);
+            }
+        }
+    }
+
+    /**
+     * replaces every timer with the ones written by writeTo. the timers keep their handles and fire in the same
+     * order as they would have in the wheel that wrote them.
+     * @param in where to read from, at the start of the wheel
+     */
+    public void readFrom(ByteBuffer in) {
+        clear();
+        now = in.getLong();
+        int count = in.getInt();
+        for (int i = 0; i < count; i++) {
+            int handle = in.getInt();
+            int timer = handle & INDEX_MASK;
+            while (timer >= timerCount) {
+                if (timerCount == due.length) {
+                    grow(timerCount * 2);
+                }
+                list[timerCount++] = FREE;
+            }
+            generation[timer] = handle >>> INDEX_BITS;
+            due[timer] = in.getLong();
+            period[timer] = in.getInt();
+            kind[timer] = in.getInt();
+            arg[timer] = in.getInt();
+            link(timer);
+        }
+        size = count;
+
+        freeCount = 0;
+        for (int timer = timerCount - 1; timer >= 0; timer--) {
+            if (list[timer] == FREE) {
+                free[freeCount++] = timer;
+            }
+        }
+    }
+
+    /**
+     * checks that a buffer holds a wheel as writeTo writes it, and moves past it
+     * @param in where to read from, at the start of the wheel
+     * @throws IOException if the timers run past the end of the buffer or two of them are the same timer
+     */
+    public static void skipState(ByteBuffer in) throws IOException {
+        if (in.remaining() < Long.BYTES + Integer.BYTES) {
+            throw new IOException("the timers are cut short");
+        }
+        in.getLong();
+        int count = in.getInt();
+        if (count < 0 || (long) count * TIMER_BYTES > in.remaining()) {
+            throw new IOException("bad timer count " + count);
+        }
+        BitSet timers = new BitSet();
+        for (int i = 0; i < count; i++) {
+            int handle = in.getInt();
+            if (handle < 0 || timers.get(handle & INDEX_MASK)) {
+                throw new IOException("bad timer handle " + handle);
+            }
+            timers.set(handle & INDEX_MASK);
+            in.position(in.position() + TIMER_BYTES - Integer.BYTES);
+        }
+    }
+
+    /**
+     * Get the index of a timer
+     * @return the index, or NO_TIMER if the handle is not scheduled
+     */
+    private int indexOf(int handle) {
+        if (handle < 0) {
+            return NO_TIMER;
+        }
+        int timer = handle & INDEX_MASK;
+        if (timer >= timerCount || list[timer] == FREE || generation[timer] != (handle >>> INDEX_BITS)) {
+            return NO_TIMER;
+        }
+        return timer;
+    }
+
+    /**
+     * takes a free timer, growing the arrays if there are none
+     */
+    private int newTimer() {
+        if (freeCount > 0) {
+            return free[--freeCount];
+        }
+        if (timerCount == due.length) {
+            grow(timerCount * 2);
+        }
+        return timerCount++;
+    }
+
+    /**
+     * frees a timer (already out of its list) so its handle no longer finds it
+     */
+    private void release(int timer) {
+        list[timer] = FREE;
+        generation[timer] = (generation[timer] + 1) & GENERATION_MASK;
+        free[freeCount++] = timer;
+        size--;
+    }
+
+    /**
+     * puts a timer at the end of the slot for its due tick
+     */
+    private void link(int timer) {
+        append((int) (due[timer] & mask), timer);
+    }
+
+    private void append(int to, int timer) {
+        list[timer] = to;
+        next[timer] = NO_TIMER;
+        prev[timer] = tails[to];
+        if (tails[to] == NO_TIMER) {
+            heads[to] = timer;
+        } else {
+            next[tails[to]] = timer;
+        }
+        tails[to] = timer;
+    }
+
+    /**
+     * takes a timer out of whatever list it is in
+     */
+    private void unlink(int timer) {
+        int from = list[timer];
+        if (prev[timer] == NO_TIMER) {
+            heads[from] = next[timer];
+        } else {
+            next[prev[timer]] = next[timer];
+        }
+        if (next[timer] == NO_TIMER) {
+            tails[from] = prev[timer];
+        } else {
+            prev[next[timer]] = prev[timer];
+        }
+    }
+
+    private void grow(int capacity) {
+        due = Arrays.copyOf(due, capacity);
+        period = Arrays.copyOf(period, capacity);
+        kind = Arrays.copyOf(kind, capacity);
+        arg = Arrays.copyOf(arg, capacity);
+        generation = Arrays.copyOf(generation, capacity);
+        next = Arrays.copyOf(next, capacity);
+        prev = Arrays.copyOf(prev, capacity);
+        list = Arrays.copyOf(list, capacity);
+        free = Arrays.copyOf(free, capacity);
+    }
+}
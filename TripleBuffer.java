@@ -0,0 +1,65 @@
+package org.headroyce.lross2024;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Hands the latest complete value from one writer thread to one reader thread without locks. There are three
+ * buffers: the writer fills its back buffer and publishes it, the reader takes whatever was published last. neither
+ * side ever waits for the other or sees a buffer the other one is still using.
+ * @param <T> what is being handed over
+ */
+public class TripleBuffer<T> {
+
+    // Set in state when the middle buffer holds something the reader has not taken yet
+    private static final int FRESH = 4;
+    private static final int INDEX = 3;
+
+    private Object[] buffers;
+
+    // Index of the middle buffer (plus FRESH); the only thing both threads touch
+    private AtomicInteger state;
+
+    // Only used by the writer / only used by the reader
+    private int back;
+    private int front;
+
+    /**
+     * makes the three buffers
+     * @param factory makes each buffer (cannot be null)
+     */
+    public TripleBuffer(Supplier<T> factory) {
+        buffers = new Object[]{factory.get(), factory.get(), factory.get()};
+        front = 0;
+        state = new AtomicInteger(1);
+        back = 2;
+    }
+
+    /**
+     * Get the buffer the writer should fill next (writer thread only)
+     * @return the back buffer
+     */
+    @SuppressWarnings("unchecked")
+    public T back() {
+        return (T) buffers[back];
+    }
+
+    /**
+     * publishes the back buffer to the reader and gives the writer a new back buffer (writer thread only)
+     */
+    public void publish() {
+        back = state.getAndSet(back | FRESH) & INDEX;
+    }
+
+    /**
+     * Get the latest published buffer (reader thread only). it stays untouched until the next call.
+     * @return the newest complete buffer
+     */
+    @SuppressWarnings("unchecked")
+    public T latest() {
+        if ((state.get() & FRESH) != 0) {
+            front = state.getAndSet(front) & INDEX;
+        }
+        return (T) buffers[front];
+    }
+}
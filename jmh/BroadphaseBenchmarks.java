@@ -0,0 +1,48 @@
+package org.headroyce.lross2024;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+
+/**
+ * Each broadphase finding the pairs of n mixed enemies; one op is one search.
+ */
+@State(Scope.Thread)
+@Fork(2)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class BroadphaseBenchmarks {
+
+    @Param({"brute", "grid", "sap"})
+    public String broadphase;
+
+    @Param({"1000", "10000"})
+    public int n;
+
+    private EntityStore enemies;
+    private Broadphase search;
+    private PairBuffer pairs;
+
+    /**
+     * builds the world and the broadphase
+     */
+    @Setup
+    public void setUp() {
+        enemies = Benchmarks.world(n, new Random(n)).getEnemies();
+        search = Broadphase.create(broadphase);
+        pairs = new PairBuffer();
+    }
+
+    @Benchmark
+    public int findPairs() {
+        search.findPairs(enemies.x, enemies.y, enemies.width, enemies.height, enemies.size(), pairs);
+        return pairs.size();
+    }
+}
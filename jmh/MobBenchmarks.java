@@ -0,0 +1,90 @@
+package org.headroyce.lross2024;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+
+/**
+ * Mob.move and the intersects tests over 1024 mixed mobs; one op is one mob moved or one pair tested.
+ */
+@State(Scope.Thread)
+@Fork(2)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class MobBenchmarks {
+
+    private static final int MOBS = 1024;
+
+    private Mob[] mobs;
+    private Ball[] balls;
+    private Obstacle obstacle;
+
+    /**
+     * makes the mobs, and balls of radius 10 where the mobs are
+     */
+    @Setup
+    public void setUp() {
+        mobs = Scenarios.mixedMobs(MOBS, new Random(1));
+        balls = new Ball[MOBS];
+        for (int i = 0; i < MOBS; i++) {
+            balls[i] = new Ball(10);
+            balls[i].setRadius(10);
+            balls[i].x = mobs[i].x;
+            balls[i].y = mobs[i].y;
+        }
+        obstacle = new Obstacle();
+        obstacle.x = 250;
+        obstacle.y = 250;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MOBS)
+    public void move() {
+        for (Mob mob : mobs) {
+            mob.move();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MOBS - 1)
+    public int mobIntersectsMob() {
+        int hits = 0;
+        for (int i = 1; i < MOBS; i++) {
+            if (mobs[i - 1].intersects(mobs[i])) {
+                hits++;
+            }
+        }
+        return hits;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MOBS - 1)
+    public int ballIntersectsBall() {
+        int hits = 0;
+        for (int i = 1; i < MOBS; i++) {
+            if (balls[i - 1].intersects(balls[i])) {
+                hits++;
+            }
+        }
+        return hits;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MOBS)
+    public int obstacleIntersectsBall() {
+        int hits = 0;
+        for (Ball ball : balls) {
+            if (obstacle.intersects(ball)) {
+                hits++;
+            }
+        }
+        return hits;
+    }
+}
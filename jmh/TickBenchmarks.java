@@ -0,0 +1,57 @@
+package org.headroyce.lross2024;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+/**
+ * A whole engine tick with n enemies of every kind; one op is one tick.
+ *
+ * Enemies fall off the bottom as the game runs, so every TICKS_PER_WORLD ticks the world is put back from a save
+ * state made when it was built. That is one bulk copy per column, and the pools are made big enough (game.pool.cap)
+ * that the mobs it puts back are reused, so it only adds a few small buffer views to each op's allocation.
+ */
+@State(Scope.Thread)
+@Fork(value = 2, jvmArgsAppend = "-Dgame.pool.cap=131072")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class TickBenchmarks {
+
+    private static final int TICKS_PER_WORLD = 20;
+
+    @Param({"10", "1000", "10000", "100000"})
+    public int n;
+
+    private GameEngine engine;
+    private ByteBuffer world;
+    private int ticks;
+
+    /**
+     * builds the world and saves it
+     */
+    @Setup
+    public void setUp() {
+        engine = Benchmarks.world(n, new Random(n));
+        world = ByteBuffer.allocate((int) engine.stateBytes());
+        engine.saveState(world);
+    }
+
+    @Benchmark
+    public long tick() throws IOException {
+        if (ticks++ % TICKS_PER_WORLD == 0) {
+            world.flip();
+            engine.loadState(world);
+        }
+        engine.tick();
+        return engine.getTick();
+    }
+}
@@ -0,0 +1,55 @@
+package org.headroyce.lross2024;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+
+/**
+ * A timing wheel holding n repeating timers: one tick of it, and scheduling and cancelling one more timer.
+ */
+@State(Scope.Thread)
+@Fork(2)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class TimerBenchmarks {
+
+    @Param({"1000", "100000"})
+    public int n;
+
+    private TimingWheel wheel;
+    private TimingWheel.Listener listener;
+    private Random rand;
+    private long fired;
+
+    /**
+     * fills the wheel with timers of random periods up to a second
+     */
+    @Setup
+    public void setUp() {
+        rand = new Random(n);
+        wheel = new TimingWheel(TimingWheel.DEFAULT_SLOTS);
+        for (int i = 0; i < n; i++) {
+            int period = rand.nextInt(1000) + 1;
+            wheel.schedule(rand.nextInt(period) + 1, period, 0, i);
+        }
+        listener = (timer, kind, arg) -> fired += arg;
+    }
+
+    @Benchmark
+    public long advance() {
+        wheel.advance(listener);
+        return fired;
+    }
+
+    @Benchmark
+    public void scheduleAndCancel() {
+        wheel.cancel(wheel.schedule(rand.nextInt(1000) + 1, 0, 0, 0));
+    }
+}
@@ -0,0 +1,48 @@
+package org.headroyce.lross2024;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+
+/**
+ * The serial and parallel enemy update (move, move, walls) of n enemies, to find where game.parallel.threshold
+ * should be on a machine; one op is one update of every enemy.
+ */
+@State(Scope.Thread)
+@Fork(2)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class UpdateBenchmarks {
+
+    @Param({"serial", "parallel"})
+    public String mode;
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int n;
+
+    private EntityStore enemies;
+    private EnemyUpdater updater;
+    private double width;
+
+    /**
+     * builds the world and an updater that is always serial or always parallel
+     */
+    @Setup
+    public void setUp() {
+        enemies = Benchmarks.world(n, new Random(n)).getEnemies();
+        updater = new EnemyUpdater(mode.equals("serial") ? Integer.MAX_VALUE : 0);
+        width = Benchmarks.fieldSize(n);
+    }
+
+    @Benchmark
+    public void update() {
+        updater.update(enemies, width);
+    }
+}
@@ -0,0 +1,82 @@
+package org.headroyce.lross2024;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * One ball hitting two others in the same tick: a ball of radius 5 moves 100 to the right in one step, through a ball
+ * moving from 30 to 40 and a still ball at 60.
+ */
+class NarrowphaseTest {
+
+    private static final double EPSILON = 1e-9;
+
+    @Test
+    void hitsBothAndStopsAtTheFirst() {
+        EntityStore store = threeBalls();
+        Ball player = farPlayer();
+        Narrowphase.Pass pass = new Narrowphase.Pass();
+
+        pass.begin(store, player, player.x, player.y);
+        assertTrue(Narrowphase.collide(store, pass, 0, 1));
+        assertTrue(Narrowphase.collide(store, pass, 0, 2));
+        pass.finish(store, player);
+
+        // It closes the gap of 20 to the moving ball at 90 a step, so they touch 2/9 of the way along
+        assertEquals(100 * 2 / 9.0, store.x[0], EPSILON);
+        assertEquals(30 + 10 * 2 / 9.0, store.x[1], EPSILON);
+        assertEquals(60, store.x[2], EPSILON);
+    }
+
+    @Test
+    void endsUpInTheSamePlaceWhateverThePairOrder() {
+        EntityStore forward = threeBalls();
+        EntityStore backward = threeBalls();
+        Ball player = farPlayer();
+        Narrowphase.Pass pass = new Narrowphase.Pass();
+
+        pass.begin(forward, player, player.x, player.y);
+        Narrowphase.collide(forward, pass, 0, 1);
+        Narrowphase.collide(forward, pass, 0, 2);
+        pass.finish(forward, player);
+
+        pass.begin(backward, player, player.x, player.y);
+        Narrowphase.collide(backward, pass, 0, 2);
+        Narrowphase.collide(backward, pass, 0, 1);
+        pass.finish(backward, player);
+
+        assertArrayEquals(forward.x, backward.x, EPSILON);
+        assertArrayEquals(forward.y, backward.y, EPSILON);
+    }
+
+    /**
+     * the three balls, with the first two moved for the step
+     */
+    private static EntityStore threeBalls() {
+        EntityStore store = new EntityStore(3);
+        for (double x : new double[]{0, 30, 60}) {
+            Ball ball = new Ball();
+            ball.setRadius(5);
+            ball.x = x;
+            store.add(ball);
+        }
+        store.savePositions();
+        store.x[0] = 100;
+        store.x[1] = 40;
+        return store;
+    }
+
+    /**
+     * a player nowhere near the balls, not moving
+     */
+    private static Ball farPlayer() {
+        Ball player = new Ball();
+        player.setRadius(10);
+        player.x = 1000;
+        player.y = 1000;
+        return player;
+    }
+}